@@ -0,0 +1,45 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+
+/**
+ * 回复结果：组装成功与出错的回复消息并提交到平台线程。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class BasicMessageChannelReplyBenchmark {
+
+    private BasicMessageChannel.Reply<Object> _reply;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        this._reply = new BasicMessageChannel.Reply<Object>() {
+            @Override
+            public void reply(Object result) {
+                blackhole.consume(result);
+            }
+        };
+    }
+
+    @Benchmark
+    public void success() {
+        new BasicMessageChannelReply(this._reply).success(Boolean.TRUE);
+    }
+
+    @Benchmark
+    public void error() {
+        new BasicMessageChannelReply(this._reply).error("device disconnected.");
+    }
+}
@@ -0,0 +1,69 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志输出：关闭调试信息时的调用开销，以及开启后的消息格式化开销。
+ * <p>
+ * 调试开关是静态状态，每个基准测试方法在独立的进程中运行，互不影响。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MyLogBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Payload {
+        final String address = "AA:BB:CC:DD:EE:FF";
+        final Integer status = 0;
+        final Integer newState = 2;
+        final byte[] data = new byte[20];
+    }
+
+    @State(Scope.Benchmark)
+    public static class Debug {
+        @Setup
+        public void setup() {
+            MyLog.enableDebug();
+        }
+    }
+
+    /**
+     * 关闭调试信息时，GATT回调中的调试日志调用。
+     */
+    @Benchmark
+    public void debugDisabled(Payload payload) {
+        MyLog.debug("onConnectionStateChange status: {}, newState: {}, device: {}", payload.status, payload.newState, payload.address);
+    }
+
+    /**
+     * 开启调试信息时，格式化3个参数。
+     */
+    @Benchmark
+    public void debugEnabled(Payload payload, Debug debug) {
+        MyLog.debug("onConnectionStateChange status: {}, newState: {}, device: {}", payload.status, payload.newState, payload.address);
+    }
+
+    /**
+     * 开启调试信息时，格式化字节数组。
+     */
+    @Benchmark
+    public void debugEnabledBytes(Payload payload, Debug debug) {
+        MyLog.debug("write ok: {}", payload.data);
+    }
+
+    /**
+     * 提示信息，使用可变参数。
+     */
+    @Benchmark
+    public void infoVarargs(Payload payload) {
+        MyLog.info("device {} status {} state {} data {} address {}", payload.address, payload.status, payload.newState, payload.data, payload.address);
+    }
+}
@@ -0,0 +1,92 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.app.Activity;
+import android.bluetooth.BluetoothManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryMessenger;
+
+/**
+ * 消息路由：从接收消息到回复结果的完整分发过程，分别测量位于分发链开头、末尾与不存在的方法。
+ * <p>
+ * 桩类中的 Handler.post 直接在调用线程中执行任务，因此包含工作线程与平台线程任务的包装开销，不包含线程切换。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MyMethodRouterBenchmark {
+
+    private Map<String, Object> _keepAlive;
+    private Map<String, Object> _disconnect;
+    private Map<String, Object> _unknown;
+
+    @Setup
+    public void setup() {
+        MyMethodRouter.me().init(new BinaryMessenger() {
+            @Override
+            public void send(String channel, ByteBuffer message) {
+            }
+        });
+        PlatformHelper.me().setActivity(new Activity());
+        MyBluetoothManager.me().init(new BluetoothManager());
+        this._keepAlive = _message("keepAlive", null);
+        Map<String, Object> _args = new HashMap<>(4);
+        _args.put("deviceId", "AA:BB:CC:DD:EE:FF");
+        this._disconnect = _message("disconnect", _args);
+        this._unknown = _message("unknownMethod", _args);
+    }
+
+    private static Map<String, Object> _message(String method, Map<String, Object> args) {
+        Map<String, Object> _message = new HashMap<>(4);
+        _message.put(MyMethodRouter.KEY_METHOD, method);
+        if (null != args) _message.put(MyMethodRouter.KEY_ARGS, args);
+        return _message;
+    }
+
+    private static BasicMessageChannel.Reply<Object> _reply(final Blackhole blackhole) {
+        return new BasicMessageChannel.Reply<Object>() {
+            @Override
+            public void reply(Object result) {
+                blackhole.consume(result);
+            }
+        };
+    }
+
+    /**
+     * 分发链开头的方法
+     */
+    @Benchmark
+    public void first(Blackhole blackhole) {
+        MyMethodRouter.me().onMessage(this._keepAlive, _reply(blackhole));
+    }
+
+    /**
+     * 分发链末尾的方法
+     */
+    @Benchmark
+    public void last(Blackhole blackhole) {
+        MyMethodRouter.me().onMessage(this._disconnect, _reply(blackhole));
+    }
+
+    /**
+     * 不存在的方法，遍历整个分发链。
+     */
+    @Benchmark
+    public void unknown(Blackhole blackhole) {
+        MyMethodRouter.me().onMessage(this._unknown, _reply(blackhole));
+    }
+}
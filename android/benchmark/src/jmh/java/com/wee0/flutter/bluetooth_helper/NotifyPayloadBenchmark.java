@@ -0,0 +1,44 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.BinaryMessenger;
+
+/**
+ * 特征通知：每个通知事件组装消息并提交发送的开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class NotifyPayloadBenchmark {
+
+    @Param({"20", "244"})
+    public int size;
+
+    private byte[] _data;
+
+    @Setup
+    public void setup() {
+        MyMethodRouter.me().init(new BinaryMessenger() {
+            @Override
+            public void send(String channel, ByteBuffer message) {
+            }
+        });
+        this._data = new byte[this.size];
+    }
+
+    @Benchmark
+    public void notifyData() {
+        MyMethodRouter.me().callOnCharacteristicNotifyData("AA:BB:CC:DD:EE:FF", 3, "0000fff1-0000-1000-8000-00805f9b34fb", this._data);
+    }
+}
@@ -0,0 +1,9 @@
+package android.app;
+
+public class Activity extends android.content.Context {
+    public Application getApplication() {
+        return null;
+    }
+
+    public void runOnUiThread(Runnable r) {}
+}
@@ -0,0 +1,37 @@
+package android.bluetooth;
+
+public final class BluetoothAdapter {
+    public static final String ACTION_STATE_CHANGED = "s", EXTRA_STATE = "e";
+    public static final int ERROR = -1, STATE_OFF = 10, STATE_TURNING_ON = 11, STATE_ON = 12, STATE_TURNING_OFF = 13;
+    public BluetoothDevice getRemoteDevice(String a) {
+        return null;
+    }
+
+    public boolean isEnabled() {
+        return false;
+    }
+
+    public boolean enable() {
+        return false;
+    }
+
+    public boolean disable() {
+        return false;
+    }
+
+    public android.bluetooth.le.BluetoothLeScanner getBluetoothLeScanner() {
+        return null;
+    }
+
+    public boolean isOffloadedScanBatchingSupported() {
+        return false;
+    }
+
+    public boolean isOffloadedFilteringSupported() {
+        return false;
+    }
+
+    public static boolean checkBluetoothAddress(String a) {
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package android.bluetooth;
+
+public final class BluetoothDevice {
+    public static final int TRANSPORT_AUTO = 0, TRANSPORT_LE = 2, PHY_LE_1M_MASK = 1;
+    public String getName() {
+        return null;
+    }
+
+    public String getAddress() {
+        return null;
+    }
+
+    public BluetoothGatt connectGatt(android.content.Context c, boolean a, BluetoothGattCallback cb) {
+        return null;
+    }
+
+    public BluetoothGatt connectGatt(android.content.Context c, boolean a, BluetoothGattCallback cb, int t) {
+        return null;
+    }
+
+    public BluetoothGatt connectGatt(android.content.Context c, boolean a, BluetoothGattCallback cb, int t, int phy, android.os.Handler h) {
+        return null;
+    }
+}
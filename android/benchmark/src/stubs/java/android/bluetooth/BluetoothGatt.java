@@ -0,0 +1,71 @@
+package android.bluetooth;
+
+public final class BluetoothGatt implements BluetoothProfile {
+    public static final int GATT_SUCCESS = 0, GATT_READ_NOT_PERMITTED = 2, GATT_WRITE_NOT_PERMITTED = 3, GATT_INVALID_ATTRIBUTE_LENGTH = 13, GATT_FAILURE = 257;
+    public static final int CONNECTION_PRIORITY_BALANCED = 0, CONNECTION_PRIORITY_HIGH = 1, CONNECTION_PRIORITY_LOW_POWER = 2;
+    public void close() {}
+
+    public void disconnect() {}
+
+    public boolean connect() {
+        return true;
+    }
+
+    public boolean discoverServices() {
+        return true;
+    }
+
+    public java.util.List<BluetoothGattService> getServices() {
+        return null;
+    }
+
+    public BluetoothGattService getService(java.util.UUID u) {
+        return null;
+    }
+
+    public BluetoothDevice getDevice() {
+        return null;
+    }
+
+    public boolean setCharacteristicNotification(BluetoothGattCharacteristic c, boolean e) {
+        return true;
+    }
+
+    public boolean writeDescriptor(BluetoothGattDescriptor d) {
+        return true;
+    }
+
+    public boolean readDescriptor(BluetoothGattDescriptor d) {
+        return true;
+    }
+
+    public boolean readCharacteristic(BluetoothGattCharacteristic c) {
+        return true;
+    }
+
+    public boolean writeCharacteristic(BluetoothGattCharacteristic c) {
+        return true;
+    }
+
+    public boolean readRemoteRssi() {
+        return true;
+    }
+
+    public boolean requestMtu(int m) {
+        return true;
+    }
+
+    public boolean requestConnectionPriority(int p) {
+        return true;
+    }
+
+    public boolean beginReliableWrite() {
+        return true;
+    }
+
+    public boolean executeReliableWrite() {
+        return true;
+    }
+
+    public void abortReliableWrite() {}
+}
@@ -0,0 +1,25 @@
+package android.bluetooth;
+
+public abstract class BluetoothGattCallback {
+    public void onConnectionStateChange(BluetoothGatt g, int s, int n) {}
+
+    public void onServicesDiscovered(BluetoothGatt g, int s) {}
+
+    public void onCharacteristicRead(BluetoothGatt g, BluetoothGattCharacteristic c, int s) {}
+
+    public void onCharacteristicWrite(BluetoothGatt g, BluetoothGattCharacteristic c, int s) {}
+
+    public void onCharacteristicChanged(BluetoothGatt g, BluetoothGattCharacteristic c) {}
+
+    public void onDescriptorRead(BluetoothGatt g, BluetoothGattDescriptor d, int s) {}
+
+    public void onDescriptorWrite(BluetoothGatt g, BluetoothGattDescriptor d, int s) {}
+
+    public void onReliableWriteCompleted(BluetoothGatt g, int s) {}
+
+    public void onReadRemoteRssi(BluetoothGatt g, int r, int s) {}
+
+    public void onMtuChanged(BluetoothGatt g, int m, int s) {}
+
+    public void onPhyUpdate(BluetoothGatt g, int t, int r, int s) {}
+}
@@ -0,0 +1,43 @@
+package android.bluetooth;
+
+public class BluetoothGattCharacteristic {
+    public static final int WRITE_TYPE_DEFAULT = 2, WRITE_TYPE_NO_RESPONSE = 1, WRITE_TYPE_SIGNED = 4;
+    public static final int PROPERTY_READ = 2, PROPERTY_WRITE_NO_RESPONSE = 4, PROPERTY_WRITE = 8, PROPERTY_NOTIFY = 16, PROPERTY_INDICATE = 32;
+    public java.util.UUID getUuid() {
+        return null;
+    }
+
+    public int getInstanceId() {
+        return 0;
+    }
+
+    public int getProperties() {
+        return 0;
+    }
+
+    public BluetoothGattService getService() {
+        return null;
+    }
+
+    public byte[] getValue() {
+        return null;
+    }
+
+    public boolean setValue(byte[] v) {
+        return true;
+    }
+
+    public void setWriteType(int t) {}
+
+    public int getWriteType() {
+        return 0;
+    }
+
+    public BluetoothGattDescriptor getDescriptor(java.util.UUID u) {
+        return null;
+    }
+
+    public java.util.List<BluetoothGattDescriptor> getDescriptors() {
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package android.bluetooth;
+
+public class BluetoothGattDescriptor {
+    public static final byte[] ENABLE_NOTIFICATION_VALUE= {
+        1, 0
+    }
+
+    , ENABLE_INDICATION_VALUE= {
+        2, 0
+    }
+
+    , DISABLE_NOTIFICATION_VALUE= {
+        0, 0
+    }
+
+    ;
+    public java.util.UUID getUuid() {
+        return null;
+    }
+
+    public BluetoothGattCharacteristic getCharacteristic() {
+        return null;
+    }
+
+    public byte[] getValue() {
+        return null;
+    }
+
+    public boolean setValue(byte[] v) {
+        return true;
+    }
+}
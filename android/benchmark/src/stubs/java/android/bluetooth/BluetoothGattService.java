@@ -0,0 +1,24 @@
+package android.bluetooth;
+
+public class BluetoothGattService {
+    public static final int SERVICE_TYPE_PRIMARY = 0;
+    public java.util.UUID getUuid() {
+        return null;
+    }
+
+    public int getInstanceId() {
+        return 0;
+    }
+
+    public int getType() {
+        return 0;
+    }
+
+    public java.util.List<BluetoothGattCharacteristic> getCharacteristics() {
+        return null;
+    }
+
+    public BluetoothGattCharacteristic getCharacteristic(java.util.UUID u) {
+        return null;
+    }
+}
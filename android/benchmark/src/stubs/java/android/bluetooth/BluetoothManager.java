@@ -0,0 +1,15 @@
+package android.bluetooth;
+
+public final class BluetoothManager {
+    public BluetoothAdapter getAdapter() {
+        return null;
+    }
+
+    public int getConnectionState(BluetoothDevice d, int p) {
+        return 0;
+    }
+
+    public java.util.List<BluetoothDevice> getConnectedDevices(int p) {
+        return null;
+    }
+}
@@ -0,0 +1,6 @@
+package android.bluetooth;
+
+public interface BluetoothProfile {
+    int GATT = 7;
+    int STATE_DISCONNECTED = 0, STATE_CONNECTING = 1, STATE_CONNECTED = 2, STATE_DISCONNECTING = 3;
+}
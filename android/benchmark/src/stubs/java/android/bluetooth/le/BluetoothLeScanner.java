@@ -0,0 +1,9 @@
+package android.bluetooth.le;
+
+public final class BluetoothLeScanner {
+    public void startScan(java.util.List<ScanFilter> f, ScanSettings s, ScanCallback c) {}
+
+    public void stopScan(ScanCallback c) {}
+
+    public void flushPendingScanResults(ScanCallback c) {}
+}
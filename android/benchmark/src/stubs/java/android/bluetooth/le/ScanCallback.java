@@ -0,0 +1,10 @@
+package android.bluetooth.le;
+
+public abstract class ScanCallback {
+    public static final int SCAN_FAILED_ALREADY_STARTED = 1;
+    public void onScanResult(int t, ScanResult r) {}
+
+    public void onBatchScanResults(java.util.List<ScanResult> r) {}
+
+    public void onScanFailed(int e) {}
+}
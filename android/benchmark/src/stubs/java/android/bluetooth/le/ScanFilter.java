@@ -0,0 +1,21 @@
+package android.bluetooth.le;
+
+public final class ScanFilter {
+    public static final class Builder {
+        public Builder setDeviceName(String n) {
+            return this;
+        }
+        public Builder setDeviceAddress(String a) {
+            return this;
+        }
+        public Builder setServiceUuid(android.os.ParcelUuid u) {
+            return this;
+        }
+        public Builder setManufacturerData(int id, byte[] d) {
+            return this;
+        }
+        public ScanFilter build() {
+            return null;
+        }
+    }
+}
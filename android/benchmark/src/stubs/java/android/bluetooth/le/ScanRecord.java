@@ -0,0 +1,19 @@
+package android.bluetooth.le;
+
+public final class ScanRecord {
+    public byte[] getBytes() {
+        return null;
+    }
+
+    public String getDeviceName() {
+        return null;
+    }
+
+    public int getTxPowerLevel() {
+        return 0;
+    }
+
+    public java.util.List<android.os.ParcelUuid> getServiceUuids() {
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package android.bluetooth.le;
+
+public final class ScanResult {
+    public static final int TX_POWER_NOT_PRESENT = 127;
+    public android.bluetooth.BluetoothDevice getDevice() {
+        return null;
+    }
+
+    public int getRssi() {
+        return 0;
+    }
+
+    public ScanRecord getScanRecord() {
+        return null;
+    }
+
+    public long getTimestampNanos() {
+        return 0;
+    }
+
+    public int getTxPower() {
+        return 0;
+    }
+
+    public boolean isConnectable() {
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package android.bluetooth.le;
+
+public final class ScanSettings {
+    public static final int SCAN_MODE_OPPORTUNISTIC = -1, SCAN_MODE_LOW_POWER = 0, SCAN_MODE_BALANCED = 1, SCAN_MODE_LOW_LATENCY = 2;
+    public static final int MATCH_MODE_AGGRESSIVE = 1, MATCH_MODE_STICKY = 2;
+    public static final int MATCH_NUM_ONE_ADVERTISEMENT = 1, MATCH_NUM_FEW_ADVERTISEMENT = 2, MATCH_NUM_MAX_ADVERTISEMENT = 3;
+    public static final int CALLBACK_TYPE_ALL_MATCHES = 1, CALLBACK_TYPE_FIRST_MATCH = 2, CALLBACK_TYPE_MATCH_LOST = 4;
+    public static final class Builder {
+        public Builder setScanMode(int m) {
+            return this;
+        }
+        public Builder setMatchMode(int m) {
+            return this;
+        }
+        public Builder setNumOfMatches(int n) {
+            return this;
+        }
+        public Builder setCallbackType(int c) {
+            return this;
+        }
+        public Builder setReportDelay(long d) {
+            return this;
+        }
+        public Builder setLegacy(boolean l) {
+            return this;
+        }
+        public ScanSettings build() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package android.content;
+
+public class Context {
+    public static final String BLUETOOTH_SERVICE = "b", LOCATION_SERVICE = "l", NOTIFICATION_SERVICE = "n";
+    public static final int MODE_PRIVATE = 0;
+    public Object getSystemService(String s) {
+        return null;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver r, IntentFilter f) {
+        return null;
+    }
+
+    public void unregisterReceiver(BroadcastReceiver r) {}
+
+    public String getPackageName() {
+        return null;
+    }
+
+    public Context getApplicationContext() {
+        return null;
+    }
+
+    public ContentResolver getContentResolver() {
+        return null;
+    }
+
+    public android.content.pm.PackageManager getPackageManager() {
+        return null;
+    }
+
+    public SharedPreferences getSharedPreferences(String n, int m) {
+        return null;
+    }
+
+    public java.io.File getFilesDir() {
+        return null;
+    }
+
+    public java.io.File getCacheDir() {
+        return null;
+    }
+}
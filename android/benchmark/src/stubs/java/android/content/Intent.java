@@ -0,0 +1,11 @@
+package android.content;
+
+public class Intent {
+    public String getAction() {
+        return null;
+    }
+
+    public int getIntExtra(String n, int d) {
+        return d;
+    }
+}
@@ -0,0 +1,14 @@
+package android.content;
+
+public interface SharedPreferences {
+    String getString(String k, String d);
+    java.util.Map<String, ?> getAll();
+    Editor edit();
+    interface Editor {
+        Editor putString(String k, String v);
+        Editor remove(String k);
+        Editor clear();
+        void apply();
+        boolean commit();
+    }
+}
@@ -0,0 +1,8 @@
+package android.content.pm;
+
+public class PackageManager {
+    public static final int PERMISSION_GRANTED = 0;
+    public boolean hasSystemFeature(String f) {
+        return false;
+    }
+}
@@ -0,0 +1,14 @@
+package android.location;
+
+public class Criteria {
+    public static final int ACCURACY_COARSE = 2, POWER_LOW = 1;
+    public void setAccuracy(int a) {}
+
+    public void setAltitudeRequired(boolean b) {}
+
+    public void setBearingRequired(boolean b) {}
+
+    public void setCostAllowed(boolean b) {}
+
+    public void setPowerRequirement(int p) {}
+}
@@ -0,0 +1,9 @@
+package android.location;
+
+public class Geocoder {
+    public Geocoder(android.content.Context c, java.util.Locale l) {}
+
+    public java.util.List<Address> getFromLocation(double a, double b, int c) throws java.io.IOException {
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package android.location;
+
+public class LocationManager {
+    public static final String MODE_CHANGED_ACTION = "m", GPS_PROVIDER = "gps", NETWORK_PROVIDER = "network";
+    public boolean isProviderEnabled(String p) {
+        return false;
+    }
+
+    public String getBestProvider(Criteria c, boolean b) {
+        return null;
+    }
+
+    public java.util.List<String> getProviders(boolean b) {
+        return null;
+    }
+
+    public Location getLastKnownLocation(String p) {
+        return null;
+    }
+}
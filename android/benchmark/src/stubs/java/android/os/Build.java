@@ -0,0 +1,13 @@
+package android.os;
+
+public class Build {
+    public static String MODEL;
+    public static class VERSION {
+        public static int SDK_INT;
+        public static String RELEASE;
+    }
+
+    public static class VERSION_CODES {
+        public static final int JELLY_BEAN_MR2 = 18, KITKAT = 19, LOLLIPOP = 21, M = 23, N = 24, O = 26, P = 28;
+    }
+}
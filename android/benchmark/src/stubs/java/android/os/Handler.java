@@ -0,0 +1,47 @@
+package android.os;
+
+public class Handler {
+    public interface Callback {
+        boolean handleMessage(Message m);
+    }
+
+    public Handler() {}
+
+    public Handler(Callback c) {}
+
+    public Handler(Looper l) {}
+
+    public Handler(Looper l, Callback c) {}
+
+    public final boolean sendEmptyMessageDelayed(int w, long d) {
+        return true;
+    }
+
+    public final boolean hasMessages(int w) {
+        return false;
+    }
+
+    public final void removeMessages(int w) {}
+
+    // 基准测试中直接在调用线程中执行，以测量任务本身的开销。
+    public final boolean post(Runnable r) {
+        r.run();
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable r, long d) {
+        return true;
+    }
+
+    public final boolean postAtTime(Runnable r, Object token, long uptimeMillis) {
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable r) {}
+
+    public final void removeCallbacksAndMessages(Object t) {}
+
+    public final Looper getLooper() {
+        return null;
+    }
+}
@@ -0,0 +1,19 @@
+package android.os;
+
+public class HandlerThread extends Thread {
+    public HandlerThread(String n) {}
+
+    public HandlerThread(String n, int p) {}
+
+    public Looper getLooper() {
+        return null;
+    }
+
+    public boolean quitSafely() {
+        return true;
+    }
+
+    public int getThreadId() {
+        return 0;
+    }
+}
@@ -0,0 +1,19 @@
+package android.os;
+
+public class Looper {
+    public static Looper getMainLooper() {
+        return null;
+    }
+
+    public static Looper myLooper() {
+        return null;
+    }
+
+    public Thread getThread() {
+        return null;
+    }
+
+    public boolean quitSafely() {
+        return true;
+    }
+}
@@ -0,0 +1,6 @@
+package android.os;
+
+public class Message {
+    public int what;
+    public Object obj;
+}
@@ -0,0 +1,13 @@
+package android.os;
+
+public final class ParcelUuid {
+    public ParcelUuid(java.util.UUID u) {}
+
+    public static ParcelUuid fromString(String s) {
+        return null;
+    }
+
+    public java.util.UUID getUuid() {
+        return null;
+    }
+}
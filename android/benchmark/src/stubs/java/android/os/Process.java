@@ -0,0 +1,5 @@
+package android.os;
+
+public class Process {
+    public static final int THREAD_PRIORITY_BACKGROUND = 10, THREAD_PRIORITY_DEFAULT = 0, THREAD_PRIORITY_MORE_FAVORABLE = -1;
+}
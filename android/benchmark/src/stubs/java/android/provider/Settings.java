@@ -0,0 +1,16 @@
+package android.provider;
+
+public final class Settings {
+    public static class SettingNotFoundException extends Exception {}
+
+    public static final class Secure {
+        public static final String LOCATION_MODE = "a", LOCATION_PROVIDERS_ALLOWED = "b";
+        public static final int LOCATION_MODE_OFF = 0;
+        public static int getInt(android.content.ContentResolver r, String n) throws SettingNotFoundException {
+            return 0;
+        }
+        public static String getString(android.content.ContentResolver r, String n) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,3 @@
+package android.service.media;
+
+public class MediaBrowserService {}
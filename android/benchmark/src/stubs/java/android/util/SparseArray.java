@@ -0,0 +1,15 @@
+package android.util;
+
+public class SparseArray<E> {
+    public int size() {
+        return 0;
+    }
+
+    public int keyAt(int i) {
+        return 0;
+    }
+
+    public E valueAt(int i) {
+        return null;
+    }
+}
@@ -0,0 +1,9 @@
+package androidx.core.app;
+
+public class ActivityCompat {
+    public static void requestPermissions(android.app.Activity a, String[] p, int c) {}
+
+    public static boolean shouldShowRequestPermissionRationale(android.app.Activity a, String p) {
+        return false;
+    }
+}
@@ -0,0 +1,7 @@
+package androidx.core.content;
+
+public class ContextCompat {
+    public static int checkSelfPermission(android.content.Context c, String p) {
+        return 0;
+    }
+}
@@ -0,0 +1,14 @@
+package io.flutter.embedding.engine.plugins;
+
+public interface FlutterPlugin {
+    void onAttachedToEngine(FlutterPluginBinding b);
+    void onDetachedFromEngine(FlutterPluginBinding b);
+    class FlutterPluginBinding {
+        public android.content.Context getApplicationContext() {
+            return null;
+        }
+        public io.flutter.plugin.common.BinaryMessenger getBinaryMessenger() {
+            return null;
+        }
+    }
+}
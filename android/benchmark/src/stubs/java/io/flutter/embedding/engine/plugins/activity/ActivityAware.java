@@ -0,0 +1,8 @@
+package io.flutter.embedding.engine.plugins.activity;
+
+public interface ActivityAware {
+    void onAttachedToActivity(ActivityPluginBinding b);
+    void onDetachedFromActivityForConfigChanges();
+    void onReattachedToActivityForConfigChanges(ActivityPluginBinding b);
+    void onDetachedFromActivity();
+}
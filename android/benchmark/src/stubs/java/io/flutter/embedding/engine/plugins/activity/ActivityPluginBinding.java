@@ -0,0 +1,7 @@
+package io.flutter.embedding.engine.plugins.activity;
+
+public interface ActivityPluginBinding {
+    android.app.Activity getActivity();
+    void addRequestPermissionsResultListener(io.flutter.plugin.common.PluginRegistry.RequestPermissionsResultListener l);
+    void removeRequestPermissionsResultListener(io.flutter.plugin.common.PluginRegistry.RequestPermissionsResultListener l);
+}
@@ -0,0 +1,24 @@
+package io.flutter.plugin.common;
+
+public final class BasicMessageChannel<T> {
+    // 最近一次发送的消息，避免基准测试中的消息组装被优化掉。
+    public volatile Object last;
+
+    public BasicMessageChannel(BinaryMessenger m, String n, MessageCodec<T> c) {}
+
+    public void send(T m) {
+        this.last = m;
+    }
+
+    public void send(T m, Reply<T> r) {}
+
+    public void setMessageHandler(MessageHandler<T> h) {}
+
+    public interface MessageHandler<T> {
+        void onMessage(T message, Reply<T> reply);
+    }
+
+    public interface Reply<T> {
+        void reply(T r);
+    }
+}
@@ -0,0 +1,12 @@
+package io.flutter.plugin.common;
+
+public final class BinaryCodec implements MessageCodec<java.nio.ByteBuffer> {
+    public static final BinaryCodec INSTANCE = new BinaryCodec();
+    public java.nio.ByteBuffer encodeMessage(java.nio.ByteBuffer m) {
+        return m;
+    }
+
+    public java.nio.ByteBuffer decodeMessage(java.nio.ByteBuffer m) {
+        return m;
+    }
+}
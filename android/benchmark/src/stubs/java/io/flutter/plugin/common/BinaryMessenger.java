@@ -0,0 +1,5 @@
+package io.flutter.plugin.common;
+
+public interface BinaryMessenger {
+    void send(String c, java.nio.ByteBuffer m);
+}
@@ -0,0 +1,6 @@
+package io.flutter.plugin.common;
+
+public interface MessageCodec<T> {
+    java.nio.ByteBuffer encodeMessage(T m);
+    T decodeMessage(java.nio.ByteBuffer m);
+}
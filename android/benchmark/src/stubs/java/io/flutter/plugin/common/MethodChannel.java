@@ -0,0 +1,3 @@
+package io.flutter.plugin.common;
+
+public final class MethodChannel {}
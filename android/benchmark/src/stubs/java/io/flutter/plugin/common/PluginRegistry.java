@@ -0,0 +1,14 @@
+package io.flutter.plugin.common;
+
+public interface PluginRegistry {
+    interface RequestPermissionsResultListener {
+        boolean onRequestPermissionsResult(int c, String[] p, int[] g);
+    }
+
+    interface Registrar {
+        android.app.Activity activity();
+        android.content.Context context();
+        BinaryMessenger messenger();
+        Registrar addRequestPermissionsResultListener(RequestPermissionsResultListener l);
+    }
+}
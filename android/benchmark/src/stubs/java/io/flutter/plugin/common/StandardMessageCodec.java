@@ -0,0 +1,12 @@
+package io.flutter.plugin.common;
+
+public class StandardMessageCodec implements MessageCodec<Object> {
+    public static final StandardMessageCodec INSTANCE = new StandardMessageCodec();
+    public java.nio.ByteBuffer encodeMessage(Object m) {
+        return null;
+    }
+
+    public Object decodeMessage(java.nio.ByteBuffer m) {
+        return null;
+    }
+}
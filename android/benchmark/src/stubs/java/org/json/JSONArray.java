@@ -0,0 +1,47 @@
+package org.json;
+
+public class JSONArray {
+    public JSONArray() {}
+
+    public JSONArray(String s) throws JSONException {}
+
+    public JSONArray put(Object v) {
+        return this;
+    }
+
+    public JSONArray put(int v) {
+        return this;
+    }
+
+    public JSONArray put(long v) {
+        return this;
+    }
+
+    public int length() {
+        return 0;
+    }
+
+    public JSONObject getJSONObject(int i) throws JSONException {
+        return null;
+    }
+
+    public JSONObject optJSONObject(int i) {
+        return null;
+    }
+
+    public String getString(int i) throws JSONException {
+        return null;
+    }
+
+    public String optString(int i) {
+        return null;
+    }
+
+    public int optInt(int i) {
+        return 0;
+    }
+
+    public long optLong(int i) {
+        return 0;
+    }
+}
@@ -18,7 +18,7 @@ final class BasicMessageChannelReply implements IReply {
     }
 
     private void _doReply(final Object data) {
-        PlatformHelper.me().getActivity().runOnUiThread(new Runnable() {
+        MyHandler.me().runOnMain(new Runnable() {
             @Override
             public void run() {
                 reply.reply(data);
@@ -27,4 +27,34 @@ final class BluetoothConstants {
      */
     public static final UUID descCharacteristicServerConfig = UUID.fromString("00002903-0000-1000-8000-00805f9b34fb");
 
+    /**
+     * GATT Characteristic: Service Changed
+     */
+    public static final UUID charServiceChanged = UUID.fromString("00002a05-0000-1000-8000-00805f9b34fb");
+
+    /**
+     * 默认ATT MTU
+     */
+    public static final int DEF_ATT_MTU = 23;
+
+    /**
+     * 最大ATT MTU
+     */
+    public static final int MAX_ATT_MTU = 517;
+
+    /**
+     * ATT写入请求头长度(opcode + handle)
+     */
+    public static final int ATT_WRITE_HEADER_SIZE = 3;
+
+    /**
+     * ATT准备写入请求头长度(opcode + handle + offset)
+     */
+    public static final int ATT_PREPARE_WRITE_HEADER_SIZE = 5;
+
+    /**
+     * 特征值最大长度，协议栈读写超过MTU的值时自动使用 Read Blob / Prepare Write 分段，但不超过此长度。
+     */
+    public static final int MAX_ATTRIBUTE_LENGTH = 512;
+
 }
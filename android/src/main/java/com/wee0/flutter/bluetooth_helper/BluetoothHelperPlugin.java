@@ -77,6 +77,7 @@ public class BluetoothHelperPlugin implements FlutterPlugin, ActivityAware, Plug
         }
 
         MyMethodRouter.me().init(_messenger);
+        MyBinaryChannel.me().init(_messenger);
 
         BluetoothManager _bluetoothManager = (BluetoothManager) _application.getSystemService(Context.BLUETOOTH_SERVICE);
         MyBluetoothManager.me().init(_bluetoothManager);
@@ -88,6 +89,7 @@ public class BluetoothHelperPlugin implements FlutterPlugin, ActivityAware, Plug
     private synchronized void _destroy() {
         MyLog.debug("destroy begin...");
         MyMethodRouter.me().destroy();
+        MyBinaryChannel.me().destroy();
         MyBluetoothManager.me().destroy();
         PlatformHelper.me().destroy();
 
@@ -103,6 +105,25 @@ public class BluetoothHelperPlugin implements FlutterPlugin, ActivityAware, Plug
         MyLog.debug("destroy end.");
     }
 
+    /**
+     * 注册方法处理器，供其它模块扩展Flutter端可调用的方法，相同名称的处理器(包括内置方法)会被替换。
+     *
+     * @param method  方法名称
+     * @param handler 方法处理器
+     */
+    public static void registerMethodHandler(String method, IMethodHandler handler) {
+        MyMethodRouter.me().register(method, handler);
+    }
+
+    /**
+     * 移除方法处理器
+     *
+     * @param method 方法名称
+     */
+    public static void unregisterMethodHandler(String method) {
+        MyMethodRouter.me().unregister(method);
+    }
+
     public static void registerWith(Registrar registrar) {
         MyLog.debug("registerWith: {}", registrar);
         _registrar = registrar;
@@ -0,0 +1,16 @@
+package com.wee0.flutter.bluetooth_helper;
+
+/**
+ * 方法处理器，通过 {@link BluetoothHelperPlugin#registerMethodHandler(String, IMethodHandler)} 注册到方法路由。
+ */
+public interface IMethodHandler {
+
+    /**
+     * 处理方法调用，抛出的 {@link MyBluetoothException} 与运行时异常由方法路由转换为出错回复。
+     *
+     * @param args  调用参数
+     * @param reply 回复对象
+     */
+    void handle(MyMethodArgs args, IReply reply);
+
+}
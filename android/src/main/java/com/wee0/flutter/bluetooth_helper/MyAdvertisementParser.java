@@ -0,0 +1,151 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 广播数据解析，一次遍历原始广播数据中的各个AD结构：[长度 u8][类型 u8][数据...]。
+ * <p>
+ * 直接从原始字节构建结果，不经过系统 ScanRecord 的 ParcelUuid、SparseArray 等中间对象。
+ * UUID统一转换为与特征标识相同的128位小写字符串格式。
+ */
+final class MyAdvertisementParser {
+
+    static final int TYPE_FLAGS = 0x01;
+    static final int TYPE_UUID16_INCOMPLETE = 0x02;
+    static final int TYPE_UUID16 = 0x03;
+    static final int TYPE_UUID32_INCOMPLETE = 0x04;
+    static final int TYPE_UUID32 = 0x05;
+    static final int TYPE_UUID128_INCOMPLETE = 0x06;
+    static final int TYPE_UUID128 = 0x07;
+    static final int TYPE_NAME_SHORT = 0x08;
+    static final int TYPE_NAME = 0x09;
+    static final int TYPE_TX_POWER = 0x0A;
+    static final int TYPE_SERVICE_DATA_UUID16 = 0x16;
+    static final int TYPE_SERVICE_DATA_UUID32 = 0x20;
+    static final int TYPE_SERVICE_DATA_UUID128 = 0x21;
+    static final int TYPE_MANUFACTURER_DATA = 0xFF;
+
+    private static final Charset _UTF8 = Charset.forName("UTF-8");
+    private static final char[] _HEX = "0123456789abcdef".toCharArray();
+    // 蓝牙基础UUID的后缀：-0000-1000-8000-00805f9b34fb
+    private static final char[] _BASE_UUID_SUFFIX = "-0000-1000-8000-00805f9b34fb".toCharArray();
+
+    private MyAdvertisementParser() {
+    }
+
+    /**
+     * 解析广播数据
+     *
+     * @param data 原始广播数据
+     * @return 解析结果：flags、txPower、name、serviceUuids、serviceData(UUID -> 数据)、
+     * manufacturerData(厂商标识 -> 数据)，不存在的字段不返回。数据为空时返回null。
+     */
+    static Map<String, Object> parse(byte[] data) {
+        if (null == data) return null;
+        Map<String, Object> _result = new HashMap<>(8);
+        List<String> _serviceUuids = null;
+        Map<String, byte[]> _serviceData = null;
+        Map<Integer, byte[]> _manufacturerData = null;
+        int _offset = 0;
+        while (_offset < data.length) {
+            int _length = data[_offset] & 0xFF;
+            // 长度为0表示有效数据结束，之后为填充数据。
+            if (0 == _length || _offset + 1 + _length > data.length) break;
+            int _type = data[_offset + 1] & 0xFF;
+            int _start = _offset + 2;
+            int _end = _offset + 1 + _length;
+            switch (_type) {
+                case TYPE_FLAGS:
+                    if (_start < _end) _result.put("flags", data[_start] & 0xFF);
+                    break;
+                case TYPE_UUID16_INCOMPLETE:
+                case TYPE_UUID16:
+                case TYPE_UUID32_INCOMPLETE:
+                case TYPE_UUID32:
+                case TYPE_UUID128_INCOMPLETE:
+                case TYPE_UUID128:
+                    int _size = _type <= TYPE_UUID16 ? 2 : (_type <= TYPE_UUID32 ? 4 : 16);
+                    if (null == _serviceUuids) _serviceUuids = new ArrayList<>(4);
+                    for (int _i = _start; _i + _size <= _end; _i += _size) {
+                        _serviceUuids.add(uuidToString(data, _i, _size));
+                    }
+                    break;
+                case TYPE_NAME_SHORT:
+                case TYPE_NAME:
+                    // 完整名称优先
+                    if (TYPE_NAME == _type || !_result.containsKey("name")) {
+                        _result.put("name", new String(data, _start, _end - _start, _UTF8));
+                    }
+                    break;
+                case TYPE_TX_POWER:
+                    if (_start < _end) _result.put("txPower", (int) data[_start]);
+                    break;
+                case TYPE_SERVICE_DATA_UUID16:
+                case TYPE_SERVICE_DATA_UUID32:
+                case TYPE_SERVICE_DATA_UUID128:
+                    int _uuidSize = TYPE_SERVICE_DATA_UUID16 == _type ? 2 : (TYPE_SERVICE_DATA_UUID32 == _type ? 4 : 16);
+                    if (_start + _uuidSize > _end) break;
+                    if (null == _serviceData) _serviceData = new HashMap<>(4);
+                    _serviceData.put(uuidToString(data, _start, _uuidSize), Arrays.copyOfRange(data, _start + _uuidSize, _end));
+                    break;
+                case TYPE_MANUFACTURER_DATA:
+                    if (_start + 2 > _end) break;
+                    if (null == _manufacturerData) _manufacturerData = new HashMap<>(2);
+                    // 厂商标识为小端序
+                    int _manufacturerId = (data[_start] & 0xFF) | ((data[_start + 1] & 0xFF) << 8);
+                    _manufacturerData.put(_manufacturerId, Arrays.copyOfRange(data, _start + 2, _end));
+                    break;
+                default:
+                    break;
+            }
+            _offset = _end;
+        }
+        if (null != _serviceUuids) _result.put("serviceUuids", _serviceUuids);
+        if (null != _serviceData) _result.put("serviceData", _serviceData);
+        if (null != _manufacturerData) _result.put("manufacturerData", _manufacturerData);
+        return _result;
+    }
+
+    /**
+     * 将广播数据中的UUID(小端序)转换为128位小写字符串，16位与32位UUID基于蓝牙基础UUID扩展。
+     *
+     * @param data   原始数据
+     * @param offset 起始位置
+     * @param size   UUID字节数：2、4或16。
+     * @return UUID字符串
+     */
+    static String uuidToString(byte[] data, int offset, int size) {
+        char[] _chars = new char[36];
+        if (16 == size) {
+            int _position = 0;
+            // 小端序，从最后一个字节开始输出。
+            for (int _i = 15; _i >= 0; _i--) {
+                if (11 == _i || 9 == _i || 7 == _i || 5 == _i) _chars[_position++] = '-';
+                int _b = data[offset + _i] & 0xFF;
+                _chars[_position++] = _HEX[_b >>> 4];
+                _chars[_position++] = _HEX[_b & 0x0F];
+            }
+            return new String(_chars);
+        }
+        int _position = 0;
+        if (2 == size) {
+            _chars[_position++] = '0';
+            _chars[_position++] = '0';
+            _chars[_position++] = '0';
+            _chars[_position++] = '0';
+        }
+        for (int _i = size - 1; _i >= 0; _i--) {
+            int _b = data[offset + _i] & 0xFF;
+            _chars[_position++] = _HEX[_b >>> 4];
+            _chars[_position++] = _HEX[_b & 0x0F];
+        }
+        System.arraycopy(_BASE_UUID_SUFFIX, 0, _chars, _position, _BASE_UUID_SUFFIX.length);
+        return new String(_chars);
+    }
+
+}
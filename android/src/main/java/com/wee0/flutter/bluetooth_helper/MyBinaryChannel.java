@@ -0,0 +1,283 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import java.io.ObjectStreamException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+
+/**
+ * 高频消息的二进制通道，使用紧凑的二进制帧代替键值对消息。
+ * <p>
+ * 帧格式(小端序)：[操作码 u8][句柄 u16][数据...]。
+ * 设备标识与特征标识组合第一次出现时先发送注册帧分配句柄，之后的消息只携带句柄。
+ * 设备断开后释放其句柄供之后的注册复用，句柄用尽时发送方法返回false，由调用方改用键值对消息发送。
+ */
+final class MyBinaryChannel {
+
+    /**
+     * 通道名称
+     */
+    static final String CHANNEL_NAME = "bluetooth_helper/binary";
+
+    /**
+     * 重置句柄表：[op]
+     */
+    static final byte OP_RESET = 0;
+
+    /**
+     * 注册句柄：[op][handle u16][deviceId长度 u8][deviceId][characteristicId长度 u8][characteristicId]
+     */
+    static final byte OP_REGISTER = 1;
+
+    /**
+     * 特征通知数据：[op][handle u16][data]
+     */
+    static final byte OP_NOTIFY = 2;
+
+    /**
+     * 特征读取结果：[op][handle u16][data]
+     */
+    static final byte OP_READ_RESULT = 3;
+
+    /**
+     * 特征写入结果：[op][handle u16][isOk u8]
+     */
+    static final byte OP_WRITE_RESULT = 4;
+
+    /**
+     * 合并发送的通知数据：[op][handle u16][帧数 u16]{[time i64][长度 u16][data]}...
+     */
+    static final byte OP_NOTIFY_BATCH = 5;
+
+    // 帧头长度：操作码 + 句柄
+    private static final int _HEADER_SIZE = 3;
+    private static final Charset _UTF8 = Charset.forName("UTF-8");
+    // 句柄上限
+    private static final int _MAX_HANDLE = 0xFFFF;
+
+    private BasicMessageChannel<ByteBuffer> _channel;
+    private volatile boolean _enabled = false;
+    // 设备标识 -> 特征标识 -> 句柄
+    private final Map<String, Map<String, Integer>> _handles = new HashMap<>(8, 1.0f);
+    private int _nextHandle = 0;
+    // 已释放可复用的句柄
+    private final ArrayDeque<Integer> _freeHandles = new ArrayDeque<>(16);
+
+    /**
+     * @return 是否已开启二进制通道
+     */
+    boolean isEnabled() {
+        return this._enabled;
+    }
+
+    /**
+     * 开启或关闭二进制通道，开启时重置句柄表。
+     *
+     * @param enable 是否开启
+     */
+    void setEnabled(boolean enable) {
+        if (null == this._channel) throw new IllegalStateException("binary channel not init!");
+        synchronized (this) {
+            _clear();
+            if (enable) _send(ByteBuffer.allocateDirect(1).put(OP_RESET));
+        }
+        this._enabled = enable;
+    }
+
+    /**
+     * 释放设备的所有句柄，在设备断开后调用。之后复用句柄时会先发送新的注册帧，Dart端按注册帧覆盖原来的映射。
+     *
+     * @param deviceId 设备标识
+     */
+    synchronized void releaseDevice(String deviceId) {
+        Map<String, Integer> _deviceHandles = this._handles.remove(deviceId);
+        if (null != _deviceHandles) this._freeHandles.addAll(_deviceHandles.values());
+    }
+
+    /**
+     * 发送特征通知数据
+     *
+     * @return 是否已发送，句柄用尽时返回false。
+     */
+    boolean sendNotifyData(String deviceId, String characteristicId, byte[] data) {
+        return _sendData(OP_NOTIFY, deviceId, characteristicId, data);
+    }
+
+    /**
+     * 发送特征读取结果
+     *
+     * @return 是否已发送，句柄用尽时返回false。
+     */
+    boolean sendReadResult(String deviceId, String characteristicId, byte[] data) {
+        return _sendData(OP_READ_RESULT, deviceId, characteristicId, data);
+    }
+
+    /**
+     * 发送特征写入结果
+     *
+     * @return 是否已发送，句柄用尽时返回false。
+     */
+    boolean sendWriteResult(String deviceId, String characteristicId, boolean isOk) {
+        synchronized (this) {
+            int _handle = _handle(deviceId, characteristicId);
+            if (0 > _handle) return false;
+            ByteBuffer _frame = _frame(OP_WRITE_RESULT, _handle, 1);
+            _frame.put((byte) (isOk ? 1 : 0));
+            _send(_frame);
+            return true;
+        }
+    }
+
+    /**
+     * 发送合并的通知数据
+     *
+     * @return 是否已发送，句柄用尽时返回false。
+     */
+    boolean sendNotifyBatch(String deviceId, String characteristicId, long[] times, byte[][] frames) {
+        int _length = 2;
+        for (byte[] _data : frames) {
+            _length += 10 + (null == _data ? 0 : _data.length);
+        }
+        synchronized (this) {
+            int _handle = _handle(deviceId, characteristicId);
+            if (0 > _handle) return false;
+            ByteBuffer _frame = _frame(OP_NOTIFY_BATCH, _handle, _length);
+            _frame.putShort((short) frames.length);
+            for (int _i = 0; _i < frames.length; _i++) {
+                byte[] _data = frames[_i];
+                _frame.putLong(times[_i]);
+                if (null == _data) {
+                    _frame.putShort((short) 0);
+                } else {
+                    _frame.putShort((short) _data.length);
+                    _frame.put(_data);
+                }
+            }
+            _send(_frame);
+            return true;
+        }
+    }
+
+    private boolean _sendData(byte op, String deviceId, String characteristicId, byte[] data) {
+        synchronized (this) {
+            int _handle = _handle(deviceId, characteristicId);
+            if (0 > _handle) return false;
+            ByteBuffer _frame = _frame(op, _handle, null == data ? 0 : data.length);
+            if (null != data) _frame.put(data);
+            _send(_frame);
+            return true;
+        }
+    }
+
+    // 获取句柄，第一次出现时优先复用已释放的句柄并发送注册帧，句柄用尽时返回-1。
+    private int _handle(String deviceId, String characteristicId) {
+        Map<String, Integer> _deviceHandles = this._handles.get(deviceId);
+        Integer _handle = null == _deviceHandles ? null : _deviceHandles.get(characteristicId);
+        if (null != _handle) return _handle;
+
+        if (!this._freeHandles.isEmpty()) {
+            _handle = this._freeHandles.poll();
+        } else if (_MAX_HANDLE >= this._nextHandle) {
+            _handle = this._nextHandle++;
+        } else {
+            MyLog.debug("binary handles exhausted, send {} of {} by message channel.", characteristicId, deviceId);
+            return -1;
+        }
+        if (null == _deviceHandles) {
+            _deviceHandles = new HashMap<>(8, 1.0f);
+            this._handles.put(deviceId, _deviceHandles);
+        }
+        _deviceHandles.put(characteristicId, _handle);
+        byte[] _deviceIdBytes = deviceId.getBytes(_UTF8);
+        byte[] _characteristicIdBytes = characteristicId.getBytes(_UTF8);
+        ByteBuffer _frame = _frame(OP_REGISTER, _handle, 2 + _deviceIdBytes.length + _characteristicIdBytes.length);
+        _frame.put((byte) _deviceIdBytes.length).put(_deviceIdBytes);
+        _frame.put((byte) _characteristicIdBytes.length).put(_characteristicIdBytes);
+        _send(_frame);
+        return _handle;
+    }
+
+    // 分配帧缓冲区并写入帧头，Flutter要求使用直接缓冲区。
+    private static ByteBuffer _frame(byte op, int handle, int bodyLength) {
+        ByteBuffer _frame = ByteBuffer.allocateDirect(_HEADER_SIZE + bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+        _frame.put(op).putShort((short) handle);
+        return _frame;
+    }
+
+    // 发送帧数据，Flutter以position作为消息长度，因此写入完成后不能重置position。帧在工作线程中组装，仅发送在平台线程中执行。
+    private void _send(final ByteBuffer frame) {
+        MyHandler.me().runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                BasicMessageChannel<ByteBuffer> _channel = MyBinaryChannel.this._channel;
+                if (null != _channel) _channel.send(frame);
+            }
+        });
+    }
+
+    /************************************************************
+     ************* 单例对象。
+     ************************************************************/
+    private MyBinaryChannel() {
+        if (null != MyBinaryChannelHolder._INSTANCE) {
+            // 防止使用反射API创建对象实例。
+            throw new IllegalStateException("that's not allowed!");
+        }
+    }
+
+    // 当前对象唯一实例持有者。
+    private static final class MyBinaryChannelHolder {
+        private static final MyBinaryChannel _INSTANCE = new MyBinaryChannel();
+    }
+
+    // 防止使用反序列化操作获取多个对象实例。
+    private Object readResolve() throws ObjectStreamException {
+        return MyBinaryChannelHolder._INSTANCE;
+    }
+
+    /**
+     * 获取当前对象唯一实例。
+     *
+     * @return 当前对象唯一实例
+     */
+    public static MyBinaryChannel me() {
+        return MyBinaryChannelHolder._INSTANCE;
+    }
+
+    /**
+     * 初始化
+     *
+     * @param messenger 消息信使对象
+     */
+    void init(BinaryMessenger messenger) {
+        if (null != this._channel) {
+            MyLog.debug("binary channel already init.");
+            return;
+        }
+        this._channel = new BasicMessageChannel<>(messenger, CHANNEL_NAME, BinaryCodec.INSTANCE);
+    }
+
+    /**
+     * 资源释放
+     */
+    void destroy() {
+        this._enabled = false;
+        this._channel = null;
+        synchronized (this) {
+            _clear();
+        }
+    }
+
+    private void _clear() {
+        this._handles.clear();
+        this._freeHandles.clear();
+        this._nextHandle = 0;
+    }
+}
@@ -7,27 +7,81 @@ import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothProfile;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 蓝牙设备
  */
 final class MyBluetoothDevice {
 
-    BluetoothGatt gatt1;
-    boolean connected = false;
-    // 特征对象集合
-    Map<String, BluetoothGattCharacteristic> characteristicMap = new HashMap<>(16, 1.0f);
+    // 默认空闲多久后恢复连接优先级，单位：毫秒。
+    static final long DEF_PRIORITY_IDLE_TIMEOUT = 2000L;
 
-    // 当前回复对象
-    IReply currentReply = null;
+    // 连接状态在工作线程中修改，其他线程可能读取。
+    volatile BluetoothGatt gatt1;
+    volatile boolean connected = false;
+    // 特征索引
+    final MyCharacteristicIndex characteristicIndex = new MyCharacteristicIndex();
+
+    // 当前ATT MTU
+    volatile int mtu = BluetoothConstants.DEF_ATT_MTU;
+
+    // 当前连接优先级
+    volatile int connectionPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+    // 是否在数据传输时自动提升连接优先级，空闲时恢复。
+    private volatile boolean _autoPriority = false;
+    // 空闲多久后恢复连接优先级，单位：毫秒。
+    private long _priorityIdleTimeout = DEF_PRIORITY_IDLE_TIMEOUT;
+    // 空闲时使用的连接优先级
+    private int _idlePriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+
+    // 最近一次发现服务时指定的固件版本，用于服务变化后重新缓存。
+    private String _firmwareRevision = null;
+
+    // 通知合并发送，未开启时为null。
+    private volatile MyNotificationBatcher _notificationBatcher = null;
+    // 特征标识 -> 通知分段重组，仅保存开启了分段重组的特征。
+    private final Map<String, MyNotificationFramer> _framers = new ConcurrentHashMap<>(4);
+    // 正在执行的文件传输，用于将确认特征的通知交给传输操作处理。
+    volatile MyFileTransfer _transfer = null;
+
+    // 自动重连，未开启时为null。
+    private volatile MyReconnector _reconnector = null;
+    // 会话状态，重新连接后恢复：已开启通知的特征、协商的MTU与手动设置的连接优先级。
+    private final Set<String> _notifying = Collections.synchronizedSet(new LinkedHashSet<String>(8));
+    private int _requestedMtu = 0;
+    private int _requestedPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+
+    // 最近一次使用的时间(开机时长，单位：毫秒)，用于连接池淘汰最久未使用的设备。
+    volatile long lastActiveTime = SystemClock.elapsedRealtime();
+
+    // GATT操作队列
+    final MyGattOperationQueue operationQueue;
+    // 事件日志中的设备地址
+    private final long _journalAddress;
+
+    // 空闲时恢复连接优先级
+    private final Runnable _relaxPriorityTask = new Runnable() {
+        @Override
+        public void run() {
+            if (!_autoPriority || !connected || 0 != operationQueue.currentType()) return;
+            MyLog.debug("device {} idle, relax connection priority to {}.", device, _idlePriority);
+            _setConnectionPriority(_idlePriority);
+        }
+    };
 
     final BluetoothDevice device;
     final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
@@ -35,22 +89,38 @@ final class MyBluetoothDevice {
         @Override
         public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
             MyLog.debug("onConnectionStateChange status: {}, newState: {}, gatt: {}, gatt1: {}", status, newState, gatt, gatt1);
-            MyHandler.me().removeCallback(MyHandler.ID_CONNECT_TIMEOUT);
+            MyEventJournal.me().record(MyEventJournal.TYPE_CONNECTION_STATE, _journalAddress, status, newState, 0);
+            if (gatt != gatt1) {
+                // 已被替换或主动断开的连接的迟到回调，只释放资源，不影响当前连接的操作队列、状态与自动重连。
+                MyLog.debug("device {} ignore state {} of stale gatt: {}", device, newState, gatt);
+                gatt.close();
+                // 主动断开后没有新的连接时，仍然通知断开状态。
+                if (null == gatt1 && BluetoothProfile.STATE_DISCONNECTED == newState)
+                    MyMethodRouter.me().callOnDeviceStateChange(device.getAddress(), newState);
+                return;
+            }
+            MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_CONNECT, status);
+            MyReconnector _reconnector = MyBluetoothDevice.this._reconnector;
             if (BluetoothProfile.STATE_CONNECTED == newState) {
                 connected = true;
-                if (null != currentReply) {
-                    currentReply.success(true);
-                    currentReply = null;
-                }
+                operationQueue.complete(MyGattOperation.TYPE_CONNECT, true);
+                if (null != _reconnector && _reconnector.onConnected()) _restoreSession(_reconnector);
             } else if (BluetoothProfile.STATE_DISCONNECTED == newState) {
                 connected = false;
-                if (null != currentReply) {
-                    currentReply.success(false);
-                    currentReply = null;
-                }
+                mtu = BluetoothConstants.DEF_ATT_MTU;
+                connectionPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+                MyHandler.me().remove(_relaxPriorityTask);
+                _resetFramers();
+                _flushNotifications();
+                MyBinaryChannel.me().releaseDevice(device.getAddress());
+                operationQueue.complete(MyGattOperation.TYPE_CONNECT, false);
+                // 连接已断开，剩余的操作无法再执行。
+                operationQueue.clear("device disconnected.");
 //                // 释放资源
 //                disconnect();
                 gatt.close();
+                gatt1 = null;
+                if (null != _reconnector) _reconnector.onDisconnected();
             }
             MyMethodRouter.me().callOnDeviceStateChange(device.getAddress(), newState);
         }
@@ -58,59 +128,178 @@ final class MyBluetoothDevice {
         @Override
         public void onServicesDiscovered(BluetoothGatt gatt, int status) {
             MyLog.debug("onServicesDiscovered status: {}, gatt: {}, gatt1: {}", status, gatt, gatt1);
-            if (BluetoothGatt.GATT_SUCCESS == status) {
-                List<BluetoothGattService> _gattServices = gatt.getServices();
-                MyLog.debug("_gattServices: {}", _gattServices);
-                for (BluetoothGattService _gattService : _gattServices) {
-                    MyLog.debug("service: {}", _gattService);
-                    List<BluetoothGattCharacteristic> _characteristics = _gattService.getCharacteristics();
-                    for (BluetoothGattCharacteristic _characteristic : _characteristics) {
-                        MyLog.debug("characteristic: {}", _characteristic);
-                        String _uuid = _characteristic.getUuid().toString();
-                        characteristicMap.put(_uuid, _characteristic);
-                    }
-                }
-                MyHandler.me().removeCallback(MyHandler.ID_DISCOVER_SERVICES_TIMEOUT);
-                List<String> _resultData = new ArrayList<>(characteristicMap.keySet());
-                if (null != currentReply) {
-                    currentReply.success(_resultData);
-                    currentReply = null;
-                } else {
-                    MyMethodRouter.me().callOnServicesDiscovered(device.getAddress(), _resultData);
-                }
+            if (BluetoothGatt.GATT_SUCCESS != status) {
+                MyEventJournal.me().record(MyEventJournal.TYPE_SERVICES_DISCOVERED, _journalAddress, status, 0, 0);
+                MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_DISCOVER_SERVICES, status);
+                operationQueue.fail(MyGattOperation.TYPE_DISCOVER_SERVICES, "discover services failed, status: " + status);
+                return;
+            }
+            List<BluetoothGattService> _gattServices = gatt.getServices();
+            MyLog.debug("_gattServices: {}", _gattServices);
+            characteristicIndex.build(_gattServices);
+            MyEventJournal.me().record(MyEventJournal.TYPE_SERVICES_DISCOVERED, _journalAddress, status, characteristicIndex.size(), 0);
+            MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_DISCOVER_SERVICES, status);
+            _subscribeServiceChanged();
+            if (MyGattOperation.TYPE_DISCOVER_SERVICES == operationQueue.currentType()) {
+                operationQueue.complete(MyGattOperation.TYPE_DISCOVER_SERVICES, gatt);
+            } else {
+                MyGattCache.me().put(device.getAddress(), _firmwareRevision, _gattServices);
+                MyMethodRouter.me().callOnServicesDiscovered(device.getAddress(), MyGattCache.characteristicIds(_gattServices));
             }
-
         }
 
         @Override
         public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            MyLog.debug("onCharacteristicChanged characteristic: {}, gatt: {}, gatt1: {}", characteristic, gatt, gatt1);
-            MyMethodRouter.me().callOnCharacteristicNotifyData(device.getAddress(), characteristic.getUuid().toString(), characteristic.getValue());
+            _onCharacteristicChanged(characteristic, characteristic.getValue());
         }
 
         @Override
         public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-            MyLog.debug("onCharacteristicRead status: {}, characteristic: {}, gatt: {}, gatt1: {}", status, characteristic, gatt, gatt1);
+            _onCharacteristicRead(characteristic, characteristic.getValue(), status);
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            _onCharacteristicWrite(characteristic, characteristic.getValue(), status);
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            MyLog.debug("onDescriptorWrite status: {}, descriptor: {}, gatt: {}, gatt1: {}", status, descriptor, gatt, gatt1);
+            MyEventJournal.me().record(MyEventJournal.TYPE_DESCRIPTOR_WRITE, _journalAddress, 0, status, 0);
+            MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_DESCRIPTOR_WRITE, status);
+            operationQueue.complete(MyGattOperation.TYPE_DESCRIPTOR_WRITE, status);
+        }
+
+        @Override
+        public void onReliableWriteCompleted(BluetoothGatt gatt, int status) {
+            MyLog.debug("onReliableWriteCompleted status: {}, gatt: {}, gatt1: {}", status, gatt, gatt1);
+            MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_RELIABLE_WRITE, status);
+            operationQueue.complete(MyGattOperation.TYPE_RELIABLE_WRITE, status);
+        }
+
+        @Override
+        public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
+            MyLog.debug("onReadRemoteRssi rssi: {}, status: {}, gatt: {}, gatt1: {}", rssi, status, gatt, gatt1);
+            MyEventJournal.me().record(MyEventJournal.TYPE_RSSI, _journalAddress, 0, status, rssi);
+            MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_READ_RSSI, status);
             if (BluetoothGatt.GATT_SUCCESS == status) {
-                MyMethodRouter.me().callOnCharacteristicReadResult(device.getAddress(), characteristic.getUuid().toString(), characteristic.getValue());
+                operationQueue.complete(MyGattOperation.TYPE_READ_RSSI, rssi);
+            } else {
+                operationQueue.fail(MyGattOperation.TYPE_READ_RSSI, "read rssi failed, status: " + status);
             }
         }
 
         @Override
-        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-            MyLog.debug("onCharacteristicWrite status: {}, characteristic: {}, gatt: {}, gatt1: {}", status, characteristic, gatt, gatt1);
-            MyMethodRouter.me().callOnCharacteristicWriteResult(device.getAddress(), characteristic.getUuid().toString(), BluetoothGatt.GATT_SUCCESS == status);
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            MyLog.debug("onMtuChanged mtu: {}, status: {}, gatt: {}, gatt1: {}", mtu, status, gatt, gatt1);
+            MyEventJournal.me().record(MyEventJournal.TYPE_MTU, _journalAddress, 0, status, mtu);
+            MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_REQUEST_MTU, status);
             if (BluetoothGatt.GATT_SUCCESS == status) {
-                MyLog.debug("write ok: {}", characteristic.getValue());
-            } else if (BluetoothGatt.GATT_INVALID_ATTRIBUTE_LENGTH == status) {
-                MyLog.debug("write error size too long.");
+                MyBluetoothDevice.this.mtu = mtu;
             }
+            Map<String, Object> _data = new HashMap<>(4);
+            _data.put("mtu", MyBluetoothDevice.this.mtu);
+            _data.put("payloadSize", MyBluetoothDevice.this.mtu - BluetoothConstants.ATT_WRITE_HEADER_SIZE);
+            operationQueue.complete(MyGattOperation.TYPE_REQUEST_MTU, _data);
         }
+    };
+
+    // API 26以下无法指定回调线程，回调在binder线程中执行；转到工作线程中执行，与操作的执行、超时与重试任务在同一线程，避免并发修改状态。
+    // 特征值在回调时取出，每次通知都会替换特征值数组，不需要复制。
+    private final BluetoothGattCallback _workerGattCallback = new BluetoothGattCallback() {
 
         @Override
-        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
-            MyLog.debug("onDescriptorWrite status: {}, descriptor: {}, gatt: {}, gatt1: {}", status, descriptor, gatt, gatt1);
-            super.onDescriptorWrite(gatt, descriptor, status);
+        public void onConnectionStateChange(final BluetoothGatt gatt, final int status, final int newState) {
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    gattCallback.onConnectionStateChange(gatt, status, newState);
+                }
+            });
+        }
+
+        @Override
+        public void onServicesDiscovered(final BluetoothGatt gatt, final int status) {
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    gattCallback.onServicesDiscovered(gatt, status);
+                }
+            });
+        }
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic) {
+            final byte[] _value = characteristic.getValue();
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    _onCharacteristicChanged(characteristic, _value);
+                }
+            });
+        }
+
+        @Override
+        public void onCharacteristicRead(BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final int status) {
+            final byte[] _value = characteristic.getValue();
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    _onCharacteristicRead(characteristic, _value, status);
+                }
+            });
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final int status) {
+            final byte[] _value = characteristic.getValue();
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    _onCharacteristicWrite(characteristic, _value, status);
+                }
+            });
+        }
+
+        @Override
+        public void onDescriptorWrite(final BluetoothGatt gatt, final BluetoothGattDescriptor descriptor, final int status) {
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    gattCallback.onDescriptorWrite(gatt, descriptor, status);
+                }
+            });
+        }
+
+        @Override
+        public void onReliableWriteCompleted(final BluetoothGatt gatt, final int status) {
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    gattCallback.onReliableWriteCompleted(gatt, status);
+                }
+            });
+        }
+
+        @Override
+        public void onReadRemoteRssi(final BluetoothGatt gatt, final int rssi, final int status) {
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    gattCallback.onReadRemoteRssi(gatt, rssi, status);
+                }
+            });
+        }
+
+        @Override
+        public void onMtuChanged(final BluetoothGatt gatt, final int mtu, final int status) {
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    gattCallback.onMtuChanged(gatt, mtu, status);
+                }
+            });
         }
     };
 
@@ -118,6 +307,37 @@ final class MyBluetoothDevice {
         if (null == bluetoothDevice)
             throw new IllegalArgumentException("bluetoothDevice can not be null!");
         this.device = bluetoothDevice;
+        this.operationQueue = new MyGattOperationQueue(bluetoothDevice.getAddress());
+        this._journalAddress = MyEventJournal.address(bluetoothDevice.getAddress());
+        this.operationQueue.setIdleCallback(new ICallback() {
+            @Override
+            public void execute(Object args) {
+                if (!_autoPriority) return;
+                // 只保留最近一次空闲的恢复任务，避免之前的任务在传输刚恢复时降低优先级。
+                MyHandler.me().remove(_relaxPriorityTask);
+                MyHandler.me().post(_relaxPriorityTask, _priorityIdleTimeout);
+            }
+        });
+    }
+
+    // 添加操作到队列，开启自动连接优先级时，数据传输操作会先提升连接优先级。
+    private void _enqueue(MyGattOperation operation) {
+        this.lastActiveTime = SystemClock.elapsedRealtime();
+        if (this._autoPriority && _isTransfer(operation.type)) {
+            MyHandler.me().remove(this._relaxPriorityTask);
+            _setConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+        }
+        this.operationQueue.enqueue(operation);
+    }
+
+    // 是否为数据传输类操作
+    private static boolean _isTransfer(int type) {
+        return MyGattOperation.TYPE_CHARACTERISTIC_READ == type
+                || MyGattOperation.TYPE_CHARACTERISTIC_WRITE == type
+                || MyGattOperation.TYPE_WRITE_STREAM == type
+                || MyGattOperation.TYPE_CHARACTERISTIC_READ_LONG == type
+                || MyGattOperation.TYPE_RELIABLE_WRITE == type
+                || MyGattOperation.TYPE_FILE_TRANSFER == type;
     }
 
     /**
@@ -129,141 +349,717 @@ final class MyBluetoothDevice {
     void connect(int timeout, IReply reply) {
 //        boolean _isConnected = this._bluetoothManager.getConnectedDevices(BluetoothProfile.GATT).contains(_myDevice.device);
 //        MyLog.debug("isConnected:" + _isConnected);
-        if (this.connected) {
-            MyLog.debug("already connected!");
+        if (!MyBluetoothManager.me().isEnabled())
+            throw new MyBluetoothException(MyBluetoothException.CODE_BLUETOOTH_NOT_ENABLE, "please turn on bluetooth.");
+
+        _enqueue(new MyGattOperation(MyGattOperation.TYPE_CONNECT, reply, timeout * 1000L) {
+            @Override
+            boolean execute() {
+                if (connected) {
+                    MyLog.debug("already connected!");
+                    success(true);
+                    return false;
+                }
+
+                if (!_connectGatt(false)) {
+                    error(MyBluetoothException.CODE_CONNECTION_POOL_FULL, "connection pool is full and all connected devices are busy!");
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            void timeout() {
+                reply(false);
+                disconnect();
+            }
+        });
+    }
+
+    // 接收到特征通知，value为回调时的特征值。
+    private void _onCharacteristicChanged(BluetoothGattCharacteristic characteristic, byte[] value) {
+        MyLog.debug("onCharacteristicChanged characteristic: {}, gatt1: {}", characteristic, gatt1);
+        if (BluetoothConstants.charServiceChanged.equals(characteristic.getUuid())) {
+            _onServiceChanged();
             return;
         }
-
-        if (null != this.currentReply) {
-            MyLog.debug("please wait for another task to complete.");
+        this.lastActiveTime = SystemClock.elapsedRealtime();
+        MyCharacteristicIndex.Entry _entry = characteristicIndex.get(characteristic);
+        MyEventJournal.me().record(MyEventJournal.TYPE_NOTIFY, _journalAddress, null == _entry ? -1 : _entry.handle, 0, _length(value));
+        String _characteristicId = null == _entry ? characteristic.getUuid().toString() : _entry.id;
+        MyFileTransfer _transfer = this._transfer;
+        if (null != _transfer && _characteristicId.equals(_transfer.ackId())) {
+            // 文件传输的确认由操作处理
+            operationQueue.complete(MyGattOperation.TYPE_TRANSFER_ACK, value);
             return;
         }
+        byte[] _value = value;
+        MyNotificationFramer _framer = this._framers.isEmpty() ? null : this._framers.get(_characteristicId);
+        if (null != _framer) {
+            // 开启了分段重组时仅发送完整的帧
+            _value = _framer.add(_value);
+            if (null == _value) return;
+        }
+        MyNotificationBatcher _batcher = this._notificationBatcher;
+        if (null != _batcher) {
+            _batcher.add(null == _entry ? -1 : _entry.handle, _characteristicId, _value);
+            return;
+        }
+        MyMethodRouter.me().callOnCharacteristicNotifyData(device.getAddress(), null == _entry ? -1 : _entry.handle, _characteristicId, _value);
+    }
 
-        if (!MyBluetoothManager.me().isEnabled())
-            throw new MyBluetoothException(MyBluetoothException.CODE_BLUETOOTH_NOT_ENABLE, "please turn on bluetooth.");
+    // 读取特征的结果，value为回调时的特征值。
+    private void _onCharacteristicRead(BluetoothGattCharacteristic characteristic, byte[] value, int status) {
+        MyLog.debug("onCharacteristicRead status: {}, characteristic: {}, gatt1: {}", status, characteristic, gatt1);
+        MyCharacteristicIndex.Entry _entry = characteristicIndex.get(characteristic);
+        MyEventJournal.me().record(MyEventJournal.TYPE_READ, _journalAddress, null == _entry ? -1 : _entry.handle, status, _length(value));
+        MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_CHARACTERISTIC_READ, status);
+        // 长读取的每一页由操作合并后一次回复
+        if (BluetoothGatt.GATT_SUCCESS == status && MyGattOperation.TYPE_CHARACTERISTIC_READ_LONG != operationQueue.currentType()) {
+            if (null == _entry) {
+                MyMethodRouter.me().callOnCharacteristicReadResult(device.getAddress(), -1, characteristic.getUuid().toString(), value);
+            } else {
+                MyMethodRouter.me().callOnCharacteristicReadResult(device.getAddress(), _entry.handle, _entry.id, value);
+            }
+        }
+        operationQueue.complete(MyGattOperation.TYPE_CHARACTERISTIC_READ, status);
+    }
+
+    // 特征写入结果，value为回调时的特征值。
+    private void _onCharacteristicWrite(BluetoothGattCharacteristic characteristic, byte[] value, int status) {
+        MyLog.debug("onCharacteristicWrite status: {}, characteristic: {}, gatt1: {}", status, characteristic, gatt1);
+        MyCharacteristicIndex.Entry _entry = characteristicIndex.get(characteristic);
+        MyEventJournal.me().record(MyEventJournal.TYPE_WRITE, _journalAddress, null == _entry ? -1 : _entry.handle, status, _length(value));
+        MyMetrics.me().status(device.getAddress(), MyGattOperation.TYPE_CHARACTERISTIC_WRITE, status);
+        int _currentType = operationQueue.currentType();
+        if (MyGattOperation.TYPE_WRITE_STREAM == _currentType || MyGattOperation.TYPE_RELIABLE_WRITE == _currentType
+                || MyGattOperation.TYPE_FILE_TRANSFER == _currentType) {
+            // 连续写入与文件传输的分片结果、可靠写入的准备结果由操作处理，只通知进度并在结束后一次回复
+        } else if (null == _entry) {
+            MyMethodRouter.me().callOnCharacteristicWriteResult(device.getAddress(), -1, characteristic.getUuid().toString(), BluetoothGatt.GATT_SUCCESS == status);
+        } else {
+            MyMethodRouter.me().callOnCharacteristicWriteResult(device.getAddress(), _entry.handle, _entry.id, BluetoothGatt.GATT_SUCCESS == status);
+        }
+        if (BluetoothGatt.GATT_SUCCESS == status) {
+            MyLog.debug("write ok: {}", value);
+        } else if (BluetoothGatt.GATT_INVALID_ATTRIBUTE_LENGTH == status) {
+            MyLog.warn("write {} error size too long, use write stream instead.", null == _entry ? characteristic.getUuid() : _entry.id);
+        }
+        // 可靠写入的准备结果传入回显数据用于校验
+        if (MyGattOperation.TYPE_RELIABLE_WRITE == _currentType && BluetoothGatt.GATT_SUCCESS == status && null != value) {
+            operationQueue.complete(MyGattOperation.TYPE_CHARACTERISTIC_WRITE, value);
+            return;
+        }
+        operationQueue.complete(MyGattOperation.TYPE_CHARACTERISTIC_WRITE, status);
+    }
 
+    // 发起GATT连接，autoConnect为true时由系统在设备出现时连接，不会超时；连接数量已达上限且没有空闲设备可以断开时返回false。
+    private boolean _connectGatt(boolean autoConnect) {
         if (null != this.gatt1) {
             // 可能之前建立连接未成功，也未释放资源，先释放资源，再重新连接。
-            this.disconnect();
+            _closeGatt();
         }
+        // 连接数量达到上限时先断开最久未使用的空闲设备
+        if (!MyBluetoothManager.me().reserveConnection(this)) return false;
 
-        this.currentReply = reply;
+        if (PlatformHelper.sdkGE26()) {
+            // 回调在工作线程中执行
+            this.gatt1 = this.device.connectGatt(PlatformHelper.me().getActivity(), autoConnect, this.gattCallback, BluetoothDevice.TRANSPORT_LE, BluetoothDevice.PHY_LE_1M_MASK, MyHandler.me().getWorkerHandler());
+        } else if (PlatformHelper.sdkGE23()) {
+            this.gatt1 = this.device.connectGatt(PlatformHelper.me().getActivity(), autoConnect, this._workerGattCallback, BluetoothDevice.TRANSPORT_LE);
+        } else {
+            this.gatt1 = this.device.connectGatt(PlatformHelper.me().getActivity(), autoConnect, this._workerGattCallback);
+        }
+        return true;
+    }
 
-        if (PlatformHelper.sdkGE23()) {
-            this.gatt1 = this.device.connectGatt(PlatformHelper.me().getActivity(), false, this.gattCallback, BluetoothDevice.TRANSPORT_LE);
+    /**
+     * 设置自动重连：连接意外断开后先快速直连重试，退避时间按重试次数指数增长并加入随机抖动，
+     * 重试次数用完后使用系统的自动连接在后台等待设备出现。重新连接后恢复服务发现、MTU、
+     * 已开启的通知与连接优先级，并通过 {@link MyMethodRouter#callOnDeviceReconnected} 通知重连耗时。
+     * 开启时设备尚未连接则立即开始连接。
+     *
+     * @param enable         是否开启
+     * @param initialDelay   首次重试的退避时间，单位：毫秒，小于1时使用默认值。
+     * @param maxDelay       最大退避时间，单位：毫秒，小于1时使用默认值。
+     * @param maxAttempts    快速直连重试次数，小于0时使用默认值，为0时直接使用后台自动连接。
+     * @param attemptTimeout 每次直连的超时时间，单位：毫秒，小于1时使用默认值。
+     */
+    void autoConnect(boolean enable, long initialDelay, long maxDelay, int maxAttempts, long attemptTimeout) {
+        MyReconnector _old = this._reconnector;
+        if (null != _old) _old.cancel();
+        if (!enable) {
+            this._reconnector = null;
+            return;
+        }
+        if (!MyBluetoothManager.me().isEnabled())
+            throw new MyBluetoothException(MyBluetoothException.CODE_BLUETOOTH_NOT_ENABLE, "please turn on bluetooth.");
+        MyReconnector _reconnector = new MyReconnector(this, initialDelay, maxDelay, maxAttempts, attemptTimeout);
+        this._reconnector = _reconnector;
+        if (this.connected) {
+            _reconnector.onConnected();
         } else {
-            this.gatt1 = this.device.connectGatt(PlatformHelper.me().getActivity(), false, this.gattCallback);
+            _reconnector.start();
         }
+    }
 
-        MyHandler.me().delayed(MyHandler.ID_CONNECT_TIMEOUT, timeout * 1000, new ICallback() {
+    /**
+     * 直连一次，由自动重连调用，结果通过 {@link MyReconnector#onAttemptFailed} 或连接状态回调通知。
+     *
+     * @param reconnector 自动重连对象
+     */
+    void reconnect(final MyReconnector reconnector) {
+        _enqueue(new MyGattOperation(MyGattOperation.TYPE_CONNECT, null, reconnector.attemptTimeout()) {
             @Override
-            public void execute(Object args) {
-                if (null != currentReply) {
-                    currentReply.success(false);
-                    currentReply = null;
+            boolean execute() {
+                if (connected) return false;
+                if (!_connectGatt(false)) {
+                    fail("connection pool is full and all connected devices are busy!");
+                    return false;
                 }
-                disconnect();
+                return true;
+            }
+
+            @Override
+            void done(Object data) {
+                super.done(data);
+                if (!Boolean.TRUE.equals(data)) reconnector.onAttemptFailed();
+            }
+
+            @Override
+            void timeout() {
+                _closeGatt();
+                reconnector.onAttemptFailed();
+            }
+
+            @Override
+            void fail(String message) {
+                super.fail(message);
+                reconnector.onAttemptFailed();
             }
         });
     }
 
     /**
-     * 建立自动连接
+     * 使用系统的自动连接在后台等待设备出现，不占用操作队列，由自动重连调用。
      */
-    void autoConnect() {
+    void connectInBackground() {
+        MyHandler.me().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (connected || 0 != operationQueue.currentType()) return;
+                if (!_connectGatt(true)) {
+                    MyReconnector _reconnector = MyBluetoothDevice.this._reconnector;
+                    if (null != _reconnector) _reconnector.onBackgroundFailed();
+                }
+            }
+        });
+    }
+
+    // 重新连接后按原顺序恢复会话状态，全部恢复后结束本次重连。
+    private void _restoreSession(final MyReconnector reconnector) {
+        final long _startTime = SystemClock.elapsedRealtime();
+        if (0 < this.characteristicIndex.size()) {
+            _enqueue(new DiscoverServicesOperation(MyGattOperation.DEF_TIMEOUT, this._firmwareRevision, false, null));
+        }
+        if (0 < this._requestedMtu) requestMtu(this._requestedMtu, null);
+        List<String> _notifying;
+        synchronized (this._notifying) {
+            _notifying = new ArrayList<>(this._notifying);
+        }
+        for (String _characteristicId : _notifying) {
+            characteristicSetNotification(_characteristicId, true, null);
+        }
+        _enqueue(new MyGattOperation(MyGattOperation.TYPE_RESTORE_SESSION, null) {
+            @Override
+            boolean execute() {
+                if (!_autoPriority && BluetoothGatt.CONNECTION_PRIORITY_BALANCED != _requestedPriority) {
+                    _setConnectionPriority(_requestedPriority);
+                }
+                reconnector.onRestored(SystemClock.elapsedRealtime() - _startTime);
+                return false;
+            }
 
+            @Override
+            void fail(String message) {
+                // 恢复过程中再次断开，继续重连。
+                super.fail(message);
+                reconnector.onAttemptFailed();
+            }
+        });
     }
 
     /**
-     * 发现服务
+     * 发现服务。存在有效的结构缓存时立即回复缓存的特征标识，真正的服务发现仍在队列中执行，
+     * 之后的操作排在其后；发现的结构与缓存不一致时更新缓存并通过 {@link MyMethodRouter#callOnServicesDiscovered} 通知。
      *
-     * @param timeout 超时时间，单位：秒。
-     * @param reply   回复对象
+     * @param timeout          超时时间，单位：秒。
+     * @param firmwareRevision 固件版本，可以为空，与缓存的固件版本不一致时缓存无效。
+     * @param refresh          是否忽略缓存，同时刷新系统的设备缓存后重新发现。
+     * @param reply            回复对象
      */
-    void discoverServices(int timeout, IReply reply) {
-        if (null != this.currentReply) {
-            MyLog.debug("please wait for another task to complete.");
-            return;
+    void discoverServices(int timeout, String firmwareRevision, boolean refresh, IReply reply) {
+        _enqueue(new DiscoverServicesOperation(timeout * 1000L, firmwareRevision, refresh, reply));
+    }
+
+    /**
+     * 发现服务操作
+     */
+    private final class DiscoverServicesOperation extends MyGattOperation {
+        private final String _firmwareRevision;
+        private final boolean _refresh;
+        // 是否已使用缓存回复
+        private boolean _answered = false;
+        // 是否需要在结构变化时通知，无回复对象的内部操作总是通知。
+        private final boolean _notify;
+
+        DiscoverServicesOperation(long timeout, String firmwareRevision, boolean refresh, IReply reply) {
+            super(MyGattOperation.TYPE_DISCOVER_SERVICES, reply, timeout);
+            this._firmwareRevision = firmwareRevision;
+            this._refresh = refresh;
+            this._notify = null == reply;
         }
-        if (!this.connected) {
-//            throw new IllegalStateException("please connect first!");
-            reply.error(MyBluetoothException.CODE_CONNECT_FIRST, "please connect first!");
-            return;
+
+        @Override
+        boolean execute() {
+            if (!connected) {
+//                throw new IllegalStateException("please connect first!");
+                error(MyBluetoothException.CODE_CONNECT_FIRST, "please connect first!");
+                return false;
+            }
+            characteristicIndex.clear();
+            String _address = device.getAddress();
+            MyBluetoothDevice.this._firmwareRevision = this._firmwareRevision;
+            if (this._refresh) {
+                MyGattCache.me().invalidate(_address);
+                MyLog.debug("device {} refresh cache: {}", _address, _refreshCache());
+            } else {
+                List<String> _cached = MyGattCache.me().get(_address, this._firmwareRevision);
+                if (null != _cached) {
+                    MyLog.debug("device {} discover services answered from cache.", _address);
+                    this._answered = true;
+                    success(_cached);
+                }
+            }
+            if (!gatt1.discoverServices()) {
+                fail("could not start discover services!");
+                return false;
+            }
+            return true;
         }
-        this.currentReply = reply;
-        this.characteristicMap.clear();
-        this.gatt1.discoverServices();
 
-        MyHandler.me().delayed(MyHandler.ID_DISCOVER_SERVICES_TIMEOUT, timeout * 1000, new ICallback() {
-            @Override
-            public void execute(Object args) {
-                if (null != currentReply) {
-                    currentReply.error("timeout");
-                    currentReply = null;
+        @Override
+        void done(Object data) {
+            List<BluetoothGattService> _services = ((BluetoothGatt) data).getServices();
+            String _address = device.getAddress();
+            boolean _changed = MyGattCache.me().put(_address, this._firmwareRevision, _services);
+            List<String> _ids = MyGattCache.characteristicIds(_services);
+            if (this._answered || this._notify) {
+                if (_changed) {
+                    MyLog.debug("device {} gatt layout changed.", _address);
+                    MyMethodRouter.me().callOnServicesDiscovered(_address, _ids);
                 }
+                return;
+            }
+            success(_ids);
+        }
+
+        @Override
+        void fail(String message) {
+            if (this._answered) MyLog.warn("device {} discover services failed after answered from cache: {}", device.getAddress(), message);
+            super.fail(message);
+        }
+    }
+
+    // 设备存在服务变化特征(0x2A05)时开启其指示，服务结构变化后才能收到指示并使缓存失效。
+    private void _subscribeServiceChanged() {
+        if (null == this.characteristicIndex.get(BluetoothConstants.charServiceChanged.toString())) return;
+        // 不更新最近使用时间，不影响连接池的淘汰顺序。
+        this.operationQueue.enqueue(new MyGattOperation(MyGattOperation.TYPE_DESCRIPTOR_WRITE, null) {
+            @Override
+            boolean execute() {
+                BluetoothGattCharacteristic _characteristic = _getCharacteristic(BluetoothConstants.charServiceChanged.toString());
+                if (null == _characteristic) return false;
+                BluetoothGattDescriptor _descriptor = _characteristic.getDescriptor(BluetoothConstants.descCharacteristicClientConfig);
+                if (null == _descriptor || !gatt1.setCharacteristicNotification(_characteristic, true)) return false;
+                _descriptor.setValue(BluetoothGattDescriptor.ENABLE_INDICATION_VALUE);
+                boolean _writeResult = gatt1.writeDescriptor(_descriptor);
+                MyLog.debug("device {} subscribe service changed: {}", device, _writeResult);
+                return _writeResult;
             }
         });
     }
 
+    // 服务变化指示：缓存失效，刷新系统缓存后重新发现服务。
+    private void _onServiceChanged() {
+        MyLog.debug("device {} service changed.", this.device);
+        MyEventJournal.me().record(MyEventJournal.TYPE_SERVICE_CHANGED, this._journalAddress, 0, 0, 0);
+        MyGattCache.me().invalidate(this.device.getAddress());
+        _refreshCache();
+        _enqueue(new DiscoverServicesOperation(MyGattOperation.DEF_TIMEOUT, this._firmwareRevision, false, null));
+    }
+
     /**
      * 设置特征通知开关
      *
-     * @param characteristicId
-     * @param enable
-     * @return
+     * @param characteristicId 特征标识
+     * @param enable           是否开启
+     * @param reply            回复对象，回复描述符写入是否已发起。
      */
-    boolean characteristicSetNotification(String characteristicId, boolean enable) {
-        if (!this.characteristicMap.containsKey(characteristicId)) return false;
-        BluetoothGattCharacteristic _characteristic = this.characteristicMap.get(characteristicId);
+    void characteristicSetNotification(final String characteristicId, final boolean enable, IReply reply) {
+        _enqueue(new MyGattOperation(MyGattOperation.TYPE_DESCRIPTOR_WRITE, reply) {
+            @Override
+            boolean execute() {
+                boolean _writeResult = _writeNotification(characteristicId, enable);
+                reply(_writeResult);
+                return _writeResult;
+            }
+        });
+    }
+
+    // 写入特征的客户端配置描述符，特征或描述符不存在时返回false。
+    private boolean _writeNotification(String characteristicId, boolean enable) {
+        BluetoothGattCharacteristic _characteristic = _getCharacteristic(characteristicId);
+        if (null == _characteristic) return false;
 
-        boolean _setNotificationResult = this.gatt1.setCharacteristicNotification(_characteristic, enable);
-        MyLog.debug(characteristicId + " setNotificationResult: {}", _setNotificationResult);
+        boolean _setNotificationResult = gatt1.setCharacteristicNotification(_characteristic, enable);
+        MyLog.debug("{} setNotificationResult: {}", characteristicId, _setNotificationResult);
         BluetoothGattDescriptor _gattDescriptor = _characteristic.getDescriptor(BluetoothConstants.descCharacteristicClientConfig);
-        if (null != _gattDescriptor) {
-            byte[] _value = enable ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE;
-            _gattDescriptor.setValue(_value);
-            return this.gatt1.writeDescriptor(_gattDescriptor);
+        if (null == _gattDescriptor) return false;
+        byte[] _value = enable ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE;
+        _gattDescriptor.setValue(_value);
+        boolean _writeResult = gatt1.writeDescriptor(_gattDescriptor);
+        if (_writeResult) {
+            String _characteristicId = resolveCharacteristicId(characteristicId);
+            if (enable) {
+                _notifying.add(_characteristicId);
+            } else {
+                _notifying.remove(_characteristicId);
+            }
         }
-        return false;
+        return _writeResult;
     }
 
     /**
-     * 从指定特征读取数据
+     * @param characteristicId 特征标识
+     * @return 是否已开启特征通知
+     */
+    boolean isNotifying(String characteristicId) {
+        String _characteristicId = resolveCharacteristicId(characteristicId);
+        return null != _characteristicId && this._notifying.contains(_characteristicId);
+    }
+
+    /**
+     * 从指定特征读取数据，读取结果通过 {@link MyMethodRouter#callOnCharacteristicReadResult} 通知。
      *
-     * @param characteristicId
-     * @return
+     * @param characteristicId 特征标识
+     * @param reply            回复对象，回复读取是否已发起。
      */
-    boolean characteristicRead(String characteristicId) {
-        if (!this.characteristicMap.containsKey(characteristicId)) return false;
-        BluetoothGattCharacteristic _characteristic = this.characteristicMap.get(characteristicId);
+    void characteristicRead(final String characteristicId, IReply reply) {
+        _enqueue(new MyGattOperation(MyGattOperation.TYPE_CHARACTERISTIC_READ, reply) {
+            @Override
+            boolean execute() {
+                BluetoothGattCharacteristic _characteristic = _getCharacteristic(characteristicId);
+                if (null == _characteristic) {
+                    reply(false);
+                    return false;
+                }
+                boolean _readResult = gatt1.readCharacteristic(_characteristic);
+                reply(_readResult);
+                return _readResult;
+            }
+        });
+    }
 
-        return this.gatt1.readCharacteristic(_characteristic);
+    /**
+     * 向指定特征写入数据，写入结果通过 {@link MyMethodRouter#callOnCharacteristicWriteResult} 通知。
+     *
+     * @param characteristicId 特征标识
+     * @param value            数据
+     * @param withoutResponse  是否无需响应
+     * @param reply            回复对象，回复写入是否已发起。
+     */
+    void characteristicWrite(final String characteristicId, final byte[] value, final boolean withoutResponse, IReply reply) {
+        _enqueue(new MyGattOperation(MyGattOperation.TYPE_CHARACTERISTIC_WRITE, reply) {
+            @Override
+            boolean execute() {
+                BluetoothGattCharacteristic _characteristic = _getCharacteristic(characteristicId);
+                if (null == _characteristic) {
+                    reply(false);
+                    return false;
+                }
+
+                MyLog.debug("characteristicWrite length: {}", value.length);
+                if (!_characteristic.setValue(value)) {
+                    MyLog.debug("could not set the local value of characteristic!");
+                    reply(false);
+                    return false;
+                }
+                if (withoutResponse) {
+                    _characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+                } else {
+                    _characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+                }
+
+                boolean _writeResult = gatt1.writeCharacteristic(_characteristic);
+                reply(_writeResult);
+                return _writeResult;
+            }
+        });
+    }
+
+    /**
+     * 长读取，读取超过MTU的特征值，合并后一次回复。
+     *
+     * @param characteristicId 特征标识
+     * @param maxLength        长度上限，小于1时使用默认值。
+     * @param paged            是否在读取到满512字节时继续读取下一页，仅用于按页提供数据的设备。
+     * @param reply            回复对象，回复读取到的数据。
+     */
+    void characteristicReadLong(String characteristicId, int maxLength, boolean paged, IReply reply) {
+        _enqueue(new MyLongRead(this, characteristicId, maxLength, paged, reply));
+    }
+
+    /**
+     * 可靠写入，设备回显的数据与写入的数据一致时才提交。
+     *
+     * @param characteristicId 特征标识
+     * @param value            数据，长度不超过 MTU-5，超过时操作失败。
+     * @param reply            回复对象，回复写入字节数与耗时。
+     */
+    void characteristicWriteReliable(String characteristicId, byte[] value, IReply reply) {
+        _enqueue(new MyReliableWrite(this, characteristicId, value, reply));
+    }
+
+    /**
+     * 连续写入大块数据，按MTU分片并以无需响应的方式写入，写入进度通过 {@link MyMethodRouter#callOnCharacteristicWriteProgress} 通知。
+     *
+     * @param characteristicId 特征标识
+     * @param value            数据
+     * @param reply            回复对象，回复写入字节数、耗时与速率。
+     */
+    void characteristicWriteStream(String characteristicId, byte[] value, IReply reply) {
+        if (null == value) throw new IllegalArgumentException("value can not be null!");
+        _enqueue(new MyWriteStream(this, characteristicId, ByteBuffer.wrap(value), reply));
+    }
+
+    /**
+     * 传输文件，文件映射到内存后按MTU分片以无需响应的方式写入，参见 {@link MyFileTransfer}。
+     * 传输进度通过 {@link MyMethodRouter#callOnCharacteristicWriteProgress} 通知，其中的字节数为可继续传输的偏移量。
+     *
+     * @param characteristicId    特征标识
+     * @param path                文件路径
+     * @param offset              起始偏移量，用于继续中断的传输。
+     * @param window              每次等待确认前发送的分片数
+     * @param ackCharacteristicId 确认特征标识，未开启通知时在传输前开启，为null时不等待确认。
+     * @param timeout             每一步(分片写入或等待确认)的超时时间，单位：毫秒。
+     * @param reply               回复对象，回复传输字节数、偏移量、重传次数、耗时与速率。
+     */
+    void characteristicWriteFile(String characteristicId, String path, int offset, int window, final String ackCharacteristicId, long timeout, IReply reply) {
+        if (null != ackCharacteristicId) {
+            // 排在传输之前开启确认特征的通知，开启失败时由传输操作检查并失败。
+            _enqueue(new MyGattOperation(MyGattOperation.TYPE_DESCRIPTOR_WRITE, null) {
+                @Override
+                boolean execute() {
+                    if (isNotifying(ackCharacteristicId)) return false;
+                    return _writeNotification(ackCharacteristicId, true);
+                }
+            });
+        }
+        _enqueue(new MyFileTransfer(this, characteristicId, path, offset, window, ackCharacteristicId, timeout, reply));
     }
 
     /**
-     * 向指定特征写入数据
+     * 协商MTU，回复协商后的MTU与单次写入的有效载荷长度。
      *
-     * @param characteristicId
-     * @param value
-     * @param withoutResponse
-     * @return
+     * @param mtu   期望的MTU
+     * @param reply 回复对象
      */
-    boolean characteristicWrite(String characteristicId, byte[] value, boolean withoutResponse) {
-        if (!this.characteristicMap.containsKey(characteristicId)) return false;
-        BluetoothGattCharacteristic _characteristic = this.characteristicMap.get(characteristicId);
+    void requestMtu(final int mtu, IReply reply) {
+        if (BluetoothConstants.DEF_ATT_MTU > mtu || BluetoothConstants.MAX_ATT_MTU < mtu)
+            throw new IllegalArgumentException("mtu must be between " + BluetoothConstants.DEF_ATT_MTU + " and " + BluetoothConstants.MAX_ATT_MTU + "!");
+        _enqueue(new MyGattOperation(MyGattOperation.TYPE_REQUEST_MTU, reply) {
+            @Override
+            boolean execute() {
+                if (!connected) {
+                    error(MyBluetoothException.CODE_CONNECT_FIRST, "please connect first!");
+                    return false;
+                }
+                if (!gatt1.requestMtu(mtu)) {
+                    fail("could not request mtu!");
+                    return false;
+                }
+                _requestedMtu = mtu;
+                return true;
+            }
+        });
+    }
 
-        MyLog.debug("characteristicWrite length: {}", value.length);
-        if (!_characteristic.setValue(value)) {
-            MyLog.debug("could not set the local value of characteristic!");
+    /**
+     * 设置连接优先级
+     *
+     * @param priority 连接优先级，{@link BluetoothGatt#CONNECTION_PRIORITY_BALANCED}、{@link BluetoothGatt#CONNECTION_PRIORITY_HIGH} 或 {@link BluetoothGatt#CONNECTION_PRIORITY_LOW_POWER}。
+     * @return 是否设置成功
+     */
+    boolean requestConnectionPriority(int priority) {
+        if (!this.connected)
+            throw new MyBluetoothException(MyBluetoothException.CODE_CONNECT_FIRST, "please connect first!");
+        boolean _result = _setConnectionPriority(priority);
+        if (_result) this._requestedPriority = priority;
+        return _result;
+    }
+
+    /**
+     * 设置自动连接优先级策略：读写数据时提升为高优先级，队列空闲指定时间后恢复为空闲优先级。
+     *
+     * @param enable       是否开启
+     * @param idleTimeout  空闲多久后恢复，单位：毫秒。
+     * @param idlePriority 空闲时使用的连接优先级
+     */
+    void setConnectionPriorityPolicy(boolean enable, long idleTimeout, int idlePriority) {
+        _checkConnectionPriority(idlePriority);
+        this._autoPriority = enable;
+        this._priorityIdleTimeout = 0 < idleTimeout ? idleTimeout : DEF_PRIORITY_IDLE_TIMEOUT;
+        this._idlePriority = idlePriority;
+        MyHandler.me().remove(this._relaxPriorityTask);
+        if (!enable && this.connected) _setConnectionPriority(idlePriority);
+    }
+
+    // 切换连接优先级，与当前优先级一致时忽略。
+    private boolean _setConnectionPriority(int priority) {
+        _checkConnectionPriority(priority);
+        if (priority == this.connectionPriority) return true;
+        if (null == this.gatt1 || !this.gatt1.requestConnectionPriority(priority)) {
+            MyLog.debug("device {} request connection priority {} failed.", this.device, priority);
             return false;
         }
-        if (withoutResponse) {
-            _characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
-        } else {
-            _characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+        this.connectionPriority = priority;
+        return true;
+    }
+
+    private static void _checkConnectionPriority(int priority) {
+        if (BluetoothGatt.CONNECTION_PRIORITY_BALANCED != priority
+                && BluetoothGatt.CONNECTION_PRIORITY_HIGH != priority
+                && BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER != priority)
+            throw new IllegalArgumentException("unSupport connection priority: " + priority);
+    }
+
+    /**
+     * 解析连接优先级参数，支持名称(high、balanced、lowPower)与数值。
+     *
+     * @param value 参数值
+     * @param def   默认值
+     * @return 连接优先级
+     */
+    static int parseConnectionPriority(Object value, int def) {
+        if (null == value) return def;
+        if (value instanceof Number) return ((Number) value).intValue();
+        String _name = value.toString().trim();
+        if ("high".equalsIgnoreCase(_name)) return BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+        if ("balanced".equalsIgnoreCase(_name)) return BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+        if ("lowPower".equalsIgnoreCase(_name)) return BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER;
+        throw new IllegalArgumentException("unSupport connection priority: " + value);
+    }
+
+    /**
+     * 设置通知合并发送，开启后同一特征的通知数据累积指定时间或帧数后作为一条消息发送，
+     * 通过 {@link MyMethodRouter#callOnCharacteristicNotifyBatch} 通知。
+     *
+     * @param interval  时间窗口，单位：毫秒，小于1时关闭合并发送。
+     * @param maxFrames 每批最大帧数
+     */
+    void setNotificationBatch(long interval, int maxFrames) {
+        MyNotificationBatcher _old = this._notificationBatcher;
+        this._notificationBatcher = 0 < interval ? new MyNotificationBatcher(this.device.getAddress(), interval, maxFrames) : null;
+        // 发送旧配置下尚未发送的数据
+        if (null != _old) _old.flush();
+    }
+
+    /**
+     * 设置特征通知的分段重组，开启后同一特征的通知分段收齐为完整的帧后再发送，参见 {@link MyNotificationFramer}。
+     * 重新设置时丢弃正在重组的帧。
+     *
+     * @param characteristicId 特征标识
+     * @param mode             分段模式，为0时关闭分段重组。
+     * @param crc              校验方式
+     * @param timeout          重组超时时间，单位：毫秒。
+     * @param maxLength        帧长度上限，不超过 {@link MyNotificationFramer#MAX_LENGTH}。
+     */
+    void setNotificationFraming(String characteristicId, int mode, int crc, long timeout, int maxLength) {
+        if (null == characteristicId) throw new IllegalArgumentException("characteristicId can not be null!");
+        // 不经过操作队列，句柄引用立即转换。
+        String _characteristicId = resolveCharacteristicId(characteristicId);
+        if (null == _characteristicId) throw new IllegalArgumentException("characteristic handle not found: " + characteristicId);
+        if (0 == mode) {
+            this._framers.remove(_characteristicId);
+            return;
+        }
+        this._framers.put(_characteristicId, new MyNotificationFramer(mode, crc, timeout, maxLength));
+    }
+
+    /**
+     * @return 特征标识 -> 分段重组的统计信息
+     */
+    Map<String, Object> getNotificationFraming() {
+        Map<String, Object> _result = new HashMap<>(8);
+        for (Map.Entry<String, MyNotificationFramer> _entry : this._framers.entrySet()) {
+            _result.put(_entry.getKey(), _entry.getValue().toMap());
+        }
+        return _result;
+    }
+
+    // 丢弃正在重组的帧
+    private void _resetFramers() {
+        for (MyNotificationFramer _framer : this._framers.values()) {
+            _framer.reset();
         }
+    }
+
+    // 立即发送尚未发送的通知数据
+    private void _flushNotifications() {
+        MyNotificationBatcher _batcher = this._notificationBatcher;
+        if (null != _batcher) _batcher.flush();
+    }
 
-        return this.gatt1.writeCharacteristic(_characteristic);
+    /**
+     * 读取信号强度
+     *
+     * @param reply 回复对象，回复信号强度值。
+     */
+    void readRssi(IReply reply) {
+        _enqueue(new MyGattOperation(MyGattOperation.TYPE_READ_RSSI, reply) {
+            @Override
+            boolean execute() {
+                if (!connected) {
+                    error(MyBluetoothException.CODE_CONNECT_FIRST, "please connect first!");
+                    return false;
+                }
+                if (!gatt1.readRemoteRssi()) {
+                    fail("could not start read rssi!");
+                    return false;
+                }
+                return true;
+            }
+        });
+    }
+
+    // 获取已发现的特征对象，未连接或未发现时返回null。
+    BluetoothGattCharacteristic _getCharacteristic(String characteristicId) {
+        if (null == this.gatt1 || null == characteristicId) return null;
+        MyCharacteristicIndex.Entry _entry = this.characteristicIndex.get(characteristicId);
+        return null == _entry ? null : _entry.characteristic;
+    }
+
+    /**
+     * 将句柄引用转换为特征标识，在操作执行时调用，特征标识原样返回。
+     *
+     * @param characteristicId 特征标识或句柄引用
+     * @return 特征标识，句柄不存在时返回null。
+     */
+    String resolveCharacteristicId(String characteristicId) {
+        if (!MyCharacteristicIndex.isHandleRef(characteristicId)) return characteristicId;
+        MyCharacteristicIndex.Entry _entry = this.characteristicIndex.get(characteristicId);
+        return null == _entry ? null : _entry.id;
     }
 
     /**
@@ -272,9 +1068,22 @@ final class MyBluetoothDevice {
      * @return 是否成功
      */
     boolean disconnect() {
+        MyReconnector _reconnector = this._reconnector;
+        if (null != _reconnector) _reconnector.cancel();
+        MyEventJournal.me().record(MyEventJournal.TYPE_DISCONNECT, this._journalAddress, 0, 0, 0);
         this.connected = false;
-        this.currentReply = null;
-        MyHandler.me().removeCallback(MyHandler.ID_CONNECT_TIMEOUT);
+        this.operationQueue.clear("device disconnected.");
+        _flushNotifications();
+        MyBinaryChannel.me().releaseDevice(this.device.getAddress());
+        return _closeGatt();
+    }
+
+    private static int _length(byte[] value) {
+        return null == value ? 0 : value.length;
+    }
+
+    // 断开并释放GATT连接，不影响操作队列。
+    private boolean _closeGatt() {
         if (null == this.gatt1) {
             MyLog.debug("device {} already disconnected.", this.device);
             return false;
@@ -309,8 +1118,49 @@ final class MyBluetoothDevice {
         return false;
     }
 
-    void destroy() {
+    /**
+     * @return 是否占用连接资源：已连接或正在连接。
+     */
+    boolean isLive() {
+        return this.connected || null != this.gatt1;
+    }
+
+    /**
+     * @return 操作队列是否空闲
+     */
+    boolean isIdle() {
+        return 0 == this.operationQueue.currentType() && 0 == this.operationQueue.size();
+    }
+
+    /**
+     * @return 是否正在执行或等待执行操作，如文件传输、连续写入或可靠写入，此时不能被连接池断开。
+     */
+    boolean isBusy() {
+        return !isIdle() || null != this._transfer;
+    }
+
+    /**
+     * @return 是否开启了自动重连
+     */
+    boolean isAutoConnect() {
+        MyReconnector _reconnector = this._reconnector;
+        return null != _reconnector && _reconnector.isArmed();
+    }
 
+    /**
+     * 释放设备占用的所有资源：取消自动重连，结束所有操作，断开并释放GATT连接。
+     */
+    void destroy() {
+        MyReconnector _reconnector = this._reconnector;
+        this._reconnector = null;
+        if (null != _reconnector) _reconnector.cancel();
+        MyHandler.me().remove(this._relaxPriorityTask);
+        if (isLive()) {
+            disconnect();
+            return;
+        }
+        this.operationQueue.clear("device released.");
+        _flushNotifications();
     }
 
     @NonNull
@@ -30,6 +30,11 @@ final class MyBluetoothException extends RuntimeException {
      */
     static final String CODE_LOCATION_NOT_GRANTED = "604";
 
+    /**
+     * 连接数量已达上限，且没有可以断开的空闲设备
+     */
+    static final String CODE_CONNECTION_POOL_FULL = "605";
+
     // 错误编码
     final String code;
 
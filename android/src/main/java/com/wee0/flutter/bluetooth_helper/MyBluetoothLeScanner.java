@@ -4,8 +4,10 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
 import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanRecord;
 import android.bluetooth.le.ScanResult;
 import android.bluetooth.le.ScanSettings;
+import android.os.SystemClock;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -21,6 +23,8 @@ final class MyBluetoothLeScanner {
     static final int DEF_MAX_SCAN_TIMEOUT = 5000;
 
     private final Map<String, Map<String, String>> scanData = new HashMap<>(16, 1.0f);
+    // 本次扫描中已通知的设备，用于去重与限流。
+    private final Map<String, Sighting> _sightings = new HashMap<>(16, 1.0f);
 
     private BluetoothLeScanner scanner;
     private volatile boolean scanning;
@@ -33,43 +37,64 @@ final class MyBluetoothLeScanner {
     private String _deviceName = null;
     // 扫描超时时间
     private int _scanTimeout = DEF_MAX_SCAN_TIMEOUT;
+    // 是否实时通知扫描结果
+    private boolean _stream = false;
+    // 同一设备的更新通知最小间隔
+    private long _throttle = MyScanOptions.DEF_THROTTLE;
     // 响应对象
     private IReply _reply = null;
+    // 本次扫描的参数与过滤条件
+    private MyScanOptions _options = null;
+    private List<ScanFilter> _scanFilters = null;
+    // 当前扫描模式
+    private int _scanMode = ScanSettings.SCAN_MODE_LOW_POWER;
+    // 自适应模式上次评估时的设备数量
+    private int _adaptiveCount = 0;
+    // 扫描开始时间，单位：纳秒，用于统计扫描耗时，未在扫描或已统计时为0。
+    private long _scanStartTime = 0;
+
+    // 自适应模式评估任务
+    private final Runnable _adaptiveTask = new Runnable() {
+        @Override
+        public void run() {
+            _adapt();
+        }
+    };
 
     // 扫描结果回调
     private final ScanCallback _scanCallback = new ScanCallback() {
         @Override
-        public void onScanResult(int callbackType, ScanResult result) {
+        public void onScanResult(int callbackType, final ScanResult result) {
             MyLog.debug("onScanResult. callbackType: {}, result: {}", callbackType, result);
-            BluetoothDevice _device = result.getDevice();
-            if (null == _device) return;
-            String _name = _device.getName();
-            String _address = _device.getAddress();
-            Map<String, String> _deviceInfo = new HashMap<>(8);
-            _deviceInfo.put("deviceId", _address);
-            _deviceInfo.put("deviceName", _name);
-            if (!scanData.containsKey(_address))
-                scanData.put(_address, _deviceInfo);
-            if (null != MyBluetoothLeScanner.this._deviceAddress && MyBluetoothLeScanner.this._deviceAddress.equals(_address)) {
-                MyLog.debug("scanned device id: {}", _address);
-                stopScan();
-                return;
-            }
-            if (null != MyBluetoothLeScanner.this._deviceName && MyBluetoothLeScanner.this._deviceName.equals(_name)) {
-                MyLog.debug("scanned device name: {}", _name);
-                stopScan();
-                return;
-            }
+            // 扫描回调在平台线程中执行，转到工作线程中处理。
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    _onScanResult(result);
+                }
+            });
         }
 
         @Override
-        public void onBatchScanResults(List<ScanResult> results) {
-            MyLog.debug("onBatchScanResults. results: {}", results);
+        public void onBatchScanResults(final List<ScanResult> results) {
+            MyLog.debug("onBatchScanResults. size: {}", results.size());
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    _onBatchScanResults(results);
+                }
+            });
         }
 
         @Override
-        public void onScanFailed(int errorCode) {
+        public void onScanFailed(final int errorCode) {
             MyLog.debug("onScanFailed. errorCode: {}", errorCode);
+            MyHandler.me().execute(new Runnable() {
+                @Override
+                public void run() {
+                    _onScanFailed(errorCode);
+                }
+            });
         }
 
     };
@@ -82,23 +107,129 @@ final class MyBluetoothLeScanner {
         return this.scanner;
     }
 
+    /**
+     * @return 最近一次扫描结果的副本，需在工作线程中调用。
+     */
     Map<String, Map<String, String>> getLastScanData() {
-        return this.scanData;
+        return new HashMap<>(this.scanData);
+    }
+
+    // 扫描启动失败，如设置与过滤条件的组合不被支持。
+    private void _onScanFailed(int errorCode) {
+        if (!this.scanning) return;
+        MyEventJournal.me().record(MyEventJournal.TYPE_SCAN_FAILED, 0L, 0, errorCode, 0);
+        MyMetrics.me().status(null, MyMetrics.OP_SCAN, errorCode);
+        MyMetrics.me().record(null, MyMetrics.OP_SCAN, MyMetrics.OUTCOME_FAILURE, -1);
+        this._scanStartTime = 0;
+        IReply _reply = this._reply;
+        this._reply = null;
+        stopScan();
+        if (null != _reply) _reply.error("scan failed, errorCode: " + errorCode);
+    }
+
+    // 处理单个扫描结果
+    private void _onScanResult(ScanResult result) {
+        if (!this.scanning) return;
+        BluetoothDevice _device = result.getDevice();
+        if (null == _device) return;
+        if (this._stream) _report(_device.getAddress(), _device.getName(), result);
+        if (_record(result, _device)) stopScan();
+    }
+
+    // 处理控制器缓存后批量上报的扫描结果，合并为一条消息通知。
+    private void _onBatchScanResults(List<ScanResult> results) {
+        if (!this.scanning) return;
+        long _nowNanos = SystemClock.elapsedRealtimeNanos();
+        long _wallNow = System.currentTimeMillis();
+        List<Map<String, Object>> _batch = new ArrayList<>(results.size());
+        boolean _matched = false;
+        for (ScanResult _result : results) {
+            BluetoothDevice _device = _result.getDevice();
+            if (null == _device) continue;
+            _matched |= _record(_result, _device);
+            Map<String, Object> _data = new HashMap<>(8);
+            _data.put("deviceId", _device.getAddress());
+            _data.put("deviceName", _device.getName());
+            _data.put("rssi", _result.getRssi());
+            _data.put("timestamp", _wallNow - (_nowNanos - _result.getTimestampNanos()) / 1000000L);
+            _data.put("advertisement", _parseRecord(_result));
+            _batch.add(_data);
+        }
+        if (!_batch.isEmpty()) MyMethodRouter.me().callOnScanBatch(_batch);
+        if (_matched) stopScan();
     }
 
-    void startScan(final String deviceName, final String deviceAddress, final int scanTimeout, final IReply reply) {
+    // 解析广播数据，仅在需要通知时解析。
+    private static Map<String, Object> _parseRecord(ScanResult result) {
+        ScanRecord _record = result.getScanRecord();
+        return null == _record ? null : MyAdvertisementParser.parse(_record.getBytes());
+    }
+
+    // 记录扫描结果，返回是否为指定扫描的目标设备。
+    private boolean _record(ScanResult result, BluetoothDevice device) {
+        MyScanCache.me().update(result);
+        MyWatchlist.me().onScanResult(result);
+        String _name = device.getName();
+        String _address = device.getAddress();
+        if (!scanData.containsKey(_address)) {
+            Map<String, String> _deviceInfo = new HashMap<>(8);
+            _deviceInfo.put("deviceId", _address);
+            _deviceInfo.put("deviceName", _name);
+            scanData.put(_address, _deviceInfo);
+        }
+        if (null != this._deviceAddress && this._deviceAddress.equals(_address)) {
+            MyLog.debug("scanned device id: {}", _address);
+            return true;
+        }
+        if (null != this._deviceName && this._deviceName.equals(_name)) {
+            MyLog.debug("scanned device name: {}", _name);
+            return true;
+        }
+        return false;
+    }
+
+    // 实时通知扫描结果：新设备立即通知，已通知的设备在名称变化时立即通知，
+    // 信号强度变化时按最小间隔限流，无变化时不通知。
+    private void _report(String address, String name, ScanResult result) {
+        int rssi = result.getRssi();
+        long _now = SystemClock.elapsedRealtime();
+        Sighting _sighting = this._sightings.get(address);
+        boolean _isNew = null == _sighting;
+        if (_isNew) {
+            _sighting = new Sighting();
+            this._sightings.put(address, _sighting);
+        } else {
+            boolean _nameChanged = null != name && !name.equals(_sighting.name);
+            if (!_nameChanged) {
+                if (rssi == _sighting.rssi) return;
+                if (_now - _sighting.reportTime < this._throttle) return;
+            }
+        }
+        _sighting.name = name;
+        _sighting.rssi = rssi;
+        _sighting.reportTime = _now;
+        MyMethodRouter.me().callOnScanResult(address, name, rssi, _isNew, _parseRecord(result));
+    }
+
+    void startScan(final MyScanOptions options, final IReply reply) {
         if (this.scanning) {
             MyLog.debug("already scanning!");
             return;
         }
 
+        final String deviceName = options.deviceName;
+        final String deviceAddress = options.deviceAddress;
         this._deviceName = deviceName;
         this._deviceAddress = deviceAddress;
-        this._scanTimeout = scanTimeout > 0 ? scanTimeout * 1000 : DEF_MAX_SCAN_TIMEOUT;
+        // 批量扫描用于长时间运行的场景，未指定超时时间时一直扫描到主动结束。
+        this._scanTimeout = options.timeout > 0 ? options.timeout * 1000 : (options.reportDelay > 0 ? 0 : DEF_MAX_SCAN_TIMEOUT);
+        this._stream = options.stream;
+        this._throttle = options.throttle;
         this._reply = reply;
 
         // 清除之前的扫描结果
         this.scanData.clear();
+        this._sightings.clear();
 
         if (0 == this._callbackRegTime) {
             if (!MyBluetoothManager.me().isEnabled())
@@ -107,18 +238,24 @@ final class MyBluetoothLeScanner {
                 throw new MyBluetoothException(MyBluetoothException.CODE_LOCATION_NOT_ENABLE, "please turn on location.");
             if (PermissionHelper.me().requestPermission(PermissionHelper.ACCESS_FINE_LOCATION, new ICallback() {
                 @Override
-                public void execute(Object args) {
-                    if (!(Boolean) args) {
-                        MyLog.warn("requires location permissions for scanning.");
-                        if (null != reply)
-                            reply.error(MyBluetoothException.CODE_LOCATION_NOT_GRANTED, "requires location permissions for scanning.");
-                        return;
-                    }
-                    if (System.currentTimeMillis() - _callbackRegTime > 5000) {
-                        MyLog.debug("callback request timeout.");
-                        return;
-                    }
-                    startScan(deviceName, deviceAddress, MyBluetoothLeScanner.this._scanTimeout, reply);
+                public void execute(final Object args) {
+                    // 授权结果在平台线程中回调，转到工作线程中继续处理。
+                    MyHandler.me().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!(Boolean) args) {
+                                MyLog.warn("requires location permissions for scanning.");
+                                if (null != reply)
+                                    reply.error(MyBluetoothException.CODE_LOCATION_NOT_GRANTED, "requires location permissions for scanning.");
+                                return;
+                            }
+                            if (System.currentTimeMillis() - _callbackRegTime > 5000) {
+                                MyLog.debug("callback request timeout.");
+                                return;
+                            }
+                            startScan(options, reply);
+                        }
+                    });
                 }
             })) {
                 _callbackRegTime = System.currentTimeMillis();
@@ -136,15 +273,19 @@ final class MyBluetoothLeScanner {
         ScanFilter _scanFilter = _filterBuilder.build();
         _scanFilters.add(_scanFilter);
 
-        ScanSettings.Builder _settingsBuilder = new ScanSettings.Builder();
-        _settingsBuilder.setScanMode(ScanSettings.SCAN_MODE_LOW_POWER);
-//        _settingsBuilder.setMatchMode(ScanSettings.MATCH_MODE_AGGRESSIVE);
-//        _settingsBuilder.setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES);
+        this._options = options;
+        this._scanFilters = _scanFilters;
+        this._scanMode = options.scanMode;
 //        _settingsBuilder.setLegacy(true);
-        final ScanSettings _scanSettings = _settingsBuilder.build();
-        this.scanner.startScan(_scanFilters, _scanSettings, _scanCallback);
+        this.scanner.startScan(_scanFilters, options.buildSettings(this._scanMode), _scanCallback);
+        MyEventJournal.me().record(MyEventJournal.TYPE_SCAN_START, 0L, this._scanMode, 0, (int) options.reportDelay);
+        this._scanStartTime = SystemClock.elapsedRealtimeNanos();
+        if (options.adaptive) {
+            this._adaptiveCount = 0;
+            MyHandler.me().post(this._adaptiveTask, options.adaptiveInterval);
+        }
 
-        MyHandler.me().delayed(MyHandler.ID_SCAN_TIMEOUT, this._scanTimeout, new ICallback() {
+        if (0 < this._scanTimeout) MyHandler.me().delayed(MyHandler.ID_SCAN_TIMEOUT, this._scanTimeout, new ICallback() {
             @Override
             public void execute(Object args) {
                 MyLog.debug("scan timeout, to be stop.");
@@ -162,9 +303,16 @@ final class MyBluetoothLeScanner {
      */
     Map<String, Map<String, String>> stopScan() {
         MyLog.debug("stop scan. data: {}", this.scanData);
+        if (this.scanning) MyEventJournal.me().record(MyEventJournal.TYPE_SCAN_STOP, 0L, 0, 0, this.scanData.size());
+        if (0 != this._scanStartTime) {
+            // 扫描耗时：从开始扫描到找到目标设备、超时或主动停止。
+            MyMetrics.me().record(null, MyMetrics.OP_SCAN, MyMetrics.OUTCOME_SUCCESS, (SystemClock.elapsedRealtimeNanos() - this._scanStartTime) / 1000L);
+            this._scanStartTime = 0;
+        }
         this._callbackRegTime = 0;
         this.scanning = false;
         MyHandler.me().removeCallback(MyHandler.ID_SCAN_TIMEOUT);
+        MyHandler.me().remove(this._adaptiveTask);
         if (null != this.scanner) {
             try {
                 this.scanner.stopScan(_scanCallback);
@@ -172,11 +320,48 @@ final class MyBluetoothLeScanner {
                 MyLog.debug("stopScan error: {}", e.getMessage());
             }
         }
+        // 回复在平台线程中编码，返回副本，避免之后的扫描在工作线程中修改正在编码的数据。
+        Map<String, Map<String, String>> _scanData = new HashMap<>(this.scanData);
         if (null != this._reply) {
-            this._reply.success(this.scanData);
+            this._reply.success(_scanData);
             this._reply = null;
         }
-        return this.scanData;
+        return _scanData;
+    }
+
+    // 自适应模式：评估间隔内没有发现新设备时降低一级扫描模式，降到低功耗模式后不再评估。
+    // 系统不支持修改正在进行的扫描的设置，因此需要重新启动扫描。
+    private void _adapt() {
+        if (!this.scanning || null == this._options) return;
+        int _count = this.scanData.size();
+        boolean _idle = _count <= this._adaptiveCount;
+        this._adaptiveCount = _count;
+        if (_idle) {
+            int _next = MyScanOptions.stepDown(this._scanMode);
+            if (_next == this._scanMode) return;
+            MyLog.debug("adaptive scan step down, mode: {} -> {}", this._scanMode, _next);
+            this._scanMode = _next;
+            try {
+                this.scanner.stopScan(_scanCallback);
+                this.scanner.startScan(this._scanFilters, this._options.buildSettings(_next), _scanCallback);
+                MyEventJournal.me().record(MyEventJournal.TYPE_SCAN_START, 0L, _next, 0, (int) this._options.reportDelay);
+            } catch (IllegalStateException e) {
+                MyLog.debug("restart scan error: {}", e.getMessage());
+                return;
+            }
+            if (ScanSettings.SCAN_MODE_LOW_POWER == _next) return;
+        }
+        MyHandler.me().post(this._adaptiveTask, this._options.adaptiveInterval);
+    }
+
+    /**
+     * 已通知的设备信息
+     */
+    private static final class Sighting {
+        String name;
+        int rssi;
+        // 最后一次通知时间
+        long reportTime;
     }
 
 }
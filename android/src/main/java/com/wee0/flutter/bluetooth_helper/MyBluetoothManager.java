@@ -8,11 +8,11 @@ import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
 import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
-import android.bluetooth.le.ScanSettings;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.SystemClock;
 
 import java.io.ObjectStreamException;
 import java.util.ArrayList;
@@ -31,7 +31,20 @@ final class MyBluetoothManager {
     private BluetoothAdapter _bluetoothAdapter;
     private MyBluetoothLeScanner _leScanner = null;
     private Map<String, MyBluetoothDevice> _deviceMap;
+
+    // 默认最多缓存的设备数量
+    static final int DEF_MAX_DEVICES = 64;
+    // 连接池：最大连接数量，小于1时不限制。
+    private int _maxConnections = 0;
+    // 连接池：空闲多久后断开连接并移除设备，单位：毫秒，小于1时不限制。
+    private long _idleTimeout = 0;
+    // 连接池：最多缓存的设备数量，超出时移除最久未使用的未连接设备。
+    private int _maxDevices = DEF_MAX_DEVICES;
+    // 连接池：已淘汰的设备数量
+    private long _evicted = 0;
     private String _lastVisitDeviceAddress = null;
+    // 后台扫描参数
+    private MyScanOptions _backgroundScanOptions = new MyScanOptions();
 
     // 最后一次开关时间
     private long lastChangeTime = 0l;
@@ -50,8 +63,13 @@ final class MyBluetoothManager {
                         break;
                     case BluetoothAdapter.STATE_ON:
                         MyMethodRouter.me().callOnStateChange(1);
-                        // 蓝牙刚打开时，自动执行一次随机扫描。
-                        _backgroundScan();
+                        // 蓝牙刚打开时，自动执行一次随机扫描，广播在平台线程中接收，转到工作线程中执行。
+                        MyHandler.me().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                _backgroundScan();
+                            }
+                        });
                         break;
 //                    case BluetoothAdapter.STATE_TURNING_OFF:
 //                    case BluetoothAdapter.STATE_TURNING_ON:
@@ -87,13 +105,19 @@ final class MyBluetoothManager {
      * 资源释放逻辑
      */
     void destroy() {
-        if (null != this._deviceMap) {
-            Iterator<MyBluetoothDevice> _devices = this._deviceMap.values().iterator();
-            while (_devices.hasNext()) {
-                _devices.next().destroy();
+        MyHandler.me().removeCallback(MyHandler.ID_CONNECTION_POOL_SWEEP);
+        List<MyBluetoothDevice> _devices = null;
+        synchronized (this) {
+            if (null != this._deviceMap) {
+                _devices = new ArrayList<>(this._deviceMap.values());
+                this._deviceMap.clear();
+                this._deviceMap = null;
+            }
+        }
+        if (null != _devices) {
+            for (MyBluetoothDevice _device : _devices) {
+                _device.destroy();
             }
-            this._deviceMap.clear();
-            this._deviceMap = null;
         }
         this._leScanner = null;
         this._bluetoothAdapter = null;
@@ -178,12 +202,19 @@ final class MyBluetoothManager {
         if (null == address || 0 == (address = address.trim()).length())
             throw new IllegalArgumentException("device address can not be empty!");
         this._lastVisitDeviceAddress = address;
-        MyBluetoothDevice _myDevice = this._deviceMap.get(address);
-        if (null == _myDevice) {
-            BluetoothDevice _device = this._bluetoothAdapter.getRemoteDevice(address);
-            _myDevice = new MyBluetoothDevice(_device);
-            this._deviceMap.put(address, _myDevice);
+        MyBluetoothDevice _myDevice;
+        List<MyBluetoothDevice> _evicted = null;
+        synchronized (this) {
+            _myDevice = this._deviceMap.get(address);
+            if (null == _myDevice) {
+                BluetoothDevice _device = this._bluetoothAdapter.getRemoteDevice(address);
+                _myDevice = new MyBluetoothDevice(_device);
+                this._deviceMap.put(address, _myDevice);
+                if (this._deviceMap.size() > this._maxDevices) _evicted = _trimDevices();
+            }
         }
+        _myDevice.lastActiveTime = SystemClock.elapsedRealtime();
+        _release(_evicted, "too many devices");
         MyLog.debug("myDevice: {}", _myDevice);
         return _myDevice;
     }
@@ -197,13 +228,164 @@ final class MyBluetoothManager {
     public MyBluetoothDevice getDevice(String address) {
         if (null == address || 0 == (address = address.trim()).length())
             throw new IllegalArgumentException("device address can not be empty!");
-        return this._deviceMap.get(address);
+        synchronized (this) {
+            return this._deviceMap.get(address);
+        }
+    }
+
+    /**
+     * 设置连接池参数
+     *
+     * @param maxConnections 最大连接数量，达到上限时建立新连接会先断开最久未使用的设备，小于1时不限制。
+     * @param idleTimeout    空闲多久后断开连接并移除设备，单位：毫秒，小于1时不限制，开启了自动重连的设备除外。
+     * @param maxDevices     最多缓存的设备数量，超出时移除最久未使用的未连接设备，小于1时使用默认值。
+     */
+    void configureConnectionPool(int maxConnections, long idleTimeout, int maxDevices) {
+        List<MyBluetoothDevice> _evicted = null;
+        synchronized (this) {
+            this._maxConnections = Math.max(0, maxConnections);
+            this._idleTimeout = Math.max(0, idleTimeout);
+            this._maxDevices = 0 < maxDevices ? maxDevices : DEF_MAX_DEVICES;
+            if (null != this._deviceMap && this._deviceMap.size() > this._maxDevices) _evicted = _trimDevices();
+        }
+        _release(_evicted, "too many devices");
+        _scheduleSweep();
+    }
+
+    /**
+     * @return 连接池状态：maxConnections、idleTimeout、maxDevices、connections(占用连接的设备数量)、devices、evicted。
+     */
+    synchronized Map<String, Object> getConnectionPoolStats() {
+        int _live = 0;
+        int _devices = 0;
+        if (null != this._deviceMap) {
+            _devices = this._deviceMap.size();
+            for (MyBluetoothDevice _device : this._deviceMap.values()) {
+                if (_device.isLive()) _live++;
+            }
+        }
+        Map<String, Object> _data = new HashMap<>(8);
+        _data.put("maxConnections", this._maxConnections);
+        _data.put("idleTimeout", this._idleTimeout);
+        _data.put("maxDevices", this._maxDevices);
+        _data.put("connections", _live);
+        _data.put("devices", _devices);
+        _data.put("evicted", this._evicted);
+        return _data;
+    }
+
+    /**
+     * 建立连接前调用，连接数量达到上限时断开并移除最久未使用的空闲设备，正在执行操作(如文件传输、连续写入)的设备不会被断开。
+     *
+     * @param device 将要建立连接的设备
+     * @return 是否可以建立连接，空闲设备不足时返回false。
+     */
+    boolean reserveConnection(MyBluetoothDevice device) {
+        List<MyBluetoothDevice> _evicted = null;
+        synchronized (this) {
+            if (1 > this._maxConnections || null == this._deviceMap) return true;
+            List<MyBluetoothDevice> _idle = new ArrayList<>(this._deviceMap.size());
+            int _live = 0;
+            for (MyBluetoothDevice _device : this._deviceMap.values()) {
+                if (_device == device || !_device.isLive()) continue;
+                _live++;
+                if (!_device.isBusy()) _idle.add(_device);
+            }
+            if (_live < this._maxConnections) return true;
+            int _count = _live - this._maxConnections + 1;
+            if (_idle.size() < _count) {
+                MyLog.warn("connection pool is full, live: {}, idle: {}", _live, _idle.size());
+                return false;
+            }
+            _evicted = _leastRecentlyUsed(_idle, _count);
+            _removeAll(_evicted);
+        }
+        _release(_evicted, "connection pool is full");
+        return true;
+    }
+
+    // 移除超出数量上限的未连接设备，最久未使用的优先，返回被移除的设备。
+    private List<MyBluetoothDevice> _trimDevices() {
+        List<MyBluetoothDevice> _candidates = new ArrayList<>(this._deviceMap.size());
+        for (MyBluetoothDevice _device : this._deviceMap.values()) {
+            if (!_device.isLive() && _device.isIdle() && !_device.isAutoConnect()) _candidates.add(_device);
+        }
+        List<MyBluetoothDevice> _evicted = _leastRecentlyUsed(_candidates, this._deviceMap.size() - this._maxDevices);
+        _removeAll(_evicted);
+        return _evicted;
+    }
+
+    // 断开并移除空闲超时的设备，开启了自动重连的设备除外。
+    private void _sweep() {
+        List<MyBluetoothDevice> _evicted = new ArrayList<>();
+        synchronized (this) {
+            if (1 > this._idleTimeout || null == this._deviceMap) return;
+            long _now = SystemClock.elapsedRealtime();
+            for (MyBluetoothDevice _device : this._deviceMap.values()) {
+                if (_now - _device.lastActiveTime < this._idleTimeout) continue;
+                if (_device.isIdle() && !_device.isAutoConnect()) _evicted.add(_device);
+            }
+            _removeAll(_evicted);
+        }
+        _release(_evicted, "idle timeout");
+        _scheduleSweep();
+    }
+
+    // 开启空闲超时时定期检查
+    private void _scheduleSweep() {
+        long _idleTimeout = this._idleTimeout;
+        if (1 > _idleTimeout) {
+            MyHandler.me().removeCallback(MyHandler.ID_CONNECTION_POOL_SWEEP);
+            return;
+        }
+        MyHandler.me().delayed(MyHandler.ID_CONNECTION_POOL_SWEEP, Math.max(1000L, _idleTimeout / 2), new ICallback() {
+            @Override
+            public void execute(Object args) {
+                _sweep();
+            }
+        });
+    }
+
+    private void _removeAll(List<MyBluetoothDevice> devices) {
+        if (devices.isEmpty()) return;
+        Iterator<MyBluetoothDevice> _iterator = this._deviceMap.values().iterator();
+        while (_iterator.hasNext()) {
+            if (devices.contains(_iterator.next())) _iterator.remove();
+        }
+        this._evicted += devices.size();
+    }
+
+    // 释放已移除的设备
+    private static void _release(List<MyBluetoothDevice> devices, String reason) {
+        if (null == devices) return;
+        for (MyBluetoothDevice _device : devices) {
+            MyLog.debug("evict device {}: {}", _device.device, reason);
+            _device.destroy();
+        }
+    }
+
+    // 选出最久未使用的设备，使用时间在选择过程中可能变化，逐个选择而不排序。
+    private static List<MyBluetoothDevice> _leastRecentlyUsed(List<MyBluetoothDevice> candidates, int count) {
+        List<MyBluetoothDevice> _result = new ArrayList<>(Math.max(0, count));
+        while (_result.size() < count && !candidates.isEmpty()) {
+            int _oldest = 0;
+            long _oldestTime = candidates.get(0).lastActiveTime;
+            for (int _i = 1; _i < candidates.size(); _i++) {
+                long _time = candidates.get(_i).lastActiveTime;
+                if (_time < _oldestTime) {
+                    _oldest = _i;
+                    _oldestTime = _time;
+                }
+            }
+            _result.add(candidates.remove(_oldest));
+        }
+        return _result;
     }
 
     /**
      * 开始扫描
      */
-    public void startScan(String deviceName, String deviceAddress, int scanTimeout, final IReply reply) {
+    public void startScan(MyScanOptions options, final IReply reply) {
 
         if (!isEnabled())
             throw new MyBluetoothException(MyBluetoothException.CODE_BLUETOOTH_NOT_ENABLE, "please turn on bluetooth.");
@@ -214,7 +396,7 @@ final class MyBluetoothManager {
                 throw new IllegalStateException("BluetoothLeScanner can not be null!");
             this._leScanner.setBluetoothLeScanner(_scanner);
         }
-        this._leScanner.startScan(deviceName, deviceAddress, scanTimeout, reply);
+        this._leScanner.startScan(options, reply);
     }
 
     /**
@@ -230,7 +412,16 @@ final class MyBluetoothManager {
     private ScanCallback _backgroundScanCallback = null;
 
     /**
-     * 执行后台扫描
+     * 立即执行一次后台扫描，查找关注列表中的设备。
+     */
+    void scanWatchlist() {
+        if (!isEnabled())
+            throw new MyBluetoothException(MyBluetoothException.CODE_BLUETOOTH_NOT_ENABLE, "please turn on bluetooth.");
+        _backgroundScan();
+    }
+
+    /**
+     * 执行后台扫描：关注列表不为空时按关注列表过滤，否则查找最近一次访问的设备。
      */
     private void _backgroundScan() {
         if (null != this._backgroundScanCallback) {
@@ -247,41 +438,53 @@ final class MyBluetoothManager {
             return;
         }
 
+        final boolean _watching = !MyWatchlist.me().isEmpty();
+        // 扫描回调在平台线程中执行，转到工作线程中处理，与超时停止扫描的逻辑串行访问 _backgroundScanCallback。
         this._backgroundScanCallback = new ScanCallback() {
             @Override
-            public void onScanResult(int callbackType, ScanResult result) {
+            public void onScanResult(int callbackType, final ScanResult result) {
 //                MyLog.debug("background scan result: {}", result);
                 super.onScanResult(callbackType, result);
-                if (null != _lastVisitDeviceAddress) {
-                    BluetoothDevice _device = result.getDevice();
-                    if (null == _device) return;
-                    if (_lastVisitDeviceAddress.equals(_device.getAddress())) {
-                        MyLog.debug("stop background scan by find device: {}.", _lastVisitDeviceAddress);
-                        MyHandler.me().removeCallback(MyHandler.ID_BACKGROUND_SCAN_STOP);
-                        try {
-                            _leScanner.stopScan(_backgroundScanCallback);
-                        } catch (IllegalStateException e) {
-                            MyLog.debug("stopScan error: {}", e.getMessage());
+                final ScanCallback _callback = this;
+                MyHandler.me().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        _onBackgroundScanResult(_leScanner, _callback, result);
+                    }
+                });
+            }
+
+            @Override
+            public void onBatchScanResults(final List<ScanResult> results) {
+                super.onBatchScanResults(results);
+                final ScanCallback _callback = this;
+                MyHandler.me().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (ScanResult _result : results) {
+                            if (!_onBackgroundScanResult(_leScanner, _callback, _result)) return;
                         }
-                        _backgroundScanCallback = null;
                     }
-                }
+                });
             }
         };
 
         List<ScanFilter> _scanFilters = null;
 
-        if (null != this._lastVisitDeviceAddress) {
+        if (_watching) {
+            MyWatchlist.me().beginScan();
+            _scanFilters = MyWatchlist.me().buildFilters();
+            MyLog.debug("background scan with {} watchlist filters.", _scanFilters.size());
+        } else if (null != this._lastVisitDeviceAddress) {
             ScanFilter.Builder _filterBuilder = new ScanFilter.Builder();
             _filterBuilder.setDeviceAddress(this._lastVisitDeviceAddress);
             _scanFilters = new ArrayList<>();
             _scanFilters.add(_filterBuilder.build());
         }
 
-        ScanSettings.Builder _settingsBuilder = new ScanSettings.Builder();
-        _settingsBuilder.setScanMode(ScanSettings.SCAN_MODE_LOW_POWER);
-
-        _leScanner.startScan(_scanFilters, _settingsBuilder.build(), this._backgroundScanCallback);
+        // 后台扫描时间较短，自适应模式直接使用其初始扫描模式。
+        MyScanOptions _options = this._backgroundScanOptions;
+        _leScanner.startScan(_scanFilters, _options.buildSettings(_options.scanMode), this._backgroundScanCallback);
         long _delayMillis = null == _scanFilters ? 2000 : 30000;
         MyHandler.me().delayed(MyHandler.ID_BACKGROUND_SCAN_STOP, _delayMillis, new ICallback() {
             @Override
@@ -297,6 +500,47 @@ final class MyBluetoothManager {
         });
     }
 
+    // 处理后台扫描结果，找到所有目标设备时结束扫描并返回false。
+    private boolean _onBackgroundScanResult(BluetoothLeScanner leScanner, ScanCallback callback, ScanResult result) {
+        if (callback != this._backgroundScanCallback) return false;
+        MyScanCache.me().update(result);
+        boolean _found;
+        if (!MyWatchlist.me().isEmpty()) {
+            _found = MyWatchlist.me().onScanResult(result) && MyWatchlist.me().isComplete();
+        } else {
+            BluetoothDevice _device = result.getDevice();
+            _found = null != _lastVisitDeviceAddress && null != _device && _lastVisitDeviceAddress.equals(_device.getAddress());
+        }
+        if (!_found) return true;
+        MyLog.debug("stop background scan by find all target devices.");
+        MyHandler.me().removeCallback(MyHandler.ID_BACKGROUND_SCAN_STOP);
+        try {
+            leScanner.stopScan(callback);
+        } catch (IllegalStateException e) {
+            MyLog.debug("stopScan error: {}", e.getMessage());
+        }
+        this._backgroundScanCallback = null;
+        return false;
+    }
+
+    /**
+     * 设置后台扫描参数
+     *
+     * @param options 扫描参数
+     */
+    void setBackgroundScanOptions(MyScanOptions options) {
+        if (null == options) throw new IllegalArgumentException("options can not be null!");
+        this._backgroundScanOptions = options;
+    }
+
+    /**
+     * @return 控制器是否支持缓存扫描结果后批量上报
+     */
+    boolean isOffloadedScanBatchingSupported() {
+        BluetoothAdapter _adapter = _getBluetoothAdapter();
+        return null != _adapter && _adapter.isOffloadedScanBatchingSupported();
+    }
+
     /**
      * @return 获取蓝牙适配器
      */
@@ -0,0 +1,211 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备特征索引，按(服务UUID, 特征UUID, 实例标识)区分特征，发现服务后按发现顺序分配整数句柄。
+ * <p>
+ * 特征标识：特征UUID在设备中唯一时为特征UUID，否则为"服务UUID/特征UUID/实例标识"。
+ * 通知回调通过特征对象的同一性查找，避免每次通知都转换UUID字符串。
+ * 句柄引用("#句柄")可以代替特征标识传递给操作，在操作执行时才查找，此时排在前面的发现服务操作已经完成。
+ */
+final class MyCharacteristicIndex {
+
+    /// 句柄引用前缀，特征UUID不会以此开头。
+    static final String HANDLE_REF_PREFIX = "#";
+
+    // 句柄 -> 条目
+    private final List<Entry> _entries = new ArrayList<>(16);
+    // 特征标识 -> 条目，特征UUID同时也映射到第一个匹配的条目。
+    private final Map<String, Entry> _ids = new HashMap<>(32, 1.0f);
+    // 特征对象 -> 条目
+    private final Map<BluetoothGattCharacteristic, Entry> _identities = new IdentityHashMap<>(16);
+
+    /**
+     * 根据已发现的服务重建索引，结构不变时句柄不变。
+     *
+     * @param services 已发现的服务
+     */
+    synchronized void build(List<BluetoothGattService> services) {
+        clear();
+        Map<String, Integer> _counts = _countUuids(services);
+        for (BluetoothGattService _service : services) {
+            String _serviceId = _service.getUuid().toString();
+            for (BluetoothGattCharacteristic _characteristic : _service.getCharacteristics()) {
+                String _uuid = _characteristic.getUuid().toString();
+                String _id = 1 == _counts.get(_uuid) ? _uuid : qualify(_serviceId, _uuid, _characteristic.getInstanceId());
+                Entry _entry = new Entry(this._entries.size(), _id, _uuid, _serviceId, _characteristic);
+                this._entries.add(_entry);
+                this._ids.put(_id, _entry);
+                if (!this._ids.containsKey(_uuid)) this._ids.put(_uuid, _entry);
+                this._identities.put(_characteristic, _entry);
+            }
+        }
+    }
+
+    /**
+     * 清空索引
+     */
+    synchronized void clear() {
+        this._entries.clear();
+        this._ids.clear();
+        this._identities.clear();
+    }
+
+    /**
+     * @return 特征数量
+     */
+    synchronized int size() {
+        return this._entries.size();
+    }
+
+    /**
+     * 根据句柄查找
+     *
+     * @param handle 句柄
+     * @return 条目，不存在时返回null。
+     */
+    synchronized Entry get(int handle) {
+        return 0 <= handle && handle < this._entries.size() ? this._entries.get(handle) : null;
+    }
+
+    /**
+     * 根据特征标识查找，也可以使用特征UUID查找第一个匹配的特征，或使用句柄引用按句柄查找。
+     *
+     * @param characteristicId 特征标识或句柄引用
+     * @return 条目，不存在时返回null。
+     */
+    synchronized Entry get(String characteristicId) {
+        if (null == characteristicId) return null;
+        if (isHandleRef(characteristicId)) return get(_parseHandle(characteristicId));
+        return this._ids.get(characteristicId);
+    }
+
+    /**
+     * 根据特征对象查找
+     *
+     * @param characteristic 特征对象
+     * @return 条目，不存在时返回null。
+     */
+    synchronized Entry get(BluetoothGattCharacteristic characteristic) {
+        return this._identities.get(characteristic);
+    }
+
+    /**
+     * @return 所有特征的描述信息，按句柄排序。
+     */
+    synchronized List<Map<String, Object>> toList() {
+        List<Map<String, Object>> _result = new ArrayList<>(this._entries.size());
+        for (Entry _entry : this._entries) {
+            Map<String, Object> _data = new HashMap<>(8);
+            _data.put("handle", _entry.handle);
+            _data.put("characteristicId", _entry.id);
+            _data.put("uuid", _entry.uuid);
+            _data.put("serviceId", _entry.serviceId);
+            _data.put("instanceId", _entry.characteristic.getInstanceId());
+            _data.put("properties", _entry.characteristic.getProperties());
+            _result.add(_data);
+        }
+        return _result;
+    }
+
+    /**
+     * 获取服务中所有特征的标识，按句柄排序。
+     *
+     * @param services 已发现的服务
+     * @return 特征标识列表
+     */
+    static List<String> ids(List<BluetoothGattService> services) {
+        Map<String, Integer> _counts = _countUuids(services);
+        List<String> _ids = new ArrayList<>(16);
+        for (BluetoothGattService _service : services) {
+            for (BluetoothGattCharacteristic _characteristic : _service.getCharacteristics()) {
+                String _uuid = _characteristic.getUuid().toString();
+                _ids.add(1 == _counts.get(_uuid) ? _uuid : qualify(_service.getUuid().toString(), _uuid, _characteristic.getInstanceId()));
+            }
+        }
+        return _ids;
+    }
+
+    /**
+     * 构建句柄引用
+     *
+     * @param handle 句柄
+     * @return 句柄引用
+     */
+    static String handleRef(int handle) {
+        return HANDLE_REF_PREFIX + handle;
+    }
+
+    /**
+     * @param characteristicId 特征标识或句柄引用
+     * @return 是否为句柄引用
+     */
+    static boolean isHandleRef(String characteristicId) {
+        return null != characteristicId && characteristicId.startsWith(HANDLE_REF_PREFIX);
+    }
+
+    // 解析句柄引用，格式错误时返回-1。
+    private static int _parseHandle(String ref) {
+        try {
+            return Integer.parseInt(ref.substring(HANDLE_REF_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 构建限定的特征标识
+     */
+    static String qualify(String serviceId, String uuid, int instanceId) {
+        return new StringBuilder(80).append(serviceId).append('/').append(uuid).append('/').append(instanceId).toString();
+    }
+
+    // 统计各特征UUID出现的次数
+    private static Map<String, Integer> _countUuids(List<BluetoothGattService> services) {
+        Map<String, Integer> _counts = new HashMap<>(32, 1.0f);
+        for (BluetoothGattService _service : services) {
+            for (BluetoothGattCharacteristic _characteristic : _service.getCharacteristics()) {
+                String _uuid = _characteristic.getUuid().toString();
+                Integer _count = _counts.get(_uuid);
+                _counts.put(_uuid, null == _count ? 1 : _count + 1);
+            }
+        }
+        return _counts;
+    }
+
+    /**
+     * 索引条目，字符串均在建立索引时预先计算。
+     */
+    static final class Entry {
+        final int handle;
+        // 特征标识
+        final String id;
+        // 特征UUID
+        final String uuid;
+        // 服务UUID
+        final String serviceId;
+        final BluetoothGattCharacteristic characteristic;
+
+        Entry(int handle, String id, String uuid, String serviceId, BluetoothGattCharacteristic characteristic) {
+            this.handle = handle;
+            this.id = id;
+            this.uuid = uuid;
+            this.serviceId = serviceId;
+            this.characteristic = characteristic;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{handle:" + handle + ", id:" + id + "}";
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.os.SystemClock;
+
+import java.io.ObjectStreamException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GATT事件日志，固定容量的环形缓冲区，记录连接、服务发现、读写、通知、操作超时与扫描等事件。
+ * <p>
+ * 每个事件按列保存在基本类型数组中：时间(开机时长，单位：纳秒)、设备地址(48位整数)、事件类型与3个整数参数，
+ * 记录时不创建对象，可以在现场设备上长期开启。缓冲区已满时覆盖最早的事件。
+ */
+final class MyEventJournal {
+
+    // 默认容量
+    static final int DEF_CAPACITY = 2048;
+    // 最大容量
+    static final int MAX_CAPACITY = 65536;
+
+    /// 连接状态变化，a：状态码，b：新状态。
+    static final byte TYPE_CONNECTION_STATE = 1;
+    /// 服务发现完成，a：状态码，b：特征数量。
+    static final byte TYPE_SERVICES_DISCOVERED = 2;
+    /// 特征读取结果，a：特征句柄，b：状态码，c：数据长度。
+    static final byte TYPE_READ = 3;
+    /// 特征写入结果，a：特征句柄，b：状态码，c：数据长度。
+    static final byte TYPE_WRITE = 4;
+    /// 特征通知，a：特征句柄，c：数据长度。
+    static final byte TYPE_NOTIFY = 5;
+    /// 描述符写入结果，b：状态码。
+    static final byte TYPE_DESCRIPTOR_WRITE = 6;
+    /// 读取信号强度结果，b：状态码，c：信号强度。
+    static final byte TYPE_RSSI = 7;
+    /// MTU变化，b：状态码，c：MTU。
+    static final byte TYPE_MTU = 8;
+    /// 开始执行GATT操作，a：操作类型，c：等待执行的操作数量。
+    static final byte TYPE_OPERATION = 9;
+    /// GATT操作超时，a：操作类型，c：超时时间(毫秒)。
+    static final byte TYPE_OPERATION_TIMEOUT = 10;
+    /// 开始扫描，a：扫描模式，c：批量上报间隔(毫秒)。
+    static final byte TYPE_SCAN_START = 11;
+    /// 停止扫描，c：扫描到的设备数量。
+    static final byte TYPE_SCAN_STOP = 12;
+    /// 扫描失败，b：错误码。
+    static final byte TYPE_SCAN_FAILED = 13;
+    /// 请求断开连接
+    static final byte TYPE_DISCONNECT = 14;
+    /// 设备服务变化
+    static final byte TYPE_SERVICE_CHANGED = 15;
+    /// 自动重连成功，a：直连次数，b：是否由后台自动连接建立(1)，c：重连耗时(毫秒)。
+    static final byte TYPE_RECONNECT = 16;
+
+    // 是否记录事件
+    private volatile boolean _enabled = true;
+    private long[] _times;
+    private long[] _addresses;
+    private byte[] _types;
+    private int[] _a;
+    private int[] _b;
+    private int[] _c;
+    // 下一个事件的序号，从1开始，事件位置为 (序号 - 1) % 容量。
+    private long _sequence = 1;
+    // 缓冲区中第一个有效事件的序号，清空后之前的事件不再导出。
+    private long _first = 1;
+
+    /**
+     * 记录事件
+     *
+     * @param type    事件类型
+     * @param address 设备地址，参考 {@link #address(String)}，与设备无关时为0。
+     * @param a       参数a
+     * @param b       参数b
+     * @param c       参数c
+     */
+    void record(byte type, long address, int a, int b, int c) {
+        if (!this._enabled) return;
+        long _time = SystemClock.elapsedRealtimeNanos();
+        synchronized (this) {
+            int _index = (int) ((this._sequence - 1) % this._types.length);
+            this._times[_index] = _time;
+            this._addresses[_index] = address;
+            this._types[_index] = type;
+            this._a[_index] = a;
+            this._b[_index] = b;
+            this._c[_index] = c;
+            this._sequence++;
+        }
+    }
+
+    /**
+     * 设置是否记录事件与缓冲区容量，容量变化时清空已记录的事件。
+     *
+     * @param enabled  是否记录事件
+     * @param capacity 缓冲区容量，小于1时不改变。
+     */
+    synchronized void configure(boolean enabled, int capacity) {
+        this._enabled = enabled;
+        if (0 < capacity && Math.min(capacity, MAX_CAPACITY) != this._types.length) _allocate(Math.min(capacity, MAX_CAPACITY));
+    }
+
+    /**
+     * 清空已记录的事件，序号继续递增。
+     */
+    synchronized void clear() {
+        _allocate(this._types.length);
+    }
+
+    /**
+     * 导出事件，可以传递上次导出返回的序号增量导出。
+     *
+     * @param since 从此序号开始导出，小于1时导出全部事件。
+     * @return 导出结果：sequence(下次导出的起始序号)、capacity、lost(已被覆盖而无法导出的事件数量)、
+     * times、addresses、types、a、b、c，各数组按时间顺序排列且长度相同。
+     */
+    synchronized Map<String, Object> dump(long since) {
+        int _capacity = this._types.length;
+        long _oldest = Math.max(this._first, this._sequence - _capacity);
+        long _start = Math.max(_oldest, since);
+        int _count = (int) Math.max(0, this._sequence - _start);
+        long[] _times = new long[_count];
+        long[] _addresses = new long[_count];
+        byte[] _types = new byte[_count];
+        int[] _a = new int[_count];
+        int[] _b = new int[_count];
+        int[] _c = new int[_count];
+        for (int _i = 0; _i < _count; _i++) {
+            int _index = (int) ((_start + _i - 1) % _capacity);
+            _times[_i] = this._times[_index];
+            _addresses[_i] = this._addresses[_index];
+            _types[_i] = this._types[_index];
+            _a[_i] = this._a[_index];
+            _b[_i] = this._b[_index];
+            _c[_i] = this._c[_index];
+        }
+        Map<String, Object> _result = new HashMap<>(16);
+        _result.put("sequence", this._sequence);
+        _result.put("capacity", _capacity);
+        _result.put("lost", since > 0 && since < _oldest ? _oldest - since : 0L);
+        // 开机时长与当前时间的差值，用于将事件时间转换为当前时间。
+        _result.put("bootTime", System.currentTimeMillis() - SystemClock.elapsedRealtime());
+        _result.put("times", _times);
+        _result.put("addresses", _addresses);
+        _result.put("types", _types);
+        _result.put("a", _a);
+        _result.put("b", _b);
+        _result.put("c", _c);
+        return _result;
+    }
+
+    /**
+     * 将设备地址转换为48位整数，格式不正确时返回0。
+     *
+     * @param address 设备地址，如：AA:BB:CC:DD:EE:FF。
+     * @return 48位整数
+     */
+    static long address(String address) {
+        if (null == address) return 0L;
+        long _result = 0L;
+        int _digits = 0;
+        for (int _i = 0; _i < address.length(); _i++) {
+            char _ch = address.charAt(_i);
+            if (':' == _ch) continue;
+            int _value = Character.digit(_ch, 16);
+            if (-1 == _value || 12 == _digits) return 0L;
+            _result = (_result << 4) | _value;
+            _digits++;
+        }
+        return 12 == _digits ? _result : 0L;
+    }
+
+    private void _allocate(int capacity) {
+        this._times = new long[capacity];
+        this._addresses = new long[capacity];
+        this._types = new byte[capacity];
+        this._a = new int[capacity];
+        this._b = new int[capacity];
+        this._c = new int[capacity];
+        this._first = this._sequence;
+    }
+
+    /************************************************************
+     ************* 单例对象。
+     ************************************************************/
+    private MyEventJournal() {
+        if (null != MyEventJournalHolder._INSTANCE) {
+            // 防止使用反射API创建对象实例。
+            throw new IllegalStateException("that's not allowed!");
+        }
+        _allocate(DEF_CAPACITY);
+    }
+
+    // 当前对象唯一实例持有者。
+    private static final class MyEventJournalHolder {
+        private static final MyEventJournal _INSTANCE = new MyEventJournal();
+    }
+
+    // 防止使用反序列化操作获取多个对象实例。
+    private Object readResolve() throws ObjectStreamException {
+        return MyEventJournalHolder._INSTANCE;
+    }
+
+    /**
+     * 获取当前对象唯一实例。
+     *
+     * @return 当前对象唯一实例
+     */
+    public static MyEventJournal me() {
+        return MyEventJournalHolder._INSTANCE;
+    }
+}
@@ -0,0 +1,317 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 文件传输操作，将文件映射到内存后按MTU分片，以无需响应的方式写入特征，适用于固件升级等大块数据传输。
+ * <p>
+ * 指定了确认特征时按窗口分块发送：每发送 window 个分片后等待设备在确认特征上的通知，
+ * 通知数据为4字节小端序的偏移量，表示设备已接收并保存的字节数(即下一个期望的偏移量)。
+ * 偏移量小于已发送的位置时从该偏移量重新发送，等待确认超时时操作失败。
+ * 未指定确认特征时以协议栈接收的字节数作为已确认的偏移量。
+ * <p>
+ * 进度通过 {@link MyMethodRouter#callOnCharacteristicWriteProgress} 通知，其中的字节数为已确认的偏移量，
+ * 传输中断后可以从该偏移量继续传输。
+ */
+class MyFileTransfer extends MyGattOperation {
+
+    // 默认窗口大小，单位：分片。
+    static final int DEF_WINDOW = 16;
+
+    final MyBluetoothDevice device;
+    final String characteristicId;
+    // 确认特征标识，为null时不等待确认。
+    final String ackCharacteristicId;
+    final String path;
+    // 起始偏移量，用于继续传输。
+    final int offset;
+    // 每次等待确认前发送的分片数
+    final int window;
+
+    private BluetoothGattCharacteristic _characteristic;
+    // 执行时转换的特征标识与确认特征标识
+    private String _characteristicId;
+    private volatile String _ackId;
+    // 执行时的特征句柄，用于进度通知，没有时为-1。
+    private int _handle = -1;
+    // 映射的文件数据，position为下一个分片的起始位置。
+    private MappedByteBuffer _source;
+    // 文件长度
+    private int _total = 0;
+    // 当前分片数据，分片长度不变时复用。
+    private byte[] _chunk;
+    // 已确认的偏移量
+    private int _acked;
+    // 当前块的结束位置
+    private int _blockEnd = 0;
+    // 是否正在等待确认
+    private boolean _awaitingAck = false;
+    // 发送当前块期间收到的确认，没有时为-1。
+    private int _pendingAck = -1;
+    // 重新发送的次数
+    private int _retransmits = 0;
+    private long _startTime = 0;
+    private long _lastProgressTime = 0;
+    private long _backoff = MyWriteStream.DEF_MIN_BACKOFF;
+    private int _retries = 0;
+    private int _status = BluetoothGatt.GATT_SUCCESS;
+    // 失败原因，成功时为null。
+    private String _error = null;
+    private boolean _finished = false;
+
+    // 退避重试任务
+    private final Runnable _retryTask = new Runnable() {
+        @Override
+        public void run() {
+            if (_finished) return;
+            if (!_writeChunk()) {
+                device.operationQueue.fail(MyGattOperation.TYPE_FILE_TRANSFER, "file transfer stalled after " + _retries + " retries.");
+            }
+        }
+    };
+
+    MyFileTransfer(MyBluetoothDevice device, String characteristicId, String path, int offset, int window, String ackCharacteristicId, long timeout, IReply reply) {
+        super(MyGattOperation.TYPE_FILE_TRANSFER, reply, 0 < timeout ? timeout : MyGattOperation.DEF_TIMEOUT);
+        if (null == device) throw new IllegalArgumentException("device can not be null!");
+        if (null == path || 0 == path.length()) throw new IllegalArgumentException("path can not be empty!");
+        if (0 > offset) throw new IllegalArgumentException("offset can not be negative!");
+        this.device = device;
+        this.characteristicId = characteristicId;
+        this.path = path;
+        this.offset = offset;
+        this.window = 0 < window ? window : DEF_WINDOW;
+        this.ackCharacteristicId = ackCharacteristicId;
+        this._acked = offset;
+    }
+
+    @Override
+    boolean execute() {
+        this._characteristic = this.device._getCharacteristic(this.characteristicId);
+        if (null == this._characteristic) {
+            fail("characteristic not found: " + this.characteristicId);
+            return false;
+        }
+        if (null != this.ackCharacteristicId && null == this.device._getCharacteristic(this.ackCharacteristicId)) {
+            fail("ack characteristic not found: " + this.ackCharacteristicId);
+            return false;
+        }
+        this._characteristicId = this.device.resolveCharacteristicId(this.characteristicId);
+        MyCharacteristicIndex.Entry _entry = this.device.characteristicIndex.get(this._characteristic);
+        this._handle = null == _entry ? -1 : _entry.handle;
+        this._ackId = this.device.resolveCharacteristicId(this.ackCharacteristicId);
+        if (null != this.ackCharacteristicId && !this.device.isNotifying(this._ackId)) {
+            fail("ack characteristic notification not enabled: " + this.ackCharacteristicId);
+            return false;
+        }
+        try {
+            this._source = _map(this.path);
+        } catch (IOException e) {
+            fail("could not map file: " + e.getMessage());
+            return false;
+        }
+        this._total = this._source.capacity();
+        if (this.offset > this._total) {
+            fail("offset " + this.offset + " is beyond file length " + this._total + "!");
+            return false;
+        }
+        this._source.position(this.offset);
+        this._characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+        this._startTime = SystemClock.elapsedRealtime();
+        if (!this._source.hasRemaining()) {
+            success(_result());
+            return false;
+        }
+        this.device._transfer = this;
+        _beginBlock();
+        if (!_writeChunk()) {
+            fail("could not write characteristic: " + this.characteristicId);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    boolean accept(int callbackType) {
+        return MyGattOperation.TYPE_CHARACTERISTIC_WRITE == callbackType || MyGattOperation.TYPE_TRANSFER_ACK == callbackType || super.accept(callbackType);
+    }
+
+    @Override
+    boolean proceed(Object data) {
+        if (data instanceof byte[]) return _onAck((byte[]) data);
+        this._status = (Integer) data;
+        if (BluetoothGatt.GATT_SUCCESS != this._status) return false;
+        // 上一个分片已被协议栈接收
+        this._source.position(this._source.position() + this._chunk.length);
+        if (null == this.ackCharacteristicId) {
+            this._acked = this._source.position();
+            _progress(false);
+            if (!this._source.hasRemaining()) return false;
+            return _writeChunk();
+        }
+        if (this._source.position() < this._blockEnd) return _writeChunk();
+        // 当前块已发送完，等待确认。
+        this._awaitingAck = true;
+        if (0 > this._pendingAck) return true;
+        int _ack = this._pendingAck;
+        this._pendingAck = -1;
+        return _handleAck(_ack);
+    }
+
+    @Override
+    void done(Object data) {
+        _release();
+        if (null == this._error && BluetoothGatt.GATT_SUCCESS != this._status)
+            this._error = "file transfer failed, status: " + this._status;
+        if (null != this._error) {
+            error(IReply.DEF_ERROR_CODE, this._error + ", resume from offset: " + this._acked);
+            return;
+        }
+        success(_result());
+    }
+
+    @Override
+    void timeout() {
+        fail(this._awaitingAck ? "ack timeout" : "timeout");
+    }
+
+    @Override
+    void fail(String message) {
+        _release();
+        super.fail(message + ", resume from offset: " + this._acked);
+    }
+
+    /**
+     * @return 执行时转换的确认特征标识，未指定确认特征或尚未执行时返回null。
+     */
+    String ackId() {
+        return this._ackId;
+    }
+
+    /**
+     * @return 单个分片的最大长度
+     */
+    int chunkSize() {
+        return this.device.mtu - BluetoothConstants.ATT_WRITE_HEADER_SIZE;
+    }
+
+    // 处理确认通知，当前块未发送完时暂存，发送完后处理。
+    private boolean _onAck(byte[] value) {
+        if (null == value || 4 > value.length) {
+            MyLog.warn("ignore invalid ack: {}", value);
+            return true;
+        }
+        int _ack = (value[0] & 0xFF) | (value[1] & 0xFF) << 8 | (value[2] & 0xFF) << 16 | (value[3] & 0xFF) << 24;
+        if (!this._awaitingAck) {
+            this._pendingAck = _ack;
+            return true;
+        }
+        return _handleAck(_ack);
+    }
+
+    // 根据设备确认的偏移量继续发送下一块，或从该偏移量重新发送。
+    private boolean _handleAck(int ack) {
+        if (0 > ack || ack > this._source.position()) {
+            this._error = "invalid ack offset: " + (ack & 0xFFFFFFFFL);
+            return false;
+        }
+        this._awaitingAck = false;
+        this._acked = ack;
+        _progress(false);
+        if (ack >= this._total) return false;
+        if (ack < this._source.position()) {
+            MyLog.debug("retransmit {} from offset {}, sent: {}", this.path, ack, this._source.position());
+            this._retransmits++;
+            this._source.position(ack);
+        }
+        _beginBlock();
+        return _writeChunk();
+    }
+
+    // 开始发送新的一块
+    private void _beginBlock() {
+        long _end = this._source.position() + (long) this.window * chunkSize();
+        this._blockEnd = null == this.ackCharacteristicId ? this._total : (int) Math.min(this._total, _end);
+    }
+
+    // 写入下一个分片，协议栈繁忙时安排退避重试，重试次数超过上限时返回false。
+    private boolean _writeChunk() {
+        int _size = Math.min(chunkSize(), this._blockEnd - this._source.position());
+        if (null == this._chunk || this._chunk.length != _size) this._chunk = new byte[_size];
+        // 直接从映射的内存读取到分片，确认写入后才移动position。
+        int _position = this._source.position();
+        this._source.get(this._chunk);
+        this._source.position(_position);
+        this._characteristic.setValue(this._chunk);
+        if (null != this.device.gatt1 && this.device.gatt1.writeCharacteristic(this._characteristic)) {
+            this._retries = 0;
+            this._backoff = MyWriteStream.DEF_MIN_BACKOFF;
+            return true;
+        }
+        if (++this._retries > MyWriteStream.DEF_MAX_RETRIES) {
+            this._status = BluetoothGatt.GATT_FAILURE;
+            return false;
+        }
+        MyHandler.me().post(this._retryTask, this._backoff);
+        this._backoff = Math.min(this._backoff << 1, MyWriteStream.DEF_MAX_BACKOFF);
+        return true;
+    }
+
+    // 结束传输，停止重试并通知最终进度。
+    private void _release() {
+        if (this._finished) return;
+        this._finished = true;
+        MyHandler.me().remove(this._retryTask);
+        if (this == this.device._transfer) this.device._transfer = null;
+        if (0 < this._startTime) _progress(true);
+    }
+
+    // 通知传输进度，非强制通知时按最小间隔限流。
+    private void _progress(boolean force) {
+        long _now = SystemClock.elapsedRealtime();
+        if (!force && _now - this._lastProgressTime < MyWriteStream.DEF_PROGRESS_INTERVAL) return;
+        this._lastProgressTime = _now;
+        MyMethodRouter.me().callOnCharacteristicWriteProgress(this.device.device.getAddress(), this._handle, this._characteristicId, this._acked, this._total, _bytesPerSecond(_now));
+    }
+
+    // 计算本次传输的速率，单位：字节/秒。
+    private long _bytesPerSecond(long now) {
+        long _elapsed = now - this._startTime;
+        return _elapsed > 0 ? (this._acked - this.offset) * 1000L / _elapsed : 0;
+    }
+
+    // 构建传输结果
+    private Map<String, Object> _result() {
+        long _now = SystemClock.elapsedRealtime();
+        Map<String, Object> _data = new HashMap<>(8);
+        _data.put("bytes", this._acked - this.offset);
+        _data.put("offset", this._acked);
+        _data.put("total", this._total);
+        _data.put("retransmits", this._retransmits);
+        _data.put("elapsed", _now - this._startTime);
+        _data.put("bytesPerSecond", _bytesPerSecond(_now));
+        return _data;
+    }
+
+    // 只读映射文件，映射在通道关闭后仍然有效。
+    private static MappedByteBuffer _map(String path) throws IOException {
+        RandomAccessFile _file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel _channel = _file.getChannel();
+            long _size = _channel.size();
+            if (Integer.MAX_VALUE < _size) throw new IOException("file too large: " + _size);
+            return _channel.map(FileChannel.MapMode.READ_ONLY, 0, _size);
+        } finally {
+            _file.close();
+        }
+    }
+
+}
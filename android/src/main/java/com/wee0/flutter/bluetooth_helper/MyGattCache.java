@@ -0,0 +1,222 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备GATT结构缓存，按设备地址与固件版本持久化已发现的服务、特征与描述符结构，
+ * 重新连接后可以立即回复发现服务的结果，真正的服务发现仍在操作队列中执行。
+ */
+final class MyGattCache {
+
+    // 持久化存储名称
+    static final String PREFERENCES_NAME = "bluetooth_helper_gatt_cache";
+
+    // 设备地址 -> 缓存条目，首次访问时从持久化存储加载。
+    private Map<String, Entry> _entries = null;
+
+    /**
+     * 获取缓存的特征标识列表
+     *
+     * @param address          设备地址
+     * @param firmwareRevision 固件版本，与缓存的固件版本不一致时缓存无效。
+     * @return 特征标识列表，没有有效缓存时返回null。
+     */
+    synchronized List<String> get(String address, String firmwareRevision) {
+        Entry _entry = _load().get(address);
+        if (null == _entry) return null;
+        if (!_equals(firmwareRevision, _entry.firmwareRevision)) {
+            MyLog.debug("device {} firmware revision changed: {} -> {}, invalidate gatt cache.", address, _entry.firmwareRevision, firmwareRevision);
+            invalidate(address);
+            return null;
+        }
+        return _entry.characteristicIds;
+    }
+
+    /**
+     * 保存服务发现结果
+     *
+     * @param address          设备地址
+     * @param firmwareRevision 固件版本
+     * @param services         已发现的服务
+     * @return 与缓存的结构是否不一致，没有缓存时返回true。
+     */
+    synchronized boolean put(String address, String firmwareRevision, List<BluetoothGattService> services) {
+        String _layout = layout(services);
+        Entry _old = _load().get(address);
+        if (null != _old && _layout.equals(_old.layout) && _equals(firmwareRevision, _old.firmwareRevision)) return false;
+        Entry _entry = new Entry(firmwareRevision, _layout, characteristicIds(services));
+        this._entries.put(address, _entry);
+        SharedPreferences _preferences = _preferences();
+        if (null != _preferences) {
+            try {
+                _preferences.edit().putString(address, _entry.toJson()).apply();
+            } catch (JSONException e) {
+                MyLog.warn("save gatt cache of {} error: {}", address, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 使指定设备的缓存失效
+     *
+     * @param address 设备地址
+     */
+    synchronized void invalidate(String address) {
+        if (null == _load().remove(address)) return;
+        SharedPreferences _preferences = _preferences();
+        if (null != _preferences) _preferences.edit().remove(address).apply();
+    }
+
+    /**
+     * 获取服务中的特征标识列表，按句柄顺序排列。
+     *
+     * @param services 已发现的服务
+     * @return 特征标识列表
+     */
+    static List<String> characteristicIds(List<BluetoothGattService> services) {
+        return MyCharacteristicIndex.ids(services);
+    }
+
+    /**
+     * 构建GATT结构描述，用于持久化与比较。
+     *
+     * @param services 已发现的服务
+     * @return 结构描述
+     */
+    static String layout(List<BluetoothGattService> services) {
+        JSONArray _services = new JSONArray();
+        try {
+            for (BluetoothGattService _service : services) {
+                JSONArray _characteristics = new JSONArray();
+                for (BluetoothGattCharacteristic _characteristic : _service.getCharacteristics()) {
+                    JSONArray _descriptors = new JSONArray();
+                    for (BluetoothGattDescriptor _descriptor : _characteristic.getDescriptors()) {
+                        _descriptors.put(_descriptor.getUuid().toString());
+                    }
+                    JSONObject _item = new JSONObject();
+                    _item.put("uuid", _characteristic.getUuid().toString());
+                    _item.put("instanceId", _characteristic.getInstanceId());
+                    _item.put("properties", _characteristic.getProperties());
+                    _item.put("descriptors", _descriptors);
+                    _characteristics.put(_item);
+                }
+                JSONObject _item = new JSONObject();
+                _item.put("uuid", _service.getUuid().toString());
+                _item.put("instanceId", _service.getInstanceId());
+                _item.put("type", _service.getType());
+                _item.put("characteristics", _characteristics);
+                _services.put(_item);
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+        return _services.toString();
+    }
+
+    private static boolean _equals(String a, String b) {
+        return null == a ? null == b : a.equals(b);
+    }
+
+    private static SharedPreferences _preferences() {
+        Context _context = PlatformHelper.me().getApplication();
+        return null == _context ? null : _context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    // 从持久化存储加载缓存，解析失败的条目直接丢弃。
+    private Map<String, Entry> _load() {
+        if (null != this._entries) return this._entries;
+        this._entries = new HashMap<>(16, 1.0f);
+        SharedPreferences _preferences = _preferences();
+        if (null == _preferences) return this._entries;
+        for (Map.Entry<String, ?> _item : _preferences.getAll().entrySet()) {
+            try {
+                this._entries.put(_item.getKey(), Entry.fromJson(String.valueOf(_item.getValue())));
+            } catch (JSONException e) {
+                MyLog.debug("drop gatt cache of {}: {}", _item.getKey(), e.getMessage());
+            }
+        }
+        return this._entries;
+    }
+
+    /**
+     * 缓存条目
+     */
+    static final class Entry {
+        final String firmwareRevision;
+        final String layout;
+        final List<String> characteristicIds;
+
+        Entry(String firmwareRevision, String layout, List<String> characteristicIds) {
+            this.firmwareRevision = firmwareRevision;
+            this.layout = layout;
+            this.characteristicIds = characteristicIds;
+        }
+
+        String toJson() throws JSONException {
+            JSONArray _ids = new JSONArray();
+            for (String _id : this.characteristicIds) {
+                _ids.put(_id);
+            }
+            JSONObject _data = new JSONObject();
+            _data.put("firmwareRevision", this.firmwareRevision);
+            _data.put("layout", this.layout);
+            _data.put("characteristicIds", _ids);
+            return _data.toString();
+        }
+
+        static Entry fromJson(String json) throws JSONException {
+            JSONObject _data = new JSONObject(json);
+            JSONArray _ids = _data.getJSONArray("characteristicIds");
+            List<String> _characteristicIds = new ArrayList<>(_ids.length());
+            for (int _i = 0; _i < _ids.length(); _i++) {
+                _characteristicIds.add(_ids.getString(_i));
+            }
+            String _firmwareRevision = _data.has("firmwareRevision") ? _data.getString("firmwareRevision") : null;
+            return new Entry(_firmwareRevision, _data.getString("layout"), _characteristicIds);
+        }
+    }
+
+    /************************************************************
+     ************* 单例对象。
+     ************************************************************/
+    private MyGattCache() {
+        if (null != MyGattCacheHolder._INSTANCE) {
+            // 防止使用反射API创建对象实例。
+            throw new IllegalStateException("that's not allowed!");
+        }
+    }
+
+    // 当前对象唯一实例持有者。
+    private static final class MyGattCacheHolder {
+        private static final MyGattCache _INSTANCE = new MyGattCache();
+    }
+
+    // 防止使用反序列化操作获取多个对象实例。
+    private Object readResolve() throws ObjectStreamException {
+        return MyGattCacheHolder._INSTANCE;
+    }
+
+    /**
+     * 获取当前对象唯一实例。
+     *
+     * @return 当前对象唯一实例
+     */
+    public static MyGattCache me() {
+        return MyGattCacheHolder._INSTANCE;
+    }
+}
@@ -0,0 +1,205 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothGatt;
+
+/**
+ * GATT操作，由设备的操作队列串行执行。
+ */
+abstract class MyGattOperation {
+
+    /**
+     * 建立连接
+     */
+    static final int TYPE_CONNECT = 1;
+
+    /**
+     * 发现服务
+     */
+    static final int TYPE_DISCOVER_SERVICES = 2;
+
+    /**
+     * 读取特征
+     */
+    static final int TYPE_CHARACTERISTIC_READ = 3;
+
+    /**
+     * 写入特征
+     */
+    static final int TYPE_CHARACTERISTIC_WRITE = 4;
+
+    /**
+     * 写入描述符
+     */
+    static final int TYPE_DESCRIPTOR_WRITE = 5;
+
+    /**
+     * 读取信号强度
+     */
+    static final int TYPE_READ_RSSI = 6;
+
+    /**
+     * 连续写入特征(无需响应)
+     */
+    static final int TYPE_WRITE_STREAM = 7;
+
+    /**
+     * 协商MTU
+     */
+    static final int TYPE_REQUEST_MTU = 8;
+
+    /**
+     * 重新连接后恢复会话状态
+     */
+    static final int TYPE_RESTORE_SESSION = 9;
+
+    /**
+     * 长读取(多次读取后合并)
+     */
+    static final int TYPE_CHARACTERISTIC_READ_LONG = 10;
+
+    /**
+     * 可靠写入(Prepare Write + Execute Write)
+     */
+    static final int TYPE_RELIABLE_WRITE = 11;
+
+    /**
+     * 文件传输(内存映射，可按窗口等待确认)
+     */
+    static final int TYPE_FILE_TRANSFER = 12;
+
+    /**
+     * 文件传输的确认通知，仅作为回调类型。
+     */
+    static final int TYPE_TRANSFER_ACK = 13;
+
+    /**
+     * 默认超时时间，单位：毫秒。
+     */
+    static final long DEF_TIMEOUT = 10000L;
+
+    // 操作类型
+    final int type;
+    // 超时时间，单位：毫秒，多步骤操作为每一步的超时时间，小于1时不限制。
+    final long timeout;
+    // 回复对象
+    private final IReply _reply;
+    // 是否已回复
+    private boolean _replied = false;
+    // 是否以失败结束，没有回复对象时也会记录。
+    private boolean _failed = false;
+
+    MyGattOperation(int type, IReply reply) {
+        this(type, reply, DEF_TIMEOUT);
+    }
+
+    MyGattOperation(int type, IReply reply, long timeout) {
+        this.type = type;
+        this._reply = reply;
+        this.timeout = timeout;
+    }
+
+    /**
+     * 执行操作
+     *
+     * @return 是否需要等待GATT回调来结束此操作，返回false时表示操作已经结束，队列会立即执行下一个操作。
+     */
+    abstract boolean execute();
+
+    /**
+     * 是否接收指定类型的GATT回调结果
+     *
+     * @param callbackType 回调对应的操作类型
+     * @return 是否接收
+     */
+    boolean accept(int callbackType) {
+        return this.type == callbackType;
+    }
+
+    /**
+     * 处理一次GATT回调结果，由多个步骤组成的操作可以在此继续执行下一步。
+     *
+     * @param data 回调数据
+     * @return 操作是否仍在进行中，返回false时操作结束，并调用 {@link #done(Object)}。
+     */
+    boolean proceed(Object data) {
+        return false;
+    }
+
+    /**
+     * 操作完成，由对应的GATT回调触发。连接回调的数据为false、读写特征与描述符回调的状态码不为成功时记录为失败。
+     *
+     * @param data 回调数据
+     */
+    void done(Object data) {
+        if (Boolean.FALSE.equals(data) || (_isStatusType() && !Integer.valueOf(BluetoothGatt.GATT_SUCCESS).equals(data)))
+            this._failed = true;
+        success(data);
+    }
+
+    // 回调数据是否为GATT状态码
+    private boolean _isStatusType() {
+        return TYPE_CHARACTERISTIC_READ == this.type || TYPE_CHARACTERISTIC_WRITE == this.type || TYPE_DESCRIPTOR_WRITE == this.type;
+    }
+
+    /**
+     * 操作超时，默认以失败结束。
+     */
+    void timeout() {
+        fail("timeout");
+    }
+
+    /**
+     * 操作失败
+     *
+     * @param message 错误消息
+     */
+    void fail(String message) {
+        error(IReply.DEF_ERROR_CODE, message);
+    }
+
+    /**
+     * 成功回复，每个操作只回复一次。
+     *
+     * @param data 数据
+     */
+    final void success(Object data) {
+        if (this._replied || null == this._reply) return;
+        this._replied = true;
+        this._reply.success(data);
+    }
+
+    /**
+     * 回复操作是否已发起，未发起(如特征不存在、协议栈拒绝请求)时回复false并记录为失败。
+     *
+     * @param issued 是否已发起
+     */
+    final void reply(boolean issued) {
+        if (!issued) this._failed = true;
+        success(issued);
+    }
+
+    /**
+     * 出错回复，每个操作只回复一次。
+     *
+     * @param code    错误代码
+     * @param message 错误消息
+     */
+    final void error(String code, String message) {
+        this._failed = true;
+        if (this._replied || null == this._reply) return;
+        this._replied = true;
+        this._reply.error(code, message);
+    }
+
+    /**
+     * @return 是否以失败结束
+     */
+    final boolean isFailed() {
+        return this._failed;
+    }
+
+    @Override
+    public String toString() {
+        return "MyGattOperation{type:" + this.type + ",replied:" + this._replied + "}";
+    }
+}
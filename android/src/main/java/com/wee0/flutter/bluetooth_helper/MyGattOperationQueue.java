@@ -0,0 +1,245 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+
+/**
+ * 设备GATT操作队列，同一时刻只有一个操作在执行，上一个操作结束后立即执行下一个操作。
+ */
+final class MyGattOperationQueue {
+
+    // 所有者标识，用于区分不同设备的超时回调。
+    private final String _owner;
+    // 事件日志中的设备地址
+    private final long _journalAddress;
+    private final ArrayDeque<MyGattOperation> _queue = new ArrayDeque<>(16);
+    // 当前正在执行的操作
+    private MyGattOperation _current = null;
+    // 当前操作的超时回调键值
+    private String _deadlineId = null;
+    // 操作执行序号
+    private long _sequence = 0;
+    // 当前操作的开始时间，单位：纳秒。
+    private long _startTime = 0;
+    // 队列空闲时的回调
+    private ICallback _idleCallback = null;
+
+    MyGattOperationQueue(String owner) {
+        if (null == owner) throw new IllegalArgumentException("owner can not be null!");
+        this._owner = owner;
+        this._journalAddress = MyEventJournal.address(owner);
+    }
+
+    /**
+     * 设置队列空闲回调，所有操作执行完毕时触发。
+     *
+     * @param callback 回调对象
+     */
+    void setIdleCallback(ICallback callback) {
+        this._idleCallback = callback;
+    }
+
+    /**
+     * 添加操作到队列中，队列空闲时立即执行。
+     *
+     * @param operation 操作对象
+     */
+    void enqueue(MyGattOperation operation) {
+        if (null == operation) throw new IllegalArgumentException("operation can not be null!");
+        synchronized (this) {
+            this._queue.offer(operation);
+        }
+        _next();
+    }
+
+    /**
+     * 结束当前操作，并执行下一个操作。
+     *
+     * @param type 操作类型，与当前操作类型不一致时忽略。
+     * @param data 回调数据
+     */
+    void complete(int type, Object data) {
+        MyGattOperation _operation;
+        synchronized (this) {
+            _operation = _accept(type);
+        }
+        if (null == _operation) return;
+        if (_operation.proceed(data)) {
+            // 多步骤操作的下一步重新计时
+            synchronized (this) {
+                if (_operation == this._current) _arm(_operation);
+            }
+            return;
+        }
+        long _started;
+        synchronized (this) {
+            if (_operation != this._current) return;
+            this._current = null;
+            _started = this._startTime;
+            _disarm();
+        }
+        _operation.done(data);
+        _finish(_operation, _started, _operation.isFailed() ? MyMetrics.OUTCOME_FAILURE : MyMetrics.OUTCOME_SUCCESS);
+        _next();
+    }
+
+    /**
+     * 当前操作失败，并执行下一个操作。
+     *
+     * @param type    操作类型，与当前操作类型不一致时忽略。
+     * @param message 错误消息
+     */
+    void fail(int type, String message) {
+        long _started;
+        MyGattOperation _operation;
+        synchronized (this) {
+            _started = this._startTime;
+            _operation = _take(type);
+        }
+        if (null == _operation) return;
+        _operation.fail(message);
+        _finish(_operation, _started, MyMetrics.OUTCOME_FAILURE);
+        _next();
+    }
+
+    /**
+     * 清空队列，所有未结束的操作均以失败结束。
+     *
+     * @param message 错误消息
+     */
+    void clear(String message) {
+        ArrayDeque<MyGattOperation> _operations;
+        MyGattOperation _current;
+        long _started;
+        synchronized (this) {
+            _operations = new ArrayDeque<>(this._queue.size() + 1);
+            _current = this._current;
+            _started = this._startTime;
+            if (null != _current) _operations.offer(_current);
+            _operations.addAll(this._queue);
+            this._queue.clear();
+            this._current = null;
+            _disarm();
+        }
+        for (MyGattOperation _operation : _operations) {
+            _operation.fail(message);
+        }
+        // 只统计已开始执行的操作
+        if (null != _current) _finish(_current, _started, MyMetrics.OUTCOME_FAILURE);
+    }
+
+    /**
+     * @return 当前正在执行的操作类型，空闲时返回0。
+     */
+    synchronized int currentType() {
+        return null == this._current ? 0 : this._current.type;
+    }
+
+    /**
+     * @return 等待执行的操作数量
+     */
+    synchronized int size() {
+        return this._queue.size();
+    }
+
+    // 取出接收指定类型回调的当前操作
+    private synchronized MyGattOperation _take(int type) {
+        MyGattOperation _operation = _accept(type);
+        if (null != _operation) {
+            this._current = null;
+            _disarm();
+        }
+        return _operation;
+    }
+
+    // 当前操作超时
+    private void _timeout(MyGattOperation operation) {
+        long _started;
+        synchronized (this) {
+            if (operation != this._current) return;
+            this._current = null;
+            this._deadlineId = null;
+            _started = this._startTime;
+        }
+        MyLog.debug("operation {} of {} timeout.", operation, this._owner);
+        MyEventJournal.me().record(MyEventJournal.TYPE_OPERATION_TIMEOUT, this._journalAddress, operation.type, 0, (int) operation.timeout);
+        operation.timeout();
+        _finish(operation, _started, MyMetrics.OUTCOME_TIMEOUT);
+        _next();
+    }
+
+    // 记录操作耗时与结果
+    private void _finish(MyGattOperation operation, long started, int outcome) {
+        MyMetrics.me().record(this._owner, operation.type, outcome, (SystemClock.elapsedRealtimeNanos() - started) / 1000L);
+    }
+
+    // 为当前操作注册超时回调
+    private void _arm(final MyGattOperation operation) {
+        _disarm();
+        if (1 > operation.timeout) return;
+        this._deadlineId = MyHandler.key(this._owner, operation.type, ++this._sequence);
+        MyHandler.me().delayed(this._deadlineId, operation.timeout, new ICallback() {
+            @Override
+            public void execute(Object args) {
+                _timeout(operation);
+            }
+        });
+    }
+
+    // 移除当前操作的超时回调
+    private void _disarm() {
+        if (null == this._deadlineId) return;
+        MyHandler.me().removeCallback(this._deadlineId);
+        this._deadlineId = null;
+    }
+
+    // 获取接收指定类型回调的当前操作
+    private MyGattOperation _accept(int type) {
+        if (null == this._current || !this._current.accept(type)) {
+            MyLog.debug("ignore operation result. type: {}, current: {}", type, this._current);
+            return null;
+        }
+        return this._current;
+    }
+
+    // 执行下一个操作，直到有操作需要等待回调或队列为空。
+    private void _next() {
+        while (true) {
+            MyGattOperation _operation;
+            long _started = SystemClock.elapsedRealtimeNanos();
+            synchronized (this) {
+                if (null != this._current) return;
+                _operation = this._current = this._queue.poll();
+                this._startTime = _started;
+            }
+            if (null == _operation) {
+                if (null != this._idleCallback) this._idleCallback.execute(null);
+                return;
+            }
+            MyEventJournal.me().record(MyEventJournal.TYPE_OPERATION, this._journalAddress, _operation.type, 0, size());
+            boolean _waiting;
+            try {
+                _waiting = _operation.execute();
+            } catch (MyBluetoothException e) {
+                _operation.error(e.getCode(), e.getMessage());
+                _waiting = false;
+            } catch (RuntimeException e) {
+                MyLog.warn("execute operation {} error: {}", _operation, e.getMessage());
+                _operation.fail(e.getMessage());
+                _waiting = false;
+            }
+            synchronized (this) {
+                if (_operation != this._current) return;
+                if (_waiting) {
+                    _arm(_operation);
+                    return;
+                }
+                this._current = null;
+            }
+            // 无需等待回调，操作已经结束。
+            _finish(_operation, _started, _operation.isFailed() ? MyMetrics.OUTCOME_FAILURE : MyMetrics.OUTCOME_SUCCESS);
+        }
+    }
+
+}
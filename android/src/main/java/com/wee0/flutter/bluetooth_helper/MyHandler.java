@@ -1,74 +1,247 @@
 package com.wee0.flutter.bluetooth_helper;
 
 import android.os.Handler;
-import android.os.Message;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
 
 import java.io.ObjectStreamException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 任务调度，蓝牙相关的回调处理、超时处理与消息组装都在专用的工作线程中执行，
+ * 只有最终的通道消息发送在平台线程中执行。支持大量并发的按键值区分的超时回调。
+ */
 final class MyHandler {
 
     /**
      * 扫描超时
      */
-    public static final int ID_SCAN_TIMEOUT = 0;
+    public static final String ID_SCAN_TIMEOUT = "scanTimeout";
 
     /**
      * 结束后台扫描
      */
-    public static final int ID_BACKGROUND_SCAN_STOP = 4;
+    public static final String ID_BACKGROUND_SCAN_STOP = "backgroundScanStop";
 
     /**
-     * 连接超时
+     * 连接池空闲检查
      */
-    public static final int ID_CONNECT_TIMEOUT = 1;
+    public static final String ID_CONNECTION_POOL_SWEEP = "connectionPoolSweep";
 
     /**
-     * 发现服务超时
+     * 工作线程名称
      */
-    public static final int ID_DISCOVER_SERVICES_TIMEOUT = 2;
+    static final String WORKER_NAME = "bluetooth_helper-worker";
 
+    private final HandlerThread workerThread;
+    // 工作线程
     private final Handler handler;
-    private final Map<Integer, ICallback> callbackMap;
+    // 平台线程
+    private final Handler mainHandler;
+    // 键值 -> 延时回调
+    private final Map<String, Deadline> callbackMap;
+    // 工作线程与平台线程的任务统计
+    private final Stats workerStats = new Stats();
+    private final Stats mainStats = new Stats();
 
     /**
-     * 注册指定延时后执行的回调。
+     * 构建回调键值，同一设备的不同操作、同一操作的不同次执行互不影响。
      *
-     * @param id
-     * @param delayMillis
-     * @param callback
+     * @param owner    所有者标识，如设备地址。
+     * @param type     操作类型
+     * @param sequence 执行序号
+     * @return 回调键值
      */
-    void delayed(int id, long delayMillis, ICallback callback) {
+    static String key(String owner, int type, long sequence) {
+        return new StringBuilder(32).append(owner).append('#').append(type).append('#').append(sequence).toString();
+    }
+
+    /**
+     * 注册指定延时后执行的回调，相同键值的旧回调会被替换。
+     *
+     * @param id          回调键值
+     * @param delayMillis 延时，单位：毫秒。
+     * @param callback    回调对象
+     */
+    void delayed(String id, long delayMillis, ICallback callback) {
+        if (null == id) throw new IllegalArgumentException("id can not be null!");
         if (null == callback) throw new IllegalArgumentException("callback can not be null!");
-        this.callbackMap.put(id, callback);
-        this.handler.sendEmptyMessageDelayed(id, delayMillis);
+        Deadline _deadline = new Deadline(id, callback);
+        Deadline _old;
+        synchronized (this) {
+            _old = this.callbackMap.put(id, _deadline);
+        }
+        if (null != _old) this.handler.removeCallbacks(_old);
+        this.handler.postDelayed(_deadline, delayMillis);
     }
 
     /**
      * 是否存在指定标识的回调。
      *
-     * @param id
-     * @return
+     * @param id 回调键值
+     * @return 是否存在
      */
-    boolean hasCallback(int id) {
-        if (!this.callbackMap.containsKey(id)) return false;
-        if (this.handler.hasMessages(id)) return true;
-        this.callbackMap.remove(id);
-        return false;
+    synchronized boolean hasCallback(String id) {
+        return this.callbackMap.containsKey(id);
     }
 
     /**
      * 移除指定标识的回调
      *
-     * @param id
+     * @param id 回调键值
+     */
+    void removeCallback(String id) {
+        Deadline _deadline;
+        synchronized (this) {
+            _deadline = this.callbackMap.remove(id);
+        }
+        if (null != _deadline) this.handler.removeCallbacks(_deadline);
+    }
+
+    /**
+     * @return 尚未到期的回调数量
+     */
+    synchronized int size() {
+        return this.callbackMap.size();
+    }
+
+    /**
+     * @return 工作线程的Handler，用于接收系统回调。
+     */
+    Handler getWorkerHandler() {
+        return this.handler;
+    }
+
+    /**
+     * @return 当前是否在工作线程中
+     */
+    boolean isWorkerThread() {
+        return Thread.currentThread() == this.workerThread;
+    }
+
+    /**
+     * 在工作线程中执行任务
+     *
+     * @param task 任务
      */
-    void removeCallback(int id) {
-        if (this.callbackMap.containsKey(id)) {
-            this.callbackMap.remove(id);
-            if (this.handler.hasMessages(id)) {
-                this.handler.removeMessages(id);
+    void execute(Runnable task) {
+        if (null == task) throw new IllegalArgumentException("task can not be null!");
+        this.handler.post(this.workerStats.wrap(task));
+    }
+
+    /**
+     * 在平台线程中执行任务，仅用于最终的通道消息发送。
+     *
+     * @param task 任务
+     */
+    void runOnMain(Runnable task) {
+        if (null == task) throw new IllegalArgumentException("task can not be null!");
+        this.mainHandler.post(this.mainStats.wrap(task));
+    }
+
+    /**
+     * @return 线程与队列统计信息
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> _data = new HashMap<>(8);
+        _data.put("worker", this.workerStats.toMap());
+        _data.put("main", this.mainStats.toMap());
+        _data.put("pendingTimeouts", size());
+        return _data;
+    }
+
+    /**
+     * 在指定延时后执行任务。
+     *
+     * @param task        任务
+     * @param delayMillis 延时，单位：毫秒。
+     */
+    void post(Runnable task, long delayMillis) {
+        if (null == task) throw new IllegalArgumentException("task can not be null!");
+        this.handler.postDelayed(task, delayMillis);
+    }
+
+    /**
+     * 移除尚未执行的任务
+     *
+     * @param task 任务
+     */
+    void remove(Runnable task) {
+        if (null != task) this.handler.removeCallbacks(task);
+    }
+
+    // 到期时从回调集合中移除，仅当仍是该键值的当前回调时执行。
+    private boolean _expire(Deadline deadline) {
+        synchronized (this) {
+            if (deadline != this.callbackMap.get(deadline.id)) return false;
+            this.callbackMap.remove(deadline.id);
+        }
+        return true;
+    }
+
+    /**
+     * 延时回调
+     */
+    private final class Deadline implements Runnable {
+        final String id;
+        final ICallback callback;
+
+        Deadline(String id, ICallback callback) {
+            this.id = id;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (_expire(this)) this.callback.execute(null);
+        }
+    }
+
+    /**
+     * 任务统计：队列深度、最大深度、已执行数量与最大等待时间。
+     */
+    private static final class Stats {
+        final AtomicInteger depth = new AtomicInteger();
+        final AtomicInteger maxDepth = new AtomicInteger();
+        final AtomicLong executed = new AtomicLong();
+        final AtomicLong maxWaitMillis = new AtomicLong();
+
+        Runnable wrap(final Runnable task) {
+            final long _postTime = System.nanoTime();
+            int _depth = this.depth.incrementAndGet();
+            int _max;
+            while (_depth > (_max = this.maxDepth.get()) && !this.maxDepth.compareAndSet(_max, _depth)) {
+                // 重试直到更新成功
             }
+            return new Runnable() {
+                @Override
+                public void run() {
+                    depth.decrementAndGet();
+                    long _wait = (System.nanoTime() - _postTime) / 1000000L;
+                    long _maxWait;
+                    while (_wait > (_maxWait = maxWaitMillis.get()) && !maxWaitMillis.compareAndSet(_maxWait, _wait)) {
+                        // 重试直到更新成功
+                    }
+                    try {
+                        task.run();
+                    } finally {
+                        executed.incrementAndGet();
+                    }
+                }
+            };
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> _data = new HashMap<>(8);
+            _data.put("queueDepth", this.depth.get());
+            _data.put("maxQueueDepth", this.maxDepth.get());
+            _data.put("executed", this.executed.get());
+            _data.put("maxWaitMillis", this.maxWaitMillis.get());
+            return _data;
         }
     }
 
@@ -81,17 +254,10 @@ final class MyHandler {
             throw new IllegalStateException("that's not allowed!");
         }
         this.callbackMap = new HashMap<>(32, 1.0f);
-
-        this.handler = new Handler(new Handler.Callback() {
-            @Override
-            public boolean handleMessage(Message msg) {
-                if (!callbackMap.containsKey(msg.what))
-                    return false;
-                ICallback _callback = callbackMap.remove(msg.what);
-                if (null != _callback) _callback.execute(null);
-                return true;
-            }
-        });
+        this.workerThread = new HandlerThread(WORKER_NAME, Process.THREAD_PRIORITY_DEFAULT);
+        this.workerThread.start();
+        this.handler = new Handler(this.workerThread.getLooper());
+        this.mainHandler = new Handler(Looper.getMainLooper());
     }
 
     // 当前对象唯一实例持有者。
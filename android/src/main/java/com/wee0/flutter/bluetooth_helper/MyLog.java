@@ -2,20 +2,32 @@ package com.wee0.flutter.bluetooth_helper;
 
 import android.util.Log;
 
-import java.lang.reflect.Array;
 import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 日志统一处理
+ * <p>
+ * 先判断日志级别再处理参数，常用的0~4个参数提供固定参数的重载方法，避免创建可变参数数组。
+ * 消息格式化直接查找"{}"占位符，byte[]参数以十六进制输出。
+ * 开启异步输出后，调用线程只将消息与参数放入有界队列，格式化与输出在日志线程中执行，队列已满时丢弃消息并计数。
  */
 final class MyLog {
 
     private static final String _LOG_CATALOG = "wee0.BluetoothHelper";
-    private static final Pattern _DEF_PARAMS_PATTERN = Pattern.compile("\\{\\}");
+    private static final String _PLACEHOLDER = "{}";
+    private static final char[] _HEX = "0123456789abcdef".toCharArray();
+    // 异步输出队列容量
+    static final int ASYNC_QUEUE_CAPACITY = 1024;
+
     // 是否输出调试信息
-    private static boolean _isDebug = false;
+    private static volatile boolean _isDebug = false;
+    // 异步输出队列，为null时同步输出。
+    private static volatile BlockingQueue<Record> _queue = null;
+    // 异步输出时因队列已满丢弃的消息数量
+    private static final AtomicLong _dropped = new AtomicLong();
 
     /**
      * 开启调试信息
@@ -24,6 +36,67 @@ final class MyLog {
         _isDebug = true;
     }
 
+    /**
+     * @return 是否输出调试信息，调试信息需要额外计算参数时可以先进行判断。
+     */
+    static boolean isDebug() {
+        return _isDebug;
+    }
+
+    /**
+     * 设置是否异步输出日志
+     *
+     * @param async 是否异步输出
+     */
+    static synchronized void setAsync(boolean async) {
+        if (async == (null != _queue)) return;
+        if (!async) {
+            // 日志线程在输出完队列中剩余的消息后退出
+            BlockingQueue<Record> _old = _queue;
+            _queue = null;
+            _old.offer(Record.STOP);
+            return;
+        }
+        BlockingQueue<Record> _newQueue = new ArrayBlockingQueue<>(ASYNC_QUEUE_CAPACITY);
+        Thread _thread = new Thread(new Sink(_newQueue), "bluetooth_helper-log");
+        _thread.setDaemon(true);
+        _thread.setPriority(Thread.MIN_PRIORITY);
+        _thread.start();
+        _queue = _newQueue;
+    }
+
+    /**
+     * @return 异步输出时因队列已满丢弃的消息数量
+     */
+    static long getDropped() {
+        return _dropped.get();
+    }
+
+    /**
+     * 输出调试信息
+     *
+     * @param msg 消息内容
+     */
+    static void debug(String msg) {
+        if (_isDebug) _log(Log.DEBUG, msg, 0, null, null, null, null, null);
+    }
+
+    static void debug(String msg, Object p1) {
+        if (_isDebug) _log(Log.DEBUG, msg, 1, p1, null, null, null, null);
+    }
+
+    static void debug(String msg, Object p1, Object p2) {
+        if (_isDebug) _log(Log.DEBUG, msg, 2, p1, p2, null, null, null);
+    }
+
+    static void debug(String msg, Object p1, Object p2, Object p3) {
+        if (_isDebug) _log(Log.DEBUG, msg, 3, p1, p2, p3, null, null);
+    }
+
+    static void debug(String msg, Object p1, Object p2, Object p3, Object p4) {
+        if (_isDebug) _log(Log.DEBUG, msg, 4, p1, p2, p3, p4, null);
+    }
+
     /**
      * 输出调试信息
      *
@@ -31,8 +104,24 @@ final class MyLog {
      * @param params 消息参数
      */
     static void debug(String msg, Object... params) {
-        if (_isDebug)
-            Log.d(_LOG_CATALOG, _formatMsg(msg, params));
+        if (_isDebug) _log(Log.DEBUG, msg, -1, null, null, null, null, params);
+    }
+
+    /**
+     * 输出提示信息
+     *
+     * @param msg 消息内容
+     */
+    static void info(String msg) {
+        _log(Log.INFO, msg, 0, null, null, null, null, null);
+    }
+
+    static void info(String msg, Object p1) {
+        _log(Log.INFO, msg, 1, p1, null, null, null, null);
+    }
+
+    static void info(String msg, Object p1, Object p2) {
+        _log(Log.INFO, msg, 2, p1, p2, null, null, null);
     }
 
     /**
@@ -42,7 +131,24 @@ final class MyLog {
      * @param params 消息参数
      */
     static void info(String msg, Object... params) {
-        Log.i(_LOG_CATALOG, _formatMsg(msg, params));
+        _log(Log.INFO, msg, -1, null, null, null, null, params);
+    }
+
+    /**
+     * 输出警告信息
+     *
+     * @param msg 消息内容
+     */
+    static void warn(String msg) {
+        _log(Log.WARN, msg, 0, null, null, null, null, null);
+    }
+
+    static void warn(String msg, Object p1) {
+        _log(Log.WARN, msg, 1, p1, null, null, null, null);
+    }
+
+    static void warn(String msg, Object p1, Object p2) {
+        _log(Log.WARN, msg, 2, p1, p2, null, null, null);
     }
 
     /**
@@ -52,59 +158,166 @@ final class MyLog {
      * @param params 消息参数
      */
     static void warn(String msg, Object... params) {
-        Log.w(_LOG_CATALOG, _formatMsg(msg, params));
+        _log(Log.WARN, msg, -1, null, null, null, null, params);
+    }
+
+    // count为固定参数个数，为-1时使用params。
+    private static void _log(int priority, String msg, int count, Object p1, Object p2, Object p3, Object p4, Object[] params) {
+        BlockingQueue<Record> _currentQueue = _queue;
+        if (null == _currentQueue) {
+            Log.println(priority, _LOG_CATALOG, _formatMsg(msg, count, p1, p2, p3, p4, params));
+            return;
+        }
+        // 数据在输出前可能被修改，异步输出时复制字节数组参数。
+        Object[] _params = null;
+        if (null != params) {
+            _params = new Object[params.length];
+            for (int _i = 0; _i < params.length; _i++) {
+                _params[_i] = _snapshot(params[_i]);
+            }
+        }
+        Record _record = new Record(priority, msg, count, _snapshot(p1), _snapshot(p2), _snapshot(p3), _snapshot(p4), _params);
+        if (!_currentQueue.offer(_record)) _dropped.incrementAndGet();
+    }
+
+    private static Object _snapshot(Object param) {
+        return param instanceof byte[] ? ((byte[]) param).clone() : param;
     }
 
     /**
-     * 格式化日志消息
+     * 格式化日志消息，依次使用参数替换消息中的"{}"占位符。
      *
      * @param msg    消息内容
-     * @param params 消息内容参数
+     * @param count  固定参数个数，为-1时使用params。
+     * @param params 可变参数
      * @return 格式化后的消息
      */
-    private static String _formatMsg(String msg, Object... params) {
-        if (null == msg || null == params || 1 > params.length)
-            return msg;
-
-        Matcher _matcher = _DEF_PARAMS_PATTERN.matcher(msg);
-        boolean _isMatched = _matcher.find();
-        if (!_isMatched) {
-            return msg;
-        }
+    private static String _formatMsg(String msg, int count, Object p1, Object p2, Object p3, Object p4, Object[] params) {
+        int _count = -1 == count ? (null == params ? 0 : params.length) : count;
+        if (null == msg || 0 == _count) return msg;
+        int _index = msg.indexOf(_PLACEHOLDER);
+        if (-1 == _index) return msg;
 
-        final int _parLen = params.length;
+        StringBuilder _builder = new StringBuilder(msg.length() + 32 * _count);
+        int _start = 0;
         int _i = 0;
-        StringBuffer _sb = new StringBuffer();
-        while (_isMatched) {
-            if (_i >= _parLen)
-                break;
-            Object _valObj = params[_i];
-            String _valString = "NULL";
-            if (null != _valObj) {
-                if (_valObj.getClass().isArray()) {
-                    StringBuilder _arrBuilder = new StringBuilder(64);
-                    _arrBuilder.append("[");
-                    for (int _j = 0, _jLen = Array.getLength(_valObj); _j < _jLen; _j++) {
-                        _arrBuilder.append(Array.get(_valObj, _j)).append(',');
-                    }
-                    if (',' == _arrBuilder.charAt(_arrBuilder.length() - 1))
-                        _arrBuilder.deleteCharAt(_arrBuilder.length() - 1);
-                    _arrBuilder.append("]");
-                    _valString = _arrBuilder.toString();
-                } else {
-                    _valString = _valObj.toString();
-                }
-                if (-1 < _valString.indexOf("$"))
-                    _valString = _valString.replaceAll("\\$", "\\\\\\$");
+        while (-1 != _index && _i < _count) {
+            _builder.append(msg, _start, _index);
+            Object _param;
+            if (-1 == count) {
+                _param = params[_i];
+            } else {
+                _param = 0 == _i ? p1 : (1 == _i ? p2 : (2 == _i ? p3 : p4));
             }
-            _matcher.appendReplacement(_sb, _valString);
-            _isMatched = _matcher.find();
+            _append(_builder, _param);
+            _start = _index + _PLACEHOLDER.length();
+            _index = msg.indexOf(_PLACEHOLDER, _start);
             _i++;
         }
-        _matcher.appendTail(_sb);
-        return _sb.toString();
+        _builder.append(msg, _start, msg.length());
+        return _builder.toString();
+    }
+
+    // 输出参数值，数组按类型直接转换，不使用反射。
+    private static void _append(StringBuilder builder, Object param) {
+        if (null == param) {
+            builder.append("NULL");
+        } else if (param instanceof byte[]) {
+            appendHex(builder, (byte[]) param);
+        } else if (param instanceof Object[]) {
+            builder.append(Arrays.deepToString((Object[]) param));
+        } else if (param instanceof int[]) {
+            builder.append(Arrays.toString((int[]) param));
+        } else if (param instanceof long[]) {
+            builder.append(Arrays.toString((long[]) param));
+        } else if (param instanceof short[]) {
+            builder.append(Arrays.toString((short[]) param));
+        } else if (param instanceof char[]) {
+            builder.append(Arrays.toString((char[]) param));
+        } else if (param instanceof boolean[]) {
+            builder.append(Arrays.toString((boolean[]) param));
+        } else if (param instanceof float[]) {
+            builder.append(Arrays.toString((float[]) param));
+        } else if (param instanceof double[]) {
+            builder.append(Arrays.toString((double[]) param));
+        } else {
+            builder.append(param);
+        }
+    }
+
+    /**
+     * 以十六进制输出字节数组，格式为：[0a 1b ff](长度)。
+     *
+     * @param builder 输出目标
+     * @param data    字节数组
+     */
+    static void appendHex(StringBuilder builder, byte[] data) {
+        builder.append('[');
+        for (int _i = 0; _i < data.length; _i++) {
+            if (0 != _i) builder.append(' ');
+            int _b = data[_i] & 0xFF;
+            builder.append(_HEX[_b >>> 4]).append(_HEX[_b & 0x0F]);
+        }
+        builder.append("](").append(data.length).append(')');
+    }
+
+    /**
+     * 异步输出的日志记录
+     */
+    private static final class Record {
+        // 停止日志线程的标记
+        static final Record STOP = new Record(Log.VERBOSE, null, 0, null, null, null, null, null);
+
+        final int priority;
+        final String msg;
+        final int count;
+        final Object p1;
+        final Object p2;
+        final Object p3;
+        final Object p4;
+        final Object[] params;
+
+        Record(int priority, String msg, int count, Object p1, Object p2, Object p3, Object p4, Object[] params) {
+            this.priority = priority;
+            this.msg = msg;
+            this.count = count;
+            this.p1 = p1;
+            this.p2 = p2;
+            this.p3 = p3;
+            this.p4 = p4;
+            this.params = params;
+        }
     }
 
+    /**
+     * 日志线程，从队列中取出记录后格式化并输出。
+     */
+    private static final class Sink implements Runnable {
+        private final BlockingQueue<Record> _records;
+        private long _reportedDropped = 0;
+
+        Sink(BlockingQueue<Record> records) {
+            this._records = records;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Record _record = this._records.take();
+                    if (Record.STOP == _record) return;
+                    long _currentDropped = _dropped.get();
+                    if (_currentDropped != this._reportedDropped) {
+                        Log.w(_LOG_CATALOG, "log queue full, dropped " + (_currentDropped - this._reportedDropped) + " messages.");
+                        this._reportedDropped = _currentDropped;
+                    }
+                    Log.println(_record.priority, _LOG_CATALOG, _formatMsg(_record.msg, _record.count, _record.p1, _record.p2, _record.p3, _record.p4, _record.params));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
 //    static void print(BluetoothGatt gatt) {
 //        StringBuilder _builder = new StringBuilder();
@@ -0,0 +1,85 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 长读取操作，读取结果合并后一次回复。
+ * <p>
+ * 单次 readCharacteristic 时协议栈会自动以 Read Blob 按偏移量分段读取超过MTU的值，但不超过特征值的最大长度(512字节)。
+ * 开启分页时，读取到满512字节认为设备按页提供更长的数据(每次读取返回下一页)，继续读取下一页，直到某一页不足512字节或达到长度上限；
+ * 普通设备每次读取返回相同的值，不能开启分页。
+ */
+class MyLongRead extends MyGattOperation {
+
+    // 默认长度上限
+    static final int DEF_MAX_LENGTH = 64 * 1024;
+
+    final MyBluetoothDevice device;
+    final String characteristicId;
+    // 长度上限
+    final int maxLength;
+    // 是否在读取到满512字节时继续读取下一页，需设备支持。
+    final boolean paged;
+
+    private BluetoothGattCharacteristic _characteristic;
+    private final ByteArrayOutputStream _buffer = new ByteArrayOutputStream(BluetoothConstants.MAX_ATTRIBUTE_LENGTH);
+    private int _status = BluetoothGatt.GATT_SUCCESS;
+
+    MyLongRead(MyBluetoothDevice device, String characteristicId, int maxLength, boolean paged, IReply reply) {
+        super(MyGattOperation.TYPE_CHARACTERISTIC_READ_LONG, reply);
+        if (null == device) throw new IllegalArgumentException("device can not be null!");
+        this.device = device;
+        this.characteristicId = characteristicId;
+        this.maxLength = 0 < maxLength ? maxLength : DEF_MAX_LENGTH;
+        this.paged = paged;
+    }
+
+    @Override
+    boolean execute() {
+        this._characteristic = this.device._getCharacteristic(this.characteristicId);
+        if (null == this._characteristic) {
+            fail("characteristic not found: " + this.characteristicId);
+            return false;
+        }
+        if (!this.device.gatt1.readCharacteristic(this._characteristic)) {
+            fail("could not read characteristic: " + this.characteristicId);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    boolean accept(int callbackType) {
+        return MyGattOperation.TYPE_CHARACTERISTIC_READ == callbackType || super.accept(callbackType);
+    }
+
+    @Override
+    boolean proceed(Object data) {
+        this._status = (Integer) data;
+        if (BluetoothGatt.GATT_SUCCESS != this._status) return false;
+        byte[] _page = this._characteristic.getValue();
+        int _length = null == _page ? 0 : Math.min(_page.length, this.maxLength - this._buffer.size());
+        if (0 < _length) this._buffer.write(_page, 0, _length);
+        if (!this.paged || null == _page || BluetoothConstants.MAX_ATTRIBUTE_LENGTH > _page.length || this._buffer.size() >= this.maxLength)
+            return false;
+        MyLog.debug("read next page of {}, received: {}", this.characteristicId, this._buffer.size());
+        if (null == this.device.gatt1 || !this.device.gatt1.readCharacteristic(this._characteristic)) {
+            this._status = BluetoothGatt.GATT_FAILURE;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    void done(Object data) {
+        if (BluetoothGatt.GATT_SUCCESS != this._status) {
+            error(IReply.DEF_ERROR_CODE, "read long failed, status: " + this._status);
+            return;
+        }
+        success(this._buffer.toByteArray());
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 方法调用参数，统一处理参数不存在与数值类型的转换。
+ * <p>
+ * StandardMessageCodec 解码的整数为 Integer 或 Long，直接读取数值，不经过字符串转换。
+ */
+public final class MyMethodArgs {
+
+    private final Map<String, Object> _args;
+
+    @SuppressWarnings("unchecked")
+    MyMethodArgs(Object args) {
+        this._args = args instanceof Map ? (Map<String, Object>) args : Collections.<String, Object>emptyMap();
+    }
+
+    /**
+     * @return 原始参数，不存在时为空集合。
+     */
+    public Map<String, Object> map() {
+        return this._args;
+    }
+
+    /**
+     * @param key 参数名
+     * @return 是否传递了参数，参数值为null时视为未传递。
+     */
+    public boolean has(String key) {
+        return null != this._args.get(key);
+    }
+
+    /**
+     * 获取设备标识，所有设备相关的操作都必须传递。
+     *
+     * @return 去除首尾空白后的设备标识
+     */
+    public String deviceId() {
+        String _deviceId = getString("deviceId");
+        if (null == _deviceId || 0 == (_deviceId = _deviceId.trim()).length())
+            throw new IllegalArgumentException("deviceId can not be empty!");
+        return _deviceId;
+    }
+
+    public String getString(String key) {
+        Object _value = this._args.get(key);
+        return null == _value ? null : _value.toString();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Object _value = this._args.get(key);
+        if (null == _value) return defaultValue;
+        if (_value instanceof Number) return ((Number) _value).intValue();
+        return Integer.parseInt(_value.toString());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Object _value = this._args.get(key);
+        if (null == _value) return defaultValue;
+        if (_value instanceof Number) return ((Number) _value).longValue();
+        return Long.parseLong(_value.toString());
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object _value = this._args.get(key);
+        if (null == _value) return defaultValue;
+        if (_value instanceof Boolean) return (Boolean) _value;
+        return Boolean.parseBoolean(_value.toString());
+    }
+
+    public byte[] getBytes(String key) {
+        return (byte[]) this._args.get(key);
+    }
+
+    /**
+     * @param key 参数名
+     * @return 字符串列表，未传递时返回null，元素为null时忽略。
+     */
+    public List<String> getStringList(String key) {
+        Object _value = this._args.get(key);
+        if (null == _value) return null;
+        if (!(_value instanceof List)) throw new IllegalArgumentException(key + " must be a list!");
+        List<?> _items = (List<?>) _value;
+        List<String> _result = new ArrayList<>(_items.size());
+        for (Object _item : _items) {
+            if (null != _item) _result.add(_item.toString());
+        }
+        return _result;
+    }
+
+    public Object get(String key) {
+        return this._args.get(key);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(this._args);
+    }
+}
@@ -1,11 +1,15 @@
 package com.wee0.flutter.bluetooth_helper;
 
+import android.bluetooth.BluetoothGatt;
 import android.service.media.MediaBrowserService;
 
 import java.io.ObjectStreamException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import io.flutter.plugin.common.BasicMessageChannel;
 import io.flutter.plugin.common.BinaryMessenger;
@@ -29,20 +33,37 @@ final class MyMethodRouter implements BasicMessageChannel.MessageHandler<Object>
 
     static final String C_onStateChange = "onStateChange";
     static final String C_onDeviceStateChange = "onDeviceStateChange";
+    static final String C_onDeviceReconnected = "onDeviceReconnected";
     static final String C_onServicesDiscovered = "onServicesDiscovered";
+    static final String C_onScanResult = "onScanResult";
+    static final String C_onScanBatch = "onScanBatch";
+    static final String C_onWatchedDeviceSeen = "onWatchedDeviceSeen";
     static final String C_onCharacteristicNotifyData = "onCharacteristicNotifyData";
+    static final String C_onCharacteristicNotifyBatch = "onCharacteristicNotifyBatch";
     static final String C_onCharacteristicReadResult = "onCharacteristicReadResult";
     static final String C_onCharacteristicWriteResult = "onCharacteristicWriteResult";
+    static final String C_onCharacteristicWriteProgress = "onCharacteristicWriteProgress";
 
     // 消息交互通道
     private BasicMessageChannel<Object> basicMessageChannel;
+    // 方法名称 -> 方法处理器
+    private final Map<String, IMethodHandler> _handlers = new ConcurrentHashMap<>(64);
 //    private MethodChannel methodChannel;
 //    private EventChannel eventChannel;
 
 
-    // Flutter到Android的方法调用
+    // Flutter到Android的方法调用，转到工作线程中处理，避免阻塞平台线程。
     @Override
-    public void onMessage(Object message, BasicMessageChannel.Reply<Object> reply) {
+    public void onMessage(final Object message, final BasicMessageChannel.Reply<Object> reply) {
+        MyHandler.me().execute(new Runnable() {
+            @Override
+            public void run() {
+                _onMessage(message, reply);
+            }
+        });
+    }
+
+    private void _onMessage(Object message, BasicMessageChannel.Reply<Object> reply) {
 //        MyLog.debug("message.type:" + message.getClass() + "message:" + message);
         IReply _reply = new BasicMessageChannelReply(reply);
         if (null == message) {
@@ -62,133 +83,360 @@ final class MyMethodRouter implements BasicMessageChannel.MessageHandler<Object>
                 return;
             }
             MyLog.debug("invoke method: {}", _method);
-            if ("debug".equals(_method)) {
-//                Object _enable = _messageData.get(KEY_ARGS);
-                MyLog.enableDebug();
-                _reply.success(true);
+            IMethodHandler _handler = this._handlers.get(_method);
+            if (null == _handler) {
+                _reply.error("unKnow method: " + _method);
                 return;
             }
-            if ("keepAlive".equals(_method)) {
+            _handler.handle(new MyMethodArgs(_messageData.get(KEY_ARGS)), _reply);
+        } catch (MyBluetoothException e) {
+            _reply.error(e.getCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            _reply.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 注册方法处理器，相同名称的处理器会被替换。
+     *
+     * @param method  方法名称
+     * @param handler 方法处理器
+     */
+    void register(String method, IMethodHandler handler) {
+        if (null == method || 0 == method.length()) throw new IllegalArgumentException("method can not be empty!");
+        if (null == handler) throw new IllegalArgumentException("handler can not be null!");
+        this._handlers.put(method, handler);
+    }
+
+    /**
+     * 移除方法处理器
+     *
+     * @param method 方法名称
+     */
+    void unregister(String method) {
+        if (null != method) this._handlers.remove(method);
+    }
+
+    // 注册内置的方法处理器
+    private void _registerDefaults() {
+        register("debug", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyLog.enableDebug();
+                if (args.has("async")) MyLog.setAsync(args.getBoolean("async", false));
+                reply.success(true);
+            }
+        });
+        register("keepAlive", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
 //                MyAlarmManager.me().start();
-                _reply.success(true);
-                return;
+                reply.success(true);
             }
-            if ("bluetoothIsEnable".equals(_method)) {
-                _reply.success(MyBluetoothManager.me().isEnabled());
-                return;
+        });
+        register("bluetoothIsEnable", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyBluetoothManager.me().isEnabled());
             }
-            if ("locationIsEnable".equals(_method)) {
-                boolean _requireGps = true;
-                if (_messageData.containsKey(KEY_ARGS)) {
-                    Map<String, Object> _args = (Map<String, Object>) _messageData.get(KEY_ARGS);
-                    if (_args.containsKey("requireGps")) {
-                        _requireGps = (Boolean) _args.get("requireGps");
-                    }
-                }
-                _reply.success(MyLocationManager.me.isEnabled(_requireGps));
-                return;
+        });
+        register("locationIsEnable", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyLocationManager.me.isEnabled(args.getBoolean("requireGps", true)));
             }
-            if ("bluetoothEnable".equals(_method)) {
-                _reply.success(MyBluetoothManager.me().enable());
-                return;
+        });
+        register("bluetoothEnable", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyBluetoothManager.me().enable());
             }
-            if ("bluetoothDisable".equals(_method)) {
-                _reply.success(MyBluetoothManager.me().disable());
-                return;
+        });
+        register("bluetoothDisable", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyBluetoothManager.me().disable());
             }
-            if ("stateLastChangeTime".equals(_method)) {
+        });
+        register("stateLastChangeTime", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
                 Map<String, Long> _data = new HashMap<>(2);
                 _data.put("bluetoothLastChangeTime", MyBluetoothManager.me().getLastChangeTime());
                 _data.put("locationLastChangeTime", MyLocationManager.me.getLastChangeTime());
-                _reply.success(_data);
-                return;
+                reply.success(_data);
             }
-            if ("startScan".equals(_method)) {
-                String _deviceName = null;
-                String _deviceId = null;
-                int _scanTimeout = 0;
-                if (_messageData.containsKey(KEY_ARGS)) {
-                    Map<String, Object> _args = (Map<String, Object>) _messageData.get(KEY_ARGS);
-                    _deviceName = _args.containsKey("deviceName") ? (String) _args.get("deviceName") : null;
-                    _deviceId = _args.containsKey("deviceId") ? (String) _args.get("deviceId") : null;
-                    _scanTimeout = _args.containsKey("timeout") ? (int)_args.get("timeout") : 0;
-                }
-                MyBluetoothManager.me().startScan(_deviceName, _deviceId, _scanTimeout, _reply);
-//                _reply.success(true);
-                return;
+        });
+        register("enableBinaryChannel", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBinaryChannel.me().setEnabled(args.getBoolean("enable", true));
+                reply.success(true);
             }
-            if ("stopScan".equals(_method)) {
-                Map<String, Map<String, String>> _scanResult = MyBluetoothManager.me().stopScan();
-                _reply.success(_scanResult);
-                return;
+        });
+        register("queryScanCache", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                long _maxAge = args.getLong("maxAge", 0) * 1000L;
+                int _minRssi = args.getInt("minRssi", Integer.MIN_VALUE);
+                int _limit = args.getInt("limit", 0);
+                reply.success(MyScanCache.me().query(_maxAge, args.getString("namePrefix"), _minRssi, _limit));
             }
-
-            // 以下操作都必须传递键值对参数。
-            Map<String, Object> _args = (Map<String, Object>) _messageData.get(KEY_ARGS);
-            // 设备标识所有操作都必须传递。
-            String _deviceId = (String) _args.get("deviceId");
-            if (null == _deviceId || 0 == (_deviceId = _deviceId.trim()).length()) {
-                _reply.error("deviceId can not be empty!");
-                return;
+        });
+        register("setScanCache", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyScanCache.me().configure(args.getLong("ttl", 0) * 1000L, args.getInt("maxSize", 0));
+                reply.success(true);
             }
-            if ("getDeviceState".equals(_method)) {
-                int _deviceState = MyBluetoothManager.me().getDeviceState(_deviceId);
-                _reply.success(_deviceState);
-                return;
+        });
+        register("clearScanCache", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyScanCache.me().clear();
+                reply.success(true);
             }
-            if ("connect".equals(_method)) {
-                Object _timeoutObj = _args.get("timeout");
-                int _timeout = null == _timeoutObj ? 3 : Integer.parseInt(_timeoutObj.toString());
-                MyBluetoothManager.me().cacheDevice(_deviceId).connect(_timeout, _reply);
-                return;
+        });
+        register("getMetrics", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                Map<String, Object> _metrics = MyMetrics.me().toMap(args.getBoolean("histogram", false));
+                if (args.getBoolean("reset", false)) MyMetrics.me().reset();
+                reply.success(_metrics);
             }
-            if ("discoverServices".equals(_method)) {
-                Object _timeoutObj = _args.get("timeout");
-                int _timeout = null == _timeoutObj ? 3 : Integer.parseInt(_timeoutObj.toString());
-                MyBluetoothManager.me().cacheDevice(_deviceId).discoverServices(_timeout, _reply);
-                return;
+        });
+        register("getEventJournal", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                Map<String, Object> _journal = MyEventJournal.me().dump(args.getLong("since", 0));
+                if (args.getBoolean("clear", false)) MyEventJournal.me().clear();
+                reply.success(_journal);
             }
-            if ("setCharacteristicNotification".equals(_method)) {
-                String _characteristicId = (String) _args.get("characteristicId");
-                Boolean _enable = (Boolean) _args.get("enable");
-                boolean _setCharacteristicNotificationResult = MyBluetoothManager.me().cacheDevice(_deviceId).characteristicSetNotification(_characteristicId, _enable);
-                _reply.success(_setCharacteristicNotificationResult);
-                return;
+        });
+        register("setEventJournal", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyEventJournal.me().configure(args.getBoolean("enable", true), args.getInt("capacity", 0));
+                reply.success(true);
             }
-            if ("characteristicRead".equals(_method)) {
-                String _characteristicId = (String) _args.get("characteristicId");
-                boolean _characteristicReadResult = MyBluetoothManager.me().cacheDevice(_deviceId).characteristicRead(_characteristicId);
-                _reply.success(_characteristicReadResult);
-                return;
+        });
+        register("setConnectionPool", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothManager.me().configureConnectionPool(args.getInt("maxConnections", 0), args.getLong("idleTimeout", 0), args.getInt("maxDevices", 0));
+                reply.success(true);
+            }
+        });
+        register("getConnectionPool", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyBluetoothManager.me().getConnectionPoolStats());
+            }
+        });
+        register("getThreadStats", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyHandler.me().getStats());
+            }
+        });
+        register("startScan", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothManager.me().startScan(MyScanOptions.parse(args.map()), reply);
+            }
+        });
+        register("setBackgroundScanProfile", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyScanOptions _options = new MyScanOptions();
+                _options.parseProfile(args.map());
+                MyBluetoothManager.me().setBackgroundScanOptions(_options);
+                reply.success(true);
+            }
+        });
+        register("setWatchlist", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyWatchlist.me().set(args.getStringList("addresses"), args.getStringList("serviceUuids"));
+                if (args.getBoolean("scan", false) && !MyWatchlist.me().isEmpty()) MyBluetoothManager.me().scanWatchlist();
+                reply.success(true);
+            }
+        });
+        register("getWatchlist", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                Map<String, Object> _data = MyWatchlist.me().toMap();
+                _data.put("devices", MyWatchlist.me().query(args.getLong("maxAge", 0) * 1000L));
+                reply.success(_data);
+            }
+        });
+        register("scanWatchlist", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothManager.me().scanWatchlist();
+                reply.success(true);
+            }
+        });
+        register("stopScan", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyBluetoothManager.me().stopScan());
             }
-            if ("characteristicWrite".equals(_method)) {
-                String _characteristicId = (String) _args.get("characteristicId");
-                byte[] _data = (byte[]) _args.get("data");
+        });
 
-                boolean _characteristicWriteResult = MyBluetoothManager.me().cacheDevice(_deviceId).characteristicWrite(_characteristicId, _data, false);
-                _reply.success(_characteristicWriteResult);
-                return;
+        // 以下为设备相关的操作，都必须传递设备标识。
+        register("getDeviceState", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyBluetoothManager.me().getDeviceState(args.deviceId()));
             }
-            if ("disconnect".equals(_method)) {
-                MyBluetoothDevice _device = MyBluetoothManager.me().getDevice(_deviceId);
-                boolean _disconnectResult = null == _device ? false : _device.disconnect();
-                _reply.success(_disconnectResult);
-                return;
+        });
+        register("connect", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothManager.me().cacheDevice(args.deviceId()).connect(args.getInt("timeout", 3), reply);
+            }
+        });
+        register("autoConnect", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                long _initialDelay = args.getLong("initialDelay", MyReconnector.DEF_INITIAL_DELAY);
+                long _maxDelay = args.getLong("maxDelay", MyReconnector.DEF_MAX_DELAY);
+                int _maxAttempts = args.getInt("maxAttempts", MyReconnector.DEF_MAX_ATTEMPTS);
+                long _attemptTimeout = args.getLong("timeout", MyReconnector.DEF_ATTEMPT_TIMEOUT / 1000L) * 1000L;
+                MyBluetoothManager.me().cacheDevice(args.deviceId()).autoConnect(args.getBoolean("enable", true), _initialDelay, _maxDelay, _maxAttempts, _attemptTimeout);
+                reply.success(true);
+            }
+        });
+        register("discoverServices", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothManager.me().cacheDevice(args.deviceId()).discoverServices(args.getInt("timeout", 3), args.getString("firmwareRevision"), args.getBoolean("refresh", false), reply);
+            }
+        });
+        register("setCharacteristicNotification", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().cacheDevice(args.deviceId());
+                _device.characteristicSetNotification(_characteristicId(args), args.getBoolean("enable", false), reply);
+            }
+        });
+        register("characteristicRead", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().cacheDevice(args.deviceId());
+                _device.characteristicRead(_characteristicId(args), reply);
+            }
+        });
+        register("characteristicWrite", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().cacheDevice(args.deviceId());
+                _device.characteristicWrite(_characteristicId(args), args.getBytes("data"), args.getBoolean("withoutResponse", false), reply);
             }
-//            if ("".equals(_method)) {
-//                return;
-//            }
+        });
+        register("characteristicReadLong", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().cacheDevice(args.deviceId());
+                _device.characteristicReadLong(_characteristicId(args), args.getInt("maxLength", MyLongRead.DEF_MAX_LENGTH), args.getBoolean("paged", false), reply);
+            }
+        });
+        register("characteristicWriteReliable", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().cacheDevice(args.deviceId());
+                _device.characteristicWriteReliable(_characteristicId(args), args.getBytes("data"), reply);
+            }
+        });
+        register("characteristicWriteStream", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().cacheDevice(args.deviceId());
+                _device.characteristicWriteStream(_characteristicId(args), args.getBytes("data"), reply);
+            }
+        });
+        register("characteristicWriteFile", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().cacheDevice(args.deviceId());
+                String _ackCharacteristicId = args.has("ackHandle") ? MyCharacteristicIndex.handleRef(args.getInt("ackHandle", -1)) : args.getString("ackCharacteristicId");
+                _device.characteristicWriteFile(_characteristicId(args), args.getString("path"), args.getInt("offset", 0), args.getInt("window", MyFileTransfer.DEF_WINDOW),
+                        _ackCharacteristicId, args.getLong("timeout", MyGattOperation.DEF_TIMEOUT), reply);
+            }
+        });
+        register("requestMtu", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothManager.me().cacheDevice(args.deviceId()).requestMtu(args.getInt("mtu", BluetoothConstants.MAX_ATT_MTU), reply);
+            }
+        });
+        register("requestConnectionPriority", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                int _priority = MyBluetoothDevice.parseConnectionPriority(args.get("priority"), BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+                reply.success(MyBluetoothManager.me().cacheDevice(args.deviceId()).requestConnectionPriority(_priority));
+            }
+        });
+        register("setConnectionPriorityPolicy", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                int _idlePriority = MyBluetoothDevice.parseConnectionPriority(args.get("idlePriority"), BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+                MyBluetoothManager.me().cacheDevice(args.deviceId()).setConnectionPriorityPolicy(args.getBoolean("enable", true), args.getLong("idleTimeout", 0), _idlePriority);
+                reply.success(true);
+            }
+        });
+        register("setNotificationBatch", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothManager.me().cacheDevice(args.deviceId()).setNotificationBatch(args.getLong("interval", 0), args.getInt("maxFrames", MyNotificationBatcher.DEF_MAX_FRAMES));
+                reply.success(true);
+            }
+        });
+        register("setNotificationFraming", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().cacheDevice(args.deviceId());
+                _device.setNotificationFraming(_characteristicId(args), MyNotificationFramer.parseMode(args.get("mode")), MyNotificationFramer.parseCrc(args.get("crc")),
+                        args.getLong("timeout", MyNotificationFramer.DEF_TIMEOUT), args.getInt("maxLength", MyNotificationFramer.DEF_MAX_LENGTH));
+                reply.success(true);
+            }
+        });
+        register("getNotificationFraming", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyBluetoothManager.me().cacheDevice(args.deviceId()).getNotificationFraming());
+            }
+        });
+        register("getCharacteristics", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                reply.success(MyBluetoothManager.me().cacheDevice(args.deviceId()).characteristicIndex.toList());
+            }
+        });
+        register("readRssi", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothManager.me().cacheDevice(args.deviceId()).readRssi(reply);
+            }
+        });
+        register("disconnect", new IMethodHandler() {
+            @Override
+            public void handle(MyMethodArgs args, IReply reply) {
+                MyBluetoothDevice _device = MyBluetoothManager.me().getDevice(args.deviceId());
+                reply.success(null != _device && _device.disconnect());
+            }
+        });
+    }
 
-            _reply.error("unKnow method: " + _method);
-        } catch (MyBluetoothException e) {
-            _reply.error(e.getCode(), e.getMessage());
-        } catch (RuntimeException e) {
-            _reply.error(e.getMessage());
-        }
+    // 获取特征标识，传递了句柄时返回句柄引用，由操作执行时转换，排在前面的发现服务操作此时已经完成。
+    private static String _characteristicId(MyMethodArgs args) {
+        if (!args.has("handle")) return args.getString("characteristicId");
+        return MyCharacteristicIndex.handleRef(args.getInt("handle", -1));
     }
 
     /**
-     * 调用Dart方法
+     * 调用Dart方法，消息在调用线程中组装，仅发送在平台线程中执行。
      *
      * @param methodName 方法名称
      * @param args       方法参数
@@ -197,7 +445,7 @@ final class MyMethodRouter implements BasicMessageChannel.MessageHandler<Object>
         final Map<String, Object> _params = new HashMap<>(2);
         _params.put(KEY_METHOD, methodName);
         _params.put(KEY_ARGS, args);
-        PlatformHelper.me().getActivity().runOnUiThread(new Runnable() {
+        MyHandler.me().runOnMain(new Runnable() {
             @Override
             public void run() {
                 basicMessageChannel.send(_params);
@@ -220,6 +468,40 @@ final class MyMethodRouter implements BasicMessageChannel.MessageHandler<Object>
         callMethod(C_onDeviceStateChange, _data);
     }
 
+    /// 自动重连成功时的通知，latency为从断开到重新连接的耗时，restoreTime为恢复会话状态的耗时，单位：毫秒。
+    void callOnDeviceReconnected(String deviceId, int attempts, boolean background, long latency, long restoreTime) {
+        Map<String, Object> _data = new HashMap<>(8);
+        _data.put("deviceId", deviceId);
+        _data.put("attempts", attempts);
+        _data.put("background", background);
+        _data.put("latency", latency);
+        _data.put("restoreTime", restoreTime);
+        callMethod(C_onDeviceReconnected, _data);
+    }
+
+    /// 扫描过程中发现新设备或设备信息更新时的通知
+    void callOnScanResult(String deviceId, String deviceName, int rssi, boolean isNew, Map<String, Object> advertisement) {
+        Map<String, Object> _data = new HashMap<>(8);
+        _data.put("deviceId", deviceId);
+        _data.put("deviceName", deviceName);
+        _data.put("rssi", rssi);
+        _data.put("isNew", isNew);
+        _data.put("advertisement", advertisement);
+        callMethod(C_onScanResult, _data);
+    }
+
+    /// 批量扫描结果的通知
+    void callOnScanBatch(List<Map<String, Object>> results) {
+        Map<String, Object> _data = new HashMap<>(2);
+        _data.put("results", results);
+        callMethod(C_onScanBatch, _data);
+    }
+
+    /// 后台扫描中发现关注的设备时的通知，每次扫描中每个设备只通知一次。
+    void callOnWatchedDeviceSeen(Map<String, Object> data) {
+        callMethod(C_onWatchedDeviceSeen, data);
+    }
+
     /// 发现服务时的通知
     void callOnServicesDiscovered(String deviceId, Object data) {
         Map<String, Object> _data = new HashMap<>(2);
@@ -229,32 +511,81 @@ final class MyMethodRouter implements BasicMessageChannel.MessageHandler<Object>
     }
 
     /// 接收到广播数据时的通知
-    void callOnCharacteristicNotifyData(String deviceId, String characteristicId, Object data) {
-        Map<String, Object> _data = new HashMap<>(2);
+    void callOnCharacteristicNotifyData(String deviceId, int handle, String characteristicId, byte[] data) {
+        // 二进制通道句柄用尽时改用键值对消息发送
+        if (MyBinaryChannel.me().isEnabled() && MyBinaryChannel.me().sendNotifyData(deviceId, characteristicId, data)) return;
+        Map<String, Object> _data = new HashMap<>(8);
         _data.put("deviceId", deviceId);
-        _data.put("characteristicId", characteristicId);
+        // 有句柄时只发送句柄，Dart根据发现服务的结果转换为特征标识。
+        if (0 <= handle) {
+            _data.put("handle", handle);
+        } else {
+            _data.put("characteristicId", characteristicId);
+        }
         _data.put("data", data);
         callMethod(C_onCharacteristicNotifyData, _data);
     }
 
+    /// 合并发送的通知数据，times为各帧接收时间(开机时长，单位：毫秒)，data为对应的各帧数据。
+    void callOnCharacteristicNotifyBatch(String deviceId, int handle, String characteristicId, long[] times, byte[][] frames) {
+        if (MyBinaryChannel.me().isEnabled() && MyBinaryChannel.me().sendNotifyBatch(deviceId, characteristicId, times, frames)) return;
+        Map<String, Object> _data = new HashMap<>(8);
+        _data.put("deviceId", deviceId);
+        if (0 <= handle) {
+            _data.put("handle", handle);
+        } else {
+            _data.put("characteristicId", characteristicId);
+        }
+        _data.put("times", times);
+        _data.put("data", Arrays.asList(frames));
+        callMethod(C_onCharacteristicNotifyBatch, _data);
+    }
+
     /// 接收到读取数据结果时的通知
-    void callOnCharacteristicReadResult(String deviceId, String characteristicId, Object data) {
-        Map<String, Object> _data = new HashMap<>(2);
+    void callOnCharacteristicReadResult(String deviceId, int handle, String characteristicId, byte[] data) {
+        if (MyBinaryChannel.me().isEnabled() && MyBinaryChannel.me().sendReadResult(deviceId, characteristicId, data)) return;
+        Map<String, Object> _data = new HashMap<>(8);
         _data.put("deviceId", deviceId);
-        _data.put("characteristicId", characteristicId);
+        // 有句柄时只发送句柄，Dart根据发现服务的结果转换为特征标识。
+        if (0 <= handle) {
+            _data.put("handle", handle);
+        } else {
+            _data.put("characteristicId", characteristicId);
+        }
         _data.put("data", data);
         callMethod(C_onCharacteristicReadResult, _data);
     }
 
     /// 接收到写入数据结果时的通知
-    void callOnCharacteristicWriteResult(String deviceId, String characteristicId, boolean isOk) {
-        Map<String, Object> _data = new HashMap<>(2);
+    void callOnCharacteristicWriteResult(String deviceId, int handle, String characteristicId, boolean isOk) {
+        if (MyBinaryChannel.me().isEnabled() && MyBinaryChannel.me().sendWriteResult(deviceId, characteristicId, isOk)) return;
+        Map<String, Object> _data = new HashMap<>(8);
         _data.put("deviceId", deviceId);
-        _data.put("characteristicId", characteristicId);
+        // 有句柄时只发送句柄，Dart根据发现服务的结果转换为特征标识。
+        if (0 <= handle) {
+            _data.put("handle", handle);
+        } else {
+            _data.put("characteristicId", characteristicId);
+        }
         _data.put("isOk", isOk);
         callMethod(C_onCharacteristicWriteResult, _data);
     }
 
+    /// 连续写入进度通知
+    void callOnCharacteristicWriteProgress(String deviceId, int handle, String characteristicId, int bytes, int total, long bytesPerSecond) {
+        Map<String, Object> _data = new HashMap<>(8);
+        _data.put("deviceId", deviceId);
+        if (0 <= handle) {
+            _data.put("handle", handle);
+        } else {
+            _data.put("characteristicId", characteristicId);
+        }
+        _data.put("bytes", bytes);
+        _data.put("total", total);
+        _data.put("bytesPerSecond", bytesPerSecond);
+        callMethod(C_onCharacteristicWriteProgress, _data);
+    }
+
     /************************************************************
      ************* 单例对象。
      ************************************************************/
@@ -263,6 +594,7 @@ final class MyMethodRouter implements BasicMessageChannel.MessageHandler<Object>
             // 防止使用反射API创建对象实例。
             throw new IllegalStateException("that's not allowed!");
         }
+        _registerDefaults();
     }
 
     // 当前对象唯一实例持有者。
@@ -0,0 +1,304 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import java.io.ObjectStreamException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 操作耗时统计，按设备与操作类型记录耗时分布、成功/失败/超时次数与GATT状态码。
+ * <p>
+ * 耗时使用对数分段的直方图(每个2的幂区间再分为8段，相对误差不超过12.5%)记录，
+ * 记录时只进行原子递增，不加锁。
+ */
+final class MyMetrics {
+
+    /// 扫描，与设备无关的统计使用空字符串作为设备地址。
+    static final int OP_SCAN = 0;
+    // 操作类型数量上限，操作类型参考 MyGattOperation.TYPE_*。
+    static final int MAX_OPS = 16;
+    /// 自动重连，从连接断开到重新连接并恢复会话状态的耗时。
+    static final int OP_RECONNECT = MAX_OPS - 1;
+
+    static final int OUTCOME_SUCCESS = 0;
+    static final int OUTCOME_FAILURE = 1;
+    static final int OUTCOME_TIMEOUT = 2;
+
+    // 操作名称，下标为操作类型。
+    private static final String[] _OP_NAMES = {"scan", "connect", "discoverServices", "characteristicRead",
+            "characteristicWrite", "descriptorWrite", "readRssi", "writeStream", "requestMtu", "restoreSession",
+            "characteristicReadLong", "reliableWrite", "fileTransfer"};
+
+    // 设备地址 -> 设备统计
+    private final ConcurrentHashMap<String, DeviceMetrics> _devices = new ConcurrentHashMap<>(8);
+
+    /**
+     * 记录操作结果
+     *
+     * @param address 设备地址
+     * @param op      操作类型
+     * @param outcome 操作结果：OUTCOME_*。
+     * @param micros  耗时，单位：微秒，小于0时只记录结果。
+     */
+    void record(String address, int op, int outcome, long micros) {
+        OpMetrics _metrics = _get(address, op);
+        if (null == _metrics) return;
+        switch (outcome) {
+            case OUTCOME_SUCCESS:
+                _metrics.success.incrementAndGet();
+                break;
+            case OUTCOME_TIMEOUT:
+                _metrics.timeout.incrementAndGet();
+                break;
+            default:
+                _metrics.failure.incrementAndGet();
+                break;
+        }
+        if (0 <= micros) _metrics.latency.record(micros);
+    }
+
+    /**
+     * 记录GATT回调的状态码
+     *
+     * @param address 设备地址
+     * @param op      操作类型
+     * @param status  状态码
+     */
+    void status(String address, int op, int status) {
+        OpMetrics _metrics = _get(address, op);
+        if (null == _metrics) return;
+        AtomicLong _counter = _metrics.statuses.get(status);
+        if (null == _counter) {
+            AtomicLong _newCounter = new AtomicLong();
+            _counter = _metrics.statuses.putIfAbsent(status, _newCounter);
+            if (null == _counter) _counter = _newCounter;
+        }
+        _counter.incrementAndGet();
+    }
+
+    /**
+     * 清空所有统计数据
+     */
+    void reset() {
+        this._devices.clear();
+    }
+
+    /**
+     * 导出统计数据
+     *
+     * @param histogram 是否包含耗时直方图
+     * @return 设备地址 -> 操作名称 -> 统计数据：count、success、failure、timeout、statuses(状态码 -> 次数)，
+     * 以及耗时(单位：微秒)：min、max、mean、p50、p90、p99，histogram(区间上限 -> 次数)。
+     */
+    Map<String, Object> toMap(boolean histogram) {
+        Map<String, Object> _result = new HashMap<>(this._devices.size() * 2);
+        for (Map.Entry<String, DeviceMetrics> _device : this._devices.entrySet()) {
+            Map<String, Object> _ops = new HashMap<>(16);
+            for (int _i = 0; _i < MAX_OPS; _i++) {
+                OpMetrics _metrics = _device.getValue().ops.get(_i);
+                if (null == _metrics) continue;
+                _ops.put(opName(_i), _metrics.toMap(histogram));
+            }
+            _result.put(_device.getKey(), _ops);
+        }
+        return _result;
+    }
+
+    /**
+     * @param op 操作类型
+     * @return 操作名称
+     */
+    static String opName(int op) {
+        if (OP_RECONNECT == op) return "reconnect";
+        return op < _OP_NAMES.length ? _OP_NAMES[op] : "op" + op;
+    }
+
+    private OpMetrics _get(String address, int op) {
+        if (0 > op || MAX_OPS <= op) return null;
+        String _address = null == address ? "" : address;
+        DeviceMetrics _device = this._devices.get(_address);
+        if (null == _device) {
+            DeviceMetrics _newDevice = new DeviceMetrics();
+            _device = this._devices.putIfAbsent(_address, _newDevice);
+            if (null == _device) _device = _newDevice;
+        }
+        OpMetrics _metrics = _device.ops.get(op);
+        if (null == _metrics) {
+            _device.ops.compareAndSet(op, null, new OpMetrics());
+            _metrics = _device.ops.get(op);
+        }
+        return _metrics;
+    }
+
+    /**
+     * 设备统计
+     */
+    static final class DeviceMetrics {
+        final AtomicReferenceArray<OpMetrics> ops = new AtomicReferenceArray<>(MAX_OPS);
+    }
+
+    /**
+     * 单个操作类型的统计
+     */
+    static final class OpMetrics {
+        final Histogram latency = new Histogram();
+        final AtomicLong success = new AtomicLong();
+        final AtomicLong failure = new AtomicLong();
+        final AtomicLong timeout = new AtomicLong();
+        final ConcurrentHashMap<Integer, AtomicLong> statuses = new ConcurrentHashMap<>(4);
+
+        Map<String, Object> toMap(boolean histogram) {
+            Map<String, Object> _data = this.latency.toMap(histogram);
+            _data.put("success", this.success.get());
+            _data.put("failure", this.failure.get());
+            _data.put("timeout", this.timeout.get());
+            Map<Integer, Long> _statuses = new HashMap<>(this.statuses.size() * 2);
+            for (Map.Entry<Integer, AtomicLong> _item : this.statuses.entrySet()) {
+                _statuses.put(_item.getKey(), _item.getValue().get());
+            }
+            _data.put("statuses", _statuses);
+            return _data;
+        }
+    }
+
+    /**
+     * 对数分段直方图：小于16的值每个值一段，之后每个2的幂区间分为8段。
+     */
+    static final class Histogram {
+        // 精确记录的值上限
+        private static final int _LINEAR = 16;
+        // 每个2的幂区间的分段数量
+        private static final int _SUB_BUCKETS = 8;
+        // 最高位不超过第40位(约12.7天，以微秒计)，超出的值记录在最后一段。
+        private static final int _MAX_BIT = 40;
+        static final int BUCKETS = _LINEAR + (_MAX_BIT - 4 + 1) * _SUB_BUCKETS;
+
+        private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong _count = new AtomicLong();
+        private final AtomicLong _sum = new AtomicLong();
+        private final AtomicLong _min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong _max = new AtomicLong(Long.MIN_VALUE);
+
+        /**
+         * 记录一个值
+         *
+         * @param value 非负值
+         */
+        void record(long value) {
+            long _value = Math.max(0, value);
+            this._counts.incrementAndGet(bucket(_value));
+            this._count.incrementAndGet();
+            this._sum.addAndGet(_value);
+            while (true) {
+                long _current = this._min.get();
+                if (_value >= _current || this._min.compareAndSet(_current, _value)) break;
+            }
+            while (true) {
+                long _current = this._max.get();
+                if (_value <= _current || this._max.compareAndSet(_current, _value)) break;
+            }
+        }
+
+        /**
+         * @return 记录次数
+         */
+        long count() {
+            return this._count.get();
+        }
+
+        /**
+         * 获取百分位数的近似值
+         *
+         * @param percentile 百分位，如：99。
+         * @return 所在区间的上限，不超过记录的最大值，没有记录时返回0。
+         */
+        long percentile(double percentile) {
+            long _total = this._count.get();
+            if (0 == _total) return 0;
+            long _rank = Math.max(1, (long) Math.ceil(_total * percentile / 100.0));
+            long _seen = 0;
+            for (int _i = 0; _i < BUCKETS; _i++) {
+                _seen += this._counts.get(_i);
+                if (_seen >= _rank) return Math.min(upperBound(_i), this._max.get());
+            }
+            return this._max.get();
+        }
+
+        Map<String, Object> toMap(boolean histogram) {
+            Map<String, Object> _data = new HashMap<>(16);
+            long _total = this._count.get();
+            _data.put("count", _total);
+            _data.put("min", 0 == _total ? 0L : this._min.get());
+            _data.put("max", 0 == _total ? 0L : this._max.get());
+            _data.put("mean", 0 == _total ? 0L : this._sum.get() / _total);
+            _data.put("p50", percentile(50));
+            _data.put("p90", percentile(90));
+            _data.put("p99", percentile(99));
+            if (histogram) {
+                Map<Long, Long> _buckets = new HashMap<>(16);
+                for (int _i = 0; _i < BUCKETS; _i++) {
+                    long _bucketCount = this._counts.get(_i);
+                    if (0 != _bucketCount) _buckets.put(upperBound(_i), _bucketCount);
+                }
+                _data.put("histogram", _buckets);
+            }
+            return _data;
+        }
+
+        /**
+         * @param value 非负值
+         * @return 值所在的区间
+         */
+        static int bucket(long value) {
+            if (value < _LINEAR) return (int) value;
+            int _bit = 63 - Long.numberOfLeadingZeros(value);
+            if (_bit > _MAX_BIT) return BUCKETS - 1;
+            // 最高位之后的3位作为段内序号
+            int _sub = (int) (value >>> (_bit - 3)) - _SUB_BUCKETS;
+            return _LINEAR + (_bit - 4) * _SUB_BUCKETS + _sub;
+        }
+
+        /**
+         * @param bucket 区间
+         * @return 区间包含的最大值
+         */
+        static long upperBound(int bucket) {
+            if (bucket < _LINEAR) return bucket;
+            int _bit = (bucket - _LINEAR) / _SUB_BUCKETS + 4;
+            int _sub = (bucket - _LINEAR) % _SUB_BUCKETS;
+            return ((long) (_SUB_BUCKETS + _sub + 1) << (_bit - 3)) - 1;
+        }
+    }
+
+    /************************************************************
+     ************* 单例对象。
+     ************************************************************/
+    private MyMetrics() {
+        if (null != MyMetricsHolder._INSTANCE) {
+            // 防止使用反射API创建对象实例。
+            throw new IllegalStateException("that's not allowed!");
+        }
+    }
+
+    // 当前对象唯一实例持有者。
+    private static final class MyMetricsHolder {
+        private static final MyMetrics _INSTANCE = new MyMetrics();
+    }
+
+    // 防止使用反序列化操作获取多个对象实例。
+    private Object readResolve() throws ObjectStreamException {
+        return MyMetricsHolder._INSTANCE;
+    }
+
+    /**
+     * 获取当前对象唯一实例。
+     *
+     * @return 当前对象唯一实例
+     */
+    public static MyMetrics me() {
+        return MyMetricsHolder._INSTANCE;
+    }
+}
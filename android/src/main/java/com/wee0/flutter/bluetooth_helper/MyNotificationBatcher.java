@@ -0,0 +1,130 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 特征通知合并发送，按设备与特征累积通知数据，达到时间窗口或帧数上限时作为一条消息发送。
+ */
+final class MyNotificationBatcher {
+
+    // 默认每批最大帧数
+    static final int DEF_MAX_FRAMES = 32;
+
+    final String deviceId;
+    // 时间窗口，单位：毫秒。
+    private final long _interval;
+    // 每批最大帧数
+    private final int _maxFrames;
+    // 各特征的待发送数据
+    private final Map<String, Batch> _batches = new HashMap<>(8, 1.0f);
+
+    // 时间窗口到期时发送所有待发送数据
+    private final Runnable _flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    // 是否已安排发送任务
+    private boolean _scheduled = false;
+
+    MyNotificationBatcher(String deviceId, long interval, int maxFrames) {
+        if (1 > interval) throw new IllegalArgumentException("interval must be greater than 0!");
+        this.deviceId = deviceId;
+        this._interval = interval;
+        this._maxFrames = 0 < maxFrames ? maxFrames : DEF_MAX_FRAMES;
+    }
+
+    /**
+     * 添加一帧通知数据
+     *
+     * @param handle           特征句柄，没有时为-1。
+     * @param characteristicId 特征标识
+     * @param data             通知数据
+     */
+    void add(int handle, String characteristicId, byte[] data) {
+        Batch _full = null;
+        synchronized (this) {
+            Batch _batch = this._batches.get(characteristicId);
+            if (null == _batch) {
+                _batch = new Batch(handle, characteristicId, this._maxFrames);
+                this._batches.put(characteristicId, _batch);
+            }
+            _batch.add(SystemClock.elapsedRealtime(), data);
+            if (_batch.size >= this._maxFrames) {
+                _full = _batch.take();
+            } else if (!this._scheduled) {
+                this._scheduled = true;
+                MyHandler.me().post(this._flushTask, this._interval);
+            }
+        }
+        if (null != _full) _send(_full);
+    }
+
+    /**
+     * 立即发送所有待发送数据
+     */
+    void flush() {
+        Batch[] _pending;
+        synchronized (this) {
+            this._scheduled = false;
+            MyHandler.me().remove(this._flushTask);
+            _pending = new Batch[this._batches.size()];
+            int _count = 0;
+            Iterator<Batch> _iterator = this._batches.values().iterator();
+            while (_iterator.hasNext()) {
+                Batch _batch = _iterator.next();
+                if (0 < _batch.size) _pending[_count++] = _batch.take();
+            }
+            if (_count < _pending.length) _pending = Arrays.copyOf(_pending, _count);
+        }
+        for (Batch _batch : _pending) {
+            _send(_batch);
+        }
+    }
+
+    private void _send(Batch batch) {
+        MyMethodRouter.me().callOnCharacteristicNotifyBatch(this.deviceId, batch.handle, batch.characteristicId, batch.times, batch.frames);
+    }
+
+    /**
+     * 单个特征的待发送数据
+     */
+    static final class Batch {
+        final int handle;
+        final String characteristicId;
+        long[] times;
+        byte[][] frames;
+        int size = 0;
+
+        Batch(int handle, String characteristicId, int capacity) {
+            this.handle = handle;
+            this.characteristicId = characteristicId;
+            this.times = new long[capacity];
+            this.frames = new byte[capacity][];
+        }
+
+        void add(long time, byte[] frame) {
+            this.times[this.size] = time;
+            this.frames[this.size] = frame;
+            this.size++;
+        }
+
+        // 取出已累积的数据，并重置当前批次。
+        Batch take() {
+            Batch _result = new Batch(this.handle, this.characteristicId, 0);
+            _result.times = Arrays.copyOf(this.times, this.size);
+            _result.frames = Arrays.copyOf(this.frames, this.size);
+            _result.size = this.size;
+            Arrays.fill(this.frames, 0, this.size, null);
+            this.size = 0;
+            return _result;
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 通知分段重组，将同一特征的多个通知分段合并为完整的帧后再发送，一个分段不会跨越两个帧。
+ * <p>
+ * 分段格式：
+ * <ul>
+ * <li>{@link #MODE_LENGTH}：帧的第一个分段以2字节小端序的帧长度开头(不含长度本身)，之后的分段为帧数据的延续，收满长度后结束。</li>
+ * <li>{@link #MODE_FLAGS}：每个分段以1字节标志开头，{@link #FLAG_START} 表示帧的第一个分段，{@link #FLAG_END} 表示最后一个分段，
+ * 单个分段的帧同时设置两个标志。</li>
+ * </ul>
+ * 开启校验时帧的最后2字节(CRC-16/CCITT-FALSE)或4字节(CRC-32)为帧数据的小端序校验值，校验通过后去除。
+ * 帧未在超时时间内收齐时丢弃已收到的分段。
+ */
+final class MyNotificationFramer {
+
+    /// 长度前缀
+    static final int MODE_LENGTH = 1;
+    /// 开始/结束标志
+    static final int MODE_FLAGS = 2;
+
+    /// 不校验
+    static final int CRC_NONE = 0;
+    /// CRC-16/CCITT-FALSE
+    static final int CRC_16 = 1;
+    /// CRC-32
+    static final int CRC_32 = 2;
+
+    /// 帧的第一个分段
+    static final int FLAG_START = 0x80;
+    /// 帧的最后一个分段
+    static final int FLAG_END = 0x40;
+
+    // 默认重组超时时间，单位：毫秒。
+    static final long DEF_TIMEOUT = 1000L;
+    // 帧长度上限，批量通知的二进制帧以2字节记录数据长度。
+    static final int MAX_LENGTH = 0xFFFF;
+    // 默认帧长度上限
+    static final int DEF_MAX_LENGTH = MAX_LENGTH;
+
+    final int mode;
+    final int crc;
+    // 重组超时时间，单位：毫秒。
+    final long timeout;
+    // 帧长度上限
+    final int maxLength;
+
+    // 正在重组的帧数据，长度模式下按帧长度分配。
+    private byte[] _frame = null;
+    // 已收到的字节数
+    private int _received = 0;
+    // 帧长度，标志模式下未知时为-1。
+    private int _expected = -1;
+    // 第一个分段的接收时间(开机时长，单位：毫秒)。
+    private long _startTime = 0;
+
+    // 统计：完整帧、超时丢弃、校验失败与格式错误的数量。
+    private long _frames = 0;
+    private long _timeouts = 0;
+    private long _crcErrors = 0;
+    private long _malformed = 0;
+
+    MyNotificationFramer(int mode, int crc, long timeout, int maxLength) {
+        if (MODE_LENGTH != mode && MODE_FLAGS != mode) throw new IllegalArgumentException("unSupport framing mode: " + mode);
+        if (CRC_NONE != crc && CRC_16 != crc && CRC_32 != crc) throw new IllegalArgumentException("unSupport crc: " + crc);
+        this.mode = mode;
+        this.crc = crc;
+        this.timeout = 0 < timeout ? timeout : DEF_TIMEOUT;
+        this.maxLength = 0 < maxLength ? Math.min(maxLength, MAX_LENGTH) : DEF_MAX_LENGTH;
+    }
+
+    /**
+     * 添加一个分段
+     *
+     * @param segment 通知数据
+     * @return 收齐并校验通过的帧数据，帧未结束或被丢弃时返回null。
+     */
+    synchronized byte[] add(byte[] segment) {
+        if (null == segment || 0 == segment.length) return null;
+        long _now = SystemClock.elapsedRealtime();
+        if (null != this._frame && _now - this._startTime > this.timeout) {
+            MyLog.debug("drop partial frame by timeout, received: {}", this._received);
+            this._timeouts++;
+            _reset();
+        }
+        return MODE_LENGTH == this.mode ? _addLength(segment, _now) : _addFlags(segment, _now);
+    }
+
+    /**
+     * 丢弃正在重组的帧，用于连接断开后。
+     */
+    synchronized void reset() {
+        _reset();
+    }
+
+    /**
+     * @return 统计信息：mode、crc、timeout、frames、timeouts、crcErrors、malformed、pending(正在重组的字节数)。
+     */
+    synchronized Map<String, Object> toMap() {
+        Map<String, Object> _data = new HashMap<>(16);
+        _data.put("mode", this.mode);
+        _data.put("crc", this.crc);
+        _data.put("timeout", this.timeout);
+        _data.put("frames", this._frames);
+        _data.put("timeouts", this._timeouts);
+        _data.put("crcErrors", this._crcErrors);
+        _data.put("malformed", this._malformed);
+        _data.put("pending", this._received);
+        return _data;
+    }
+
+    private byte[] _addLength(byte[] segment, long now) {
+        int _offset = 0;
+        if (null == this._frame) {
+            if (2 > segment.length) {
+                this._malformed++;
+                return null;
+            }
+            this._expected = (segment[0] & 0xFF) | (segment[1] & 0xFF) << 8;
+            if (this._expected > this.maxLength || this._expected < _crcSize()) {
+                MyLog.debug("drop frame with invalid length: {}", this._expected);
+                this._malformed++;
+                return null;
+            }
+            this._frame = new byte[this._expected];
+            this._startTime = now;
+            _offset = 2;
+        }
+        int _length = segment.length - _offset;
+        if (this._received + _length > this._expected) {
+            MyLog.debug("drop frame overflow, expected: {}, received: {}", this._expected, this._received + _length);
+            this._malformed++;
+            _reset();
+            return null;
+        }
+        System.arraycopy(segment, _offset, this._frame, this._received, _length);
+        this._received += _length;
+        if (this._received < this._expected) return null;
+        return _complete();
+    }
+
+    private byte[] _addFlags(byte[] segment, long now) {
+        int _flags = segment[0] & 0xFF;
+        if (0 != (_flags & FLAG_START)) {
+            if (null != this._frame) {
+                // 上一帧未收到结束分段
+                this._malformed++;
+                _reset();
+            }
+            this._frame = new byte[Math.min(this.maxLength, Math.max(64, (segment.length - 1) * 4))];
+            this._startTime = now;
+        } else if (null == this._frame) {
+            // 丢失了帧的第一个分段，忽略到下一个开始分段为止。
+            this._malformed++;
+            return null;
+        }
+        int _length = segment.length - 1;
+        if (this._received + _length > this.maxLength) {
+            MyLog.debug("drop frame longer than {}", this.maxLength);
+            this._malformed++;
+            _reset();
+            return null;
+        }
+        if (this._received + _length > this._frame.length) {
+            this._frame = Arrays.copyOf(this._frame, Math.min(this.maxLength, Math.max(this._received + _length, this._frame.length << 1)));
+        }
+        System.arraycopy(segment, 1, this._frame, this._received, _length);
+        this._received += _length;
+        if (0 == (_flags & FLAG_END)) return null;
+        if (this._received < _crcSize()) {
+            this._malformed++;
+            _reset();
+            return null;
+        }
+        return _complete();
+    }
+
+    // 帧已收齐，校验并去除校验值。
+    private byte[] _complete() {
+        byte[] _frame = this._frame;
+        int _length = this._received - _crcSize();
+        _reset();
+        if (CRC_NONE != this.crc) {
+            long _expected = _readLittleEndian(_frame, _length, _crcSize());
+            long _actual = CRC_16 == this.crc ? crc16(_frame, 0, _length) : _crc32(_frame, _length);
+            if (_expected != _actual) {
+                MyLog.debug("drop frame with crc error, expected: {}, actual: {}", _expected, _actual);
+                this._crcErrors++;
+                return null;
+            }
+        }
+        this._frames++;
+        return _length == _frame.length ? _frame : Arrays.copyOf(_frame, _length);
+    }
+
+    private int _crcSize() {
+        return CRC_16 == this.crc ? 2 : CRC_32 == this.crc ? 4 : 0;
+    }
+
+    private void _reset() {
+        this._frame = null;
+        this._received = 0;
+        this._expected = -1;
+    }
+
+    /**
+     * 计算 CRC-16/CCITT-FALSE：多项式0x1021，初始值0xFFFF。
+     *
+     * @param data   数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 校验值
+     */
+    static int crc16(byte[] data, int offset, int length) {
+        int _crc = 0xFFFF;
+        for (int _i = offset; _i < offset + length; _i++) {
+            _crc ^= (data[_i] & 0xFF) << 8;
+            for (int _bit = 0; _bit < 8; _bit++) {
+                _crc = 0 != (_crc & 0x8000) ? (_crc << 1) ^ 0x1021 : _crc << 1;
+            }
+        }
+        return _crc & 0xFFFF;
+    }
+
+    private static long _crc32(byte[] data, int length) {
+        CRC32 _crc = new CRC32();
+        _crc.update(data, 0, length);
+        return _crc.getValue();
+    }
+
+    private static long _readLittleEndian(byte[] data, int offset, int size) {
+        long _value = 0;
+        for (int _i = size - 1; _i >= 0; _i--) {
+            _value = (_value << 8) | (data[offset + _i] & 0xFF);
+        }
+        return _value;
+    }
+
+    /**
+     * 解析分段模式参数，支持名称(length、flags)与数值。
+     *
+     * @param value 参数值
+     * @return 分段模式，为空或none时返回0。
+     */
+    static int parseMode(Object value) {
+        if (null == value) return 0;
+        if (value instanceof Number) return ((Number) value).intValue();
+        String _name = value.toString().trim();
+        if ("none".equalsIgnoreCase(_name)) return 0;
+        if ("length".equalsIgnoreCase(_name)) return MODE_LENGTH;
+        if ("flags".equalsIgnoreCase(_name)) return MODE_FLAGS;
+        throw new IllegalArgumentException("unSupport framing mode: " + value);
+    }
+
+    /**
+     * 解析校验方式参数，支持名称(none、crc16、crc32)与数值。
+     *
+     * @param value 参数值
+     * @return 校验方式
+     */
+    static int parseCrc(Object value) {
+        if (null == value) return CRC_NONE;
+        if (value instanceof Number) return ((Number) value).intValue();
+        String _name = value.toString().trim();
+        if ("none".equalsIgnoreCase(_name)) return CRC_NONE;
+        if ("crc16".equalsIgnoreCase(_name)) return CRC_16;
+        if ("crc32".equalsIgnoreCase(_name)) return CRC_32;
+        throw new IllegalArgumentException("unSupport crc: " + value);
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.os.SystemClock;
+
+import java.util.Random;
+
+/**
+ * 设备自动重连。连接意外断开后先以带随机抖动的指数退避间隔快速直连重试，
+ * 重试次数用完后改用系统的自动连接(autoConnect=true)在后台等待设备重新出现；
+ * 重新连接后由设备恢复会话状态，并通过 {@link MyMethodRouter#callOnDeviceReconnected} 通知重连耗时。
+ * <p>
+ * 主动断开连接时取消重连，直到下一次连接成功后才重新生效。
+ */
+final class MyReconnector {
+
+    // 默认首次重试的退避时间，单位：毫秒。
+    static final long DEF_INITIAL_DELAY = 200L;
+    // 默认最大退避时间，单位：毫秒。
+    static final long DEF_MAX_DELAY = 10000L;
+    // 默认快速直连重试次数
+    static final int DEF_MAX_ATTEMPTS = 5;
+    // 默认每次直连的超时时间，单位：毫秒。
+    static final long DEF_ATTEMPT_TIMEOUT = 5000L;
+
+    final MyBluetoothDevice device;
+    private final long _initialDelay;
+    private final long _maxDelay;
+    private final int _maxAttempts;
+    private final long _attemptTimeout;
+    private final Random _random = new Random();
+
+    // 是否在连接断开时重连，主动断开后关闭，连接成功后开启。
+    private boolean _armed = false;
+    // 连接断开的时间(开机时长，单位：毫秒)，不在重连过程中时为0。
+    private long _disconnectTime = 0;
+    // 已进行的直连次数
+    private int _attempts = 0;
+    // 是否已转为后台自动连接
+    private boolean _background = false;
+
+    // 退避时间到期时发起下一次连接
+    private final Runnable _attemptTask = new Runnable() {
+        @Override
+        public void run() {
+            _attempt();
+        }
+    };
+
+    MyReconnector(MyBluetoothDevice device, long initialDelay, long maxDelay, int maxAttempts, long attemptTimeout) {
+        if (null == device) throw new IllegalArgumentException("device can not be null!");
+        this.device = device;
+        this._initialDelay = 0 < initialDelay ? initialDelay : DEF_INITIAL_DELAY;
+        this._maxDelay = Math.max(this._initialDelay, 0 < maxDelay ? maxDelay : DEF_MAX_DELAY);
+        this._maxAttempts = 0 <= maxAttempts ? maxAttempts : DEF_MAX_ATTEMPTS;
+        this._attemptTimeout = 0 < attemptTimeout ? attemptTimeout : DEF_ATTEMPT_TIMEOUT;
+    }
+
+    /**
+     * 立即开始连接，用于开启自动重连时设备尚未连接的情况。
+     */
+    synchronized void start() {
+        this._armed = true;
+        _begin();
+    }
+
+    /**
+     * 连接已建立
+     *
+     * @return 本次连接是否由重连建立，返回true时需要恢复会话状态。
+     */
+    synchronized boolean onConnected() {
+        this._armed = true;
+        MyHandler.me().remove(this._attemptTask);
+        return 0 != this._disconnectTime;
+    }
+
+    /**
+     * 会话状态已恢复，结束本次重连并通知重连耗时。
+     *
+     * @param restoreTime 恢复会话状态的耗时，单位：毫秒。
+     */
+    void onRestored(long restoreTime) {
+        long _latency;
+        int _attempts;
+        boolean _background;
+        synchronized (this) {
+            if (0 == this._disconnectTime) return;
+            _latency = SystemClock.elapsedRealtime() - this._disconnectTime - restoreTime;
+            _attempts = this._attempts;
+            _background = this._background;
+            _reset();
+        }
+        String _address = this.device.device.getAddress();
+        MyLog.debug("device {} reconnected, attempts: {}, background: {}, latency: {}ms, restore: {}ms", _address, _attempts, _background, _latency, restoreTime);
+        MyEventJournal.me().record(MyEventJournal.TYPE_RECONNECT, MyEventJournal.address(_address), _attempts, _background ? 1 : 0, (int) _latency);
+        MyMetrics.me().record(_address, MyMetrics.OP_RECONNECT, MyMetrics.OUTCOME_SUCCESS, (_latency + restoreTime) * 1000L);
+        MyMethodRouter.me().callOnDeviceReconnected(_address, _attempts, _background, _latency, restoreTime);
+    }
+
+    /**
+     * 连接已断开，未主动断开时开始重连。只能由当前连接的断开回调调用，设备仍处于连接状态时忽略，
+     * 避免已关闭连接的迟到回调在新连接正常时重新开始退避重连。
+     */
+    synchronized void onDisconnected() {
+        if (!this._armed) return;
+        if (this.device.connected) {
+            MyLog.debug("device {} still connected, ignore disconnect.", this.device.device.getAddress());
+            return;
+        }
+        if (0 == this._disconnectTime) {
+            _begin();
+        } else if (this._background) {
+            // 后台自动连接被系统结束，退避后重新发起。
+            this._background = false;
+            _schedule();
+        }
+        // 直连过程中的断开由连接操作的结果处理
+    }
+
+    /**
+     * 一次直连失败或超时，退避后重试。
+     */
+    synchronized void onAttemptFailed() {
+        if (!this._armed || 0 == this._disconnectTime) return;
+        _schedule();
+    }
+
+    /**
+     * 后台自动连接未能发起(如连接数量已达上限)，退避后重新发起。
+     */
+    synchronized void onBackgroundFailed() {
+        if (!this._armed || 0 == this._disconnectTime) return;
+        this._background = false;
+        _schedule();
+    }
+
+    /**
+     * 取消重连，主动断开连接或关闭自动重连时调用。
+     */
+    synchronized void cancel() {
+        this._armed = false;
+        MyHandler.me().remove(this._attemptTask);
+        if (0 != this._disconnectTime) {
+            MyMetrics.me().record(this.device.device.getAddress(), MyMetrics.OP_RECONNECT, MyMetrics.OUTCOME_FAILURE, -1);
+        }
+        _reset();
+    }
+
+    /**
+     * @return 是否在连接断开时重连
+     */
+    synchronized boolean isArmed() {
+        return this._armed;
+    }
+
+    /**
+     * @return 每次直连的超时时间，单位：毫秒。
+     */
+    long attemptTimeout() {
+        return this._attemptTimeout;
+    }
+
+    /**
+     * 计算退避时间：以首次退避时间为基数按重试次数指数增长，不超过最大退避时间，
+     * 并在其后半段内随机取值，避免多个设备同时重试。
+     *
+     * @param attempt 已进行的重试次数
+     * @return 退避时间，单位：毫秒。
+     */
+    long delay(int attempt) {
+        long _delay = Math.min(this._maxDelay, this._initialDelay << Math.min(attempt, 20));
+        long _half = _delay >>> 1;
+        return _half + (long) (this._random.nextDouble() * (_delay - _half + 1));
+    }
+
+    private void _begin() {
+        this._disconnectTime = SystemClock.elapsedRealtime();
+        this._attempts = 0;
+        this._background = false;
+        MyLog.debug("device {} start reconnect.", this.device.device);
+        _schedule();
+    }
+
+    // 退避后发起下一次连接：直连次数未用完时直连，否则转为后台自动连接。
+    private void _schedule() {
+        MyHandler.me().remove(this._attemptTask);
+        MyHandler.me().post(this._attemptTask, delay(this._attempts));
+    }
+
+    private void _attempt() {
+        boolean _background;
+        synchronized (this) {
+            if (!this._armed || 0 == this._disconnectTime || this.device.connected) return;
+            _background = this._attempts >= this._maxAttempts;
+            if (_background) {
+                if (this._background) return;
+                this._background = true;
+            } else {
+                this._attempts++;
+            }
+        }
+        if (_background) {
+            MyLog.debug("device {} wait for background connection.", this.device.device);
+            this.device.connectInBackground();
+        } else {
+            MyLog.debug("device {} reconnect attempt {}.", this.device.device, this._attempts);
+            this.device.reconnect(this);
+        }
+    }
+
+    private void _reset() {
+        this._disconnectTime = 0;
+        this._attempts = 0;
+        this._background = false;
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 可靠写入操作，设备回显的数据经过校验后才提交写入。
+ * <p>
+ * 在 beginReliableWrite 之后每次 writeCharacteristic 只发送一个 Prepare Write 请求，且不能指定偏移量，
+ * 因此数据长度不能超过 MTU-5，超过时操作失败。设备回显的数据与写入的数据一致时再 executeReliableWrite 提交，
+ * 不一致时 abortReliableWrite 放弃，设备上的值保持不变。
+ * <p>
+ * 回显的数据在写入回调发生时读取，通过 {@link MyGattOperationQueue#complete} 传入，不读取之后可能被修改的共享特征对象。
+ */
+class MyReliableWrite extends MyGattOperation {
+
+    // 等待准备写入的结果
+    private static final int _STEP_PREPARE = 0;
+    // 等待提交的结果
+    private static final int _STEP_EXECUTE = 1;
+
+    final MyBluetoothDevice device;
+    final String characteristicId;
+    final byte[] value;
+
+    private BluetoothGattCharacteristic _characteristic;
+    private int _step = _STEP_PREPARE;
+    private int _status = BluetoothGatt.GATT_SUCCESS;
+    // 失败原因，成功时为null。
+    private String _error = null;
+    private long _startTime = 0;
+
+    MyReliableWrite(MyBluetoothDevice device, String characteristicId, byte[] value, IReply reply) {
+        super(MyGattOperation.TYPE_RELIABLE_WRITE, reply);
+        if (null == device) throw new IllegalArgumentException("device can not be null!");
+        if (null == value) throw new IllegalArgumentException("value can not be null!");
+        if (BluetoothConstants.MAX_ATTRIBUTE_LENGTH < value.length)
+            throw new IllegalArgumentException("value length must be less than or equal to " + BluetoothConstants.MAX_ATTRIBUTE_LENGTH + "!");
+        this.device = device;
+        this.characteristicId = characteristicId;
+        this.value = value;
+    }
+
+    @Override
+    boolean execute() {
+        this._characteristic = this.device._getCharacteristic(this.characteristicId);
+        if (null == this._characteristic) {
+            fail("characteristic not found: " + this.characteristicId);
+            return false;
+        }
+        int _maxLength = this.device.mtu - BluetoothConstants.ATT_PREPARE_WRITE_HEADER_SIZE;
+        if (this.value.length > _maxLength) {
+            fail("value length " + this.value.length + " exceeds " + _maxLength + " (mtu - " + BluetoothConstants.ATT_PREPARE_WRITE_HEADER_SIZE + "), request a larger mtu first!");
+            return false;
+        }
+        this._startTime = SystemClock.elapsedRealtime();
+        BluetoothGatt _gatt = this.device.gatt1;
+        if (!_gatt.beginReliableWrite()) {
+            fail("could not begin reliable write!");
+            return false;
+        }
+        this._characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+        if (!this._characteristic.setValue(this.value) || !_gatt.writeCharacteristic(this._characteristic)) {
+            _gatt.abortReliableWrite();
+            fail("could not write characteristic: " + this.characteristicId);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    boolean accept(int callbackType) {
+        return MyGattOperation.TYPE_CHARACTERISTIC_WRITE == callbackType || super.accept(callbackType);
+    }
+
+    @Override
+    boolean proceed(Object data) {
+        // 准备写入成功时传入回调中的回显数据，其它情况传入状态码。
+        byte[] _echo = null;
+        if (data instanceof byte[]) {
+            _echo = (byte[]) data;
+            this._status = BluetoothGatt.GATT_SUCCESS;
+        } else {
+            this._status = (Integer) data;
+        }
+        if (_STEP_EXECUTE == this._step) return false;
+        BluetoothGatt _gatt = this.device.gatt1;
+        if (null == _gatt) {
+            this._error = "device disconnected.";
+            return false;
+        }
+        if (BluetoothGatt.GATT_SUCCESS != this._status) {
+            _gatt.abortReliableWrite();
+            this._error = "prepare write failed, status: " + this._status;
+            return false;
+        }
+        // 设备回显的数据与写入的数据不一致时放弃提交
+        if (!Arrays.equals(this.value, _echo)) {
+            _gatt.abortReliableWrite();
+            this._error = "prepared value mismatch.";
+            return false;
+        }
+        if (!_gatt.executeReliableWrite()) {
+            _gatt.abortReliableWrite();
+            this._error = "could not execute reliable write!";
+            return false;
+        }
+        this._step = _STEP_EXECUTE;
+        return true;
+    }
+
+    @Override
+    void done(Object data) {
+        if (null == this._error && BluetoothGatt.GATT_SUCCESS != this._status)
+            this._error = "execute write failed, status: " + this._status;
+        if (null != this._error) {
+            error(IReply.DEF_ERROR_CODE, this._error);
+            return;
+        }
+        Map<String, Object> _data = new HashMap<>(4);
+        _data.put("bytes", this.value.length);
+        _data.put("elapsed", SystemClock.elapsedRealtime() - this._startTime);
+        success(_data);
+    }
+
+    @Override
+    void timeout() {
+        if (null != this.device.gatt1) this.device.gatt1.abortReliableWrite();
+        super.timeout();
+    }
+
+}
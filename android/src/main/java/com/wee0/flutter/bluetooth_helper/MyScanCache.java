@@ -0,0 +1,241 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.os.SystemClock;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扫描结果缓存，跨扫描保留设备最近一次的广播信息，超过有效期或数量上限时淘汰最久未见的设备。
+ */
+final class MyScanCache {
+
+    // 默认有效期：5分钟。
+    static final long DEF_TTL = 5 * 60 * 1000L;
+    // 默认最大设备数量
+    static final int DEF_MAX_SIZE = 256;
+
+    // 有效期，单位：毫秒。
+    private long _ttl = DEF_TTL;
+    // 最大设备数量
+    private int _maxSize = DEF_MAX_SIZE;
+    // 设备地址 -> 缓存条目。批量上报的结果可能晚于更新的结果到达，条目不保证按最后发现时间排序。
+    private final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<>(64, 0.75f);
+
+    // 按最后发现时间倒序排列
+    private static final Comparator<Entry> _LATEST_FIRST = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            return o1.lastSeen < o2.lastSeen ? 1 : o1.lastSeen > o2.lastSeen ? -1 : 0;
+        }
+    };
+
+    /**
+     * 设置缓存参数
+     *
+     * @param ttl     有效期，单位：毫秒，小于1时使用默认值。
+     * @param maxSize 最大设备数量，小于1时使用默认值。
+     */
+    synchronized void configure(long ttl, int maxSize) {
+        this._ttl = 0 < ttl ? ttl : DEF_TTL;
+        this._maxSize = 0 < maxSize ? maxSize : DEF_MAX_SIZE;
+        _evict(SystemClock.elapsedRealtime());
+        _trim();
+    }
+
+    /**
+     * 更新扫描结果
+     *
+     * @param result 扫描结果
+     * @return 缓存条目，设备信息无效时返回null。
+     */
+    synchronized Entry update(ScanResult result) {
+        BluetoothDevice _device = result.getDevice();
+        if (null == _device) return null;
+        String _address = _device.getAddress();
+        long _now = SystemClock.elapsedRealtime();
+        _evict(_now);
+        // 使用扫描结果的接收时间(与开机时长同一时基)，批量上报的结果可能早于回调时间。
+        long _seen = result.getTimestampNanos() / 1000000L;
+        if (0 >= _seen || _seen > _now) _seen = _now;
+        Entry _entry = this._entries.get(_address);
+        if (null == _entry) {
+            _entry = new Entry(_address, _seen);
+            this._entries.put(_address, _entry);
+        }
+        String _name = _device.getName();
+        if (null != _name) _entry.name = _name;
+        _entry.rssi = result.getRssi();
+        ScanRecord _record = result.getScanRecord();
+        if (null != _record) {
+            _entry.txPower = _record.getTxPowerLevel();
+            _entry.advertisement = _record.getBytes();
+        }
+        if (_seen > _entry.lastSeen) _entry.lastSeen = _seen;
+        _entry.count++;
+        _trim();
+        return _entry;
+    }
+
+    /**
+     * 查询缓存的设备信息，按最后发现时间倒序排列。
+     *
+     * @param maxAge     最后发现时间距今的最大时长，单位：毫秒，小于1时不限制。
+     * @param namePrefix 设备名称前缀，为空时不限制。
+     * @param minRssi    最小信号强度
+     * @param limit      最大返回数量，小于1时不限制。
+     * @return 设备信息列表
+     */
+    List<Map<String, Object>> query(long maxAge, String namePrefix, int minRssi, int limit) {
+        long _now = SystemClock.elapsedRealtime();
+        long _wallNow = System.currentTimeMillis();
+        List<Entry> _matched = new ArrayList<>();
+        synchronized (this) {
+            _evict(_now);
+            for (Entry _entry : this._entries.values()) {
+                if (0 < maxAge && _now - _entry.lastSeen > maxAge) continue;
+                if (_entry.rssi < minRssi) continue;
+                if (null != namePrefix && (null == _entry.name || !_entry.name.startsWith(namePrefix))) continue;
+                _matched.add(_entry.copy());
+            }
+        }
+        Collections.sort(_matched, _LATEST_FIRST);
+        int _size = 0 < limit ? Math.min(limit, _matched.size()) : _matched.size();
+        List<Map<String, Object>> _result = new ArrayList<>(_size);
+        for (int _i = 0; _i < _size; _i++) {
+            _result.add(_matched.get(_i).toMap(_now, _wallNow));
+        }
+        return _result;
+    }
+
+    /**
+     * 获取指定设备的缓存条目副本
+     *
+     * @param address 设备地址
+     * @return 缓存条目，不存在或已过期时返回null。
+     */
+    synchronized Entry get(String address) {
+        Entry _entry = this._entries.get(address);
+        if (null == _entry || SystemClock.elapsedRealtime() - _entry.lastSeen > this._ttl) return null;
+        return _entry.copy();
+    }
+
+    /**
+     * @return 缓存的设备数量
+     */
+    synchronized int size() {
+        return this._entries.size();
+    }
+
+    /**
+     * 清空缓存
+     */
+    synchronized void clear() {
+        this._entries.clear();
+    }
+
+    // 淘汰过期的条目，条目不保证按最后发现时间排序，需要检查所有条目。
+    private void _evict(long now) {
+        Iterator<Entry> _iterator = this._entries.values().iterator();
+        while (_iterator.hasNext()) {
+            if (now - _iterator.next().lastSeen > this._ttl) _iterator.remove();
+        }
+    }
+
+    // 超过数量上限时淘汰最久未见的条目
+    private void _trim() {
+        while (this._entries.size() > this._maxSize) {
+            Entry _eldest = null;
+            for (Entry _entry : this._entries.values()) {
+                if (null == _eldest || _entry.lastSeen < _eldest.lastSeen) _eldest = _entry;
+            }
+            this._entries.remove(_eldest.address);
+        }
+    }
+
+    /**
+     * 缓存条目，时间均为开机时长，单位：毫秒。
+     */
+    static final class Entry {
+        final String address;
+        final long firstSeen;
+        String name;
+        int rssi;
+        int txPower = Integer.MIN_VALUE;
+        // 原始广播数据
+        byte[] advertisement;
+        long lastSeen;
+        int count;
+
+        Entry(String address, long firstSeen) {
+            this.address = address;
+            this.firstSeen = firstSeen;
+            this.lastSeen = firstSeen;
+        }
+
+        Entry copy() {
+            Entry _copy = new Entry(this.address, this.firstSeen);
+            _copy.name = this.name;
+            _copy.rssi = this.rssi;
+            _copy.txPower = this.txPower;
+            _copy.advertisement = this.advertisement;
+            _copy.lastSeen = this.lastSeen;
+            _copy.count = this.count;
+            return _copy;
+        }
+
+        // 转换为键值对，时间转换为时间戳。
+        Map<String, Object> toMap(long now, long wallNow) {
+            Map<String, Object> _data = new HashMap<>(16);
+            _data.put("deviceId", this.address);
+            _data.put("deviceName", this.name);
+            _data.put("rssi", this.rssi);
+            if (Integer.MIN_VALUE != this.txPower) _data.put("txPower", this.txPower);
+            _data.put("advertisement", this.advertisement);
+            _data.put("advertisementData", MyAdvertisementParser.parse(this.advertisement));
+            _data.put("firstSeen", wallNow - (now - this.firstSeen));
+            _data.put("lastSeen", wallNow - (now - this.lastSeen));
+            _data.put("count", this.count);
+            return _data;
+        }
+    }
+
+    /************************************************************
+     ************* 单例对象。
+     ************************************************************/
+    private MyScanCache() {
+        if (null != MyScanCacheHolder._INSTANCE) {
+            // 防止使用反射API创建对象实例。
+            throw new IllegalStateException("that's not allowed!");
+        }
+    }
+
+    // 当前对象唯一实例持有者。
+    private static final class MyScanCacheHolder {
+        private static final MyScanCache _INSTANCE = new MyScanCache();
+    }
+
+    // 防止使用反序列化操作获取多个对象实例。
+    private Object readResolve() throws ObjectStreamException {
+        return MyScanCacheHolder._INSTANCE;
+    }
+
+    /**
+     * 获取当前对象唯一实例。
+     *
+     * @return 当前对象唯一实例
+     */
+    public static MyScanCache me() {
+        return MyScanCacheHolder._INSTANCE;
+    }
+}
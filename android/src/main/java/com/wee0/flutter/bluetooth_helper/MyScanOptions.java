@@ -0,0 +1,159 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.le.ScanSettings;
+
+import java.util.Map;
+
+/**
+ * 扫描参数
+ */
+final class MyScanOptions {
+
+    // 默认同一设备的更新通知最小间隔：500毫秒。
+    static final long DEF_THROTTLE = 500L;
+    // 自适应模式默认的评估间隔：5秒。系统限制30秒内最多启动5次扫描，间隔不宜过短。
+    static final long DEF_ADAPTIVE_INTERVAL = 5000L;
+
+    // 设备名称
+    String deviceName;
+    // 设备地址
+    String deviceAddress;
+    // 扫描超时时间，单位：秒。
+    int timeout;
+    // 是否在扫描过程中实时通知扫描结果
+    boolean stream;
+    // 同一设备的更新通知最小间隔，单位：毫秒。
+    long throttle = DEF_THROTTLE;
+    // 批量上报间隔，单位：毫秒，大于0时由控制器缓存扫描结果后批量上报。
+    long reportDelay;
+    // 扫描模式
+    int scanMode = ScanSettings.SCAN_MODE_LOW_POWER;
+    // 是否自适应：以低延迟模式开始，发现新设备的速率下降时逐级降低为低功耗模式。
+    boolean adaptive;
+    // 自适应模式的评估间隔，单位：毫秒。
+    long adaptiveInterval = DEF_ADAPTIVE_INTERVAL;
+    // 匹配模式，0为系统默认。
+    int matchMode;
+    // 匹配数量，0为系统默认。
+    int numOfMatches;
+    // 回调类型，0为系统默认。
+    int callbackType;
+
+    /**
+     * 从调用参数中解析扫描参数
+     *
+     * @param args 调用参数，可以为空。
+     * @return 扫描参数
+     */
+    static MyScanOptions parse(Map<String, Object> args) {
+        MyScanOptions _options = new MyScanOptions();
+        if (null == args) return _options;
+        _options.deviceName = (String) args.get("deviceName");
+        _options.deviceAddress = (String) args.get("deviceId");
+        Object _timeoutObj = args.get("timeout");
+        _options.timeout = null == _timeoutObj ? 0 : Integer.parseInt(_timeoutObj.toString());
+        Object _streamObj = args.get("stream");
+        _options.stream = null != _streamObj && (Boolean) _streamObj;
+        Object _throttleObj = args.get("throttle");
+        if (null != _throttleObj) _options.throttle = Long.parseLong(_throttleObj.toString());
+        Object _reportDelayObj = args.get("reportDelay");
+        if (null != _reportDelayObj) _options.reportDelay = Long.parseLong(_reportDelayObj.toString());
+        _options.parseProfile(args);
+        return _options;
+    }
+
+    /**
+     * 解析扫描模式相关参数：mode、matchMode、numOfMatches、callbackType、adaptiveInterval。
+     *
+     * @param args 调用参数
+     */
+    void parseProfile(Map<String, Object> args) {
+        Object _modeObj = args.get("mode");
+        if (null != _modeObj) {
+            String _mode = _modeObj.toString();
+            if ("adaptive".equals(_mode)) {
+                this.adaptive = true;
+                this.scanMode = ScanSettings.SCAN_MODE_LOW_LATENCY;
+            } else {
+                this.adaptive = false;
+                this.scanMode = _parse(_mode, "mode", new String[]{"lowLatency", "balanced", "lowPower", "opportunistic"},
+                        new int[]{ScanSettings.SCAN_MODE_LOW_LATENCY, ScanSettings.SCAN_MODE_BALANCED, ScanSettings.SCAN_MODE_LOW_POWER, ScanSettings.SCAN_MODE_OPPORTUNISTIC});
+            }
+        }
+        Object _matchModeObj = args.get("matchMode");
+        if (null != _matchModeObj) {
+            this.matchMode = _parse(_matchModeObj.toString(), "matchMode", new String[]{"aggressive", "sticky"},
+                    new int[]{ScanSettings.MATCH_MODE_AGGRESSIVE, ScanSettings.MATCH_MODE_STICKY});
+        }
+        Object _numOfMatchesObj = args.get("numOfMatches");
+        if (null != _numOfMatchesObj) {
+            this.numOfMatches = _parse(_numOfMatchesObj.toString(), "numOfMatches", new String[]{"one", "few", "max"},
+                    new int[]{ScanSettings.MATCH_NUM_ONE_ADVERTISEMENT, ScanSettings.MATCH_NUM_FEW_ADVERTISEMENT, ScanSettings.MATCH_NUM_MAX_ADVERTISEMENT});
+        }
+        Object _callbackTypeObj = args.get("callbackType");
+        if (null != _callbackTypeObj) {
+            this.callbackType = _parse(_callbackTypeObj.toString(), "callbackType", new String[]{"allMatches", "firstMatch", "matchLost"},
+                    new int[]{ScanSettings.CALLBACK_TYPE_ALL_MATCHES, ScanSettings.CALLBACK_TYPE_FIRST_MATCH, ScanSettings.CALLBACK_TYPE_MATCH_LOST});
+        }
+        Object _adaptiveIntervalObj = args.get("adaptiveInterval");
+        if (null != _adaptiveIntervalObj) {
+            this.adaptiveInterval = Math.max(DEF_ADAPTIVE_INTERVAL, Long.parseLong(_adaptiveIntervalObj.toString()));
+        }
+    }
+
+    /**
+     * 构建扫描设置
+     *
+     * @param scanMode 扫描模式，自适应模式下为当前阶段的扫描模式。
+     * @return 扫描设置
+     */
+    ScanSettings buildSettings(int scanMode) {
+        ScanSettings.Builder _builder = new ScanSettings.Builder();
+        _builder.setScanMode(scanMode);
+        if (0 != this.matchMode) _builder.setMatchMode(this.matchMode);
+        if (0 != this.numOfMatches) _builder.setNumOfMatches(this.numOfMatches);
+        if (0 != this.callbackType) _builder.setCallbackType(this.callbackType);
+        if (this.reportDelay > 0) {
+            if (MyBluetoothManager.me().isOffloadedScanBatchingSupported()) {
+                _builder.setReportDelay(this.reportDelay);
+            } else {
+                MyLog.warn("offloaded scan batching is not supported, ignore reportDelay.");
+            }
+        }
+        return _builder.build();
+    }
+
+    /**
+     * 自适应模式的下一级扫描模式
+     *
+     * @param scanMode 当前扫描模式
+     * @return 下一级扫描模式，已是最低一级时返回当前模式。
+     */
+    static int stepDown(int scanMode) {
+        switch (scanMode) {
+            case ScanSettings.SCAN_MODE_LOW_LATENCY:
+                return ScanSettings.SCAN_MODE_BALANCED;
+            case ScanSettings.SCAN_MODE_BALANCED:
+                return ScanSettings.SCAN_MODE_LOW_POWER;
+            default:
+                return scanMode;
+        }
+    }
+
+    // 按名称解析参数值，也可以直接传递系统定义的数值。
+    private static int _parse(String value, String name, String[] names, int[] values) {
+        for (int _i = 0; _i < names.length; _i++) {
+            if (names[_i].equals(value)) return values[_i];
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("unSupport " + name + ": " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MyScanOptions{deviceName:" + deviceName + ", deviceAddress:" + deviceAddress + ", timeout:" + timeout + ", stream:" + stream + ", throttle:" + throttle + ", reportDelay:" + reportDelay + ", scanMode:" + scanMode + ", adaptive:" + adaptive + "}";
+    }
+}
@@ -0,0 +1,271 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 后台扫描关注列表，按设备地址与服务UUID关注一组设备。
+ * <p>
+ * 每个地址与服务UUID生成一个 {@link ScanFilter}，由控制器完成过滤(控制器过滤条目不足时系统会退回软件过滤)；
+ * 关注的设备被发现时记录信号强度与最后发现时间，并在每次后台扫描中首次发现时通知，
+ * 查询结果按信号强度倒序排列，便于优先连接最近的设备。
+ */
+final class MyWatchlist {
+
+    // 关注的设备地址，大写。
+    private final Set<String> _addresses = new LinkedHashSet<>(16);
+    // 关注的服务UUID
+    private final Set<UUID> _serviceUuids = new LinkedHashSet<>(4);
+    // 设备地址 -> 发现记录，仅保存关注的设备。
+    private final Map<String, Sighting> _sightings = new LinkedHashMap<>(16);
+    // 本次后台扫描中已发现的设备地址
+    private final Set<String> _scanSeen = new HashSet<>(16);
+
+    /**
+     * 设置关注列表，不再关注的设备的发现记录被移除。
+     *
+     * @param addresses    设备地址，可以为空。
+     * @param serviceUuids 服务UUID，可以为空。
+     */
+    synchronized void set(List<String> addresses, List<String> serviceUuids) {
+        this._addresses.clear();
+        this._serviceUuids.clear();
+        if (null != addresses) {
+            for (String _address : addresses) {
+                if (null == _address || 0 == (_address = _address.trim()).length()) continue;
+                this._addresses.add(_address.toUpperCase());
+            }
+        }
+        if (null != serviceUuids) {
+            for (String _uuid : serviceUuids) {
+                if (null == _uuid || 0 == (_uuid = _uuid.trim()).length()) continue;
+                this._serviceUuids.add(UUID.fromString(_uuid));
+            }
+        }
+        // 按服务UUID关注的设备无法预知地址，仅在不再关注任何服务时移除其记录。
+        List<String> _removed = new ArrayList<>();
+        for (Sighting _sighting : this._sightings.values()) {
+            if (this._addresses.contains(_sighting.address)) continue;
+            if (null != _sighting.serviceUuid && this._serviceUuids.contains(_sighting.serviceUuid)) continue;
+            _removed.add(_sighting.address);
+        }
+        for (String _address : _removed) {
+            this._sightings.remove(_address);
+        }
+    }
+
+    /**
+     * @return 是否没有关注任何设备
+     */
+    synchronized boolean isEmpty() {
+        return this._addresses.isEmpty() && this._serviceUuids.isEmpty();
+    }
+
+    /**
+     * 构建扫描过滤条件，每个地址与服务UUID一个条目。
+     *
+     * @return 过滤条件，没有关注任何设备时返回null。
+     */
+    synchronized List<ScanFilter> buildFilters() {
+        if (isEmpty()) return null;
+        List<ScanFilter> _filters = new ArrayList<>(this._addresses.size() + this._serviceUuids.size());
+        for (String _address : this._addresses) {
+            _filters.add(new ScanFilter.Builder().setDeviceAddress(_address).build());
+        }
+        for (UUID _uuid : this._serviceUuids) {
+            _filters.add(new ScanFilter.Builder().setServiceUuid(new ParcelUuid(_uuid)).build());
+        }
+        return _filters;
+    }
+
+    /**
+     * 开始一次后台扫描，清空本次扫描的发现记录。
+     */
+    synchronized void beginScan() {
+        this._scanSeen.clear();
+    }
+
+    /**
+     * @return 是否已发现所有按地址关注的设备，关注了服务UUID时总是返回false。
+     */
+    synchronized boolean isComplete() {
+        return this._serviceUuids.isEmpty() && this._scanSeen.containsAll(this._addresses);
+    }
+
+    /**
+     * 处理扫描结果，关注的设备更新发现记录，并在本次扫描中首次发现时通知。
+     *
+     * @param result 扫描结果
+     * @return 是否为关注的设备
+     */
+    boolean onScanResult(ScanResult result) {
+        BluetoothDevice _device = result.getDevice();
+        if (null == _device || null == _device.getAddress()) return false;
+        String _address = _device.getAddress().toUpperCase();
+        Sighting _copy;
+        boolean _first;
+        synchronized (this) {
+            if (isEmpty()) return false;
+            UUID _matched = null;
+            if (!this._addresses.contains(_address)) {
+                _matched = _matchService(result.getScanRecord());
+                if (null == _matched) return false;
+            }
+            Sighting _sighting = this._sightings.get(_address);
+            if (null == _sighting) {
+                _sighting = new Sighting(_address, _matched);
+                this._sightings.put(_address, _sighting);
+            }
+            _sighting.name = _device.getName();
+            _sighting.rssi = result.getRssi();
+            _sighting.lastSeen = SystemClock.elapsedRealtime();
+            _sighting.count++;
+            _first = this._scanSeen.add(_address);
+            _copy = _first ? _sighting.copy() : null;
+        }
+        if (_first) {
+            MyLog.debug("watched device {} seen, rssi: {}", _address, _copy.rssi);
+            MyMethodRouter.me().callOnWatchedDeviceSeen(_copy.toMap(SystemClock.elapsedRealtime(), System.currentTimeMillis()));
+        }
+        return true;
+    }
+
+    /**
+     * 查询关注设备的发现记录，按信号强度倒序排列。
+     *
+     * @param maxAge 最后发现时间距今的最大时长，单位：毫秒，小于1时不限制。
+     * @return 发现记录列表
+     */
+    List<Map<String, Object>> query(long maxAge) {
+        long _now = SystemClock.elapsedRealtime();
+        long _wallNow = System.currentTimeMillis();
+        List<Sighting> _matched = new ArrayList<>();
+        synchronized (this) {
+            for (Sighting _sighting : this._sightings.values()) {
+                if (0 < maxAge && _now - _sighting.lastSeen > maxAge) continue;
+                _matched.add(_sighting.copy());
+            }
+        }
+        Collections.sort(_matched, new Comparator<Sighting>() {
+            @Override
+            public int compare(Sighting a, Sighting b) {
+                return a.rssi == b.rssi ? Long.compare(b.lastSeen, a.lastSeen) : Integer.compare(b.rssi, a.rssi);
+            }
+        });
+        List<Map<String, Object>> _result = new ArrayList<>(_matched.size());
+        for (Sighting _sighting : _matched) {
+            _result.add(_sighting.toMap(_now, _wallNow));
+        }
+        return _result;
+    }
+
+    /**
+     * @return 关注列表：addresses、serviceUuids。
+     */
+    synchronized Map<String, Object> toMap() {
+        List<String> _serviceUuids = new ArrayList<>(this._serviceUuids.size());
+        for (UUID _uuid : this._serviceUuids) {
+            _serviceUuids.add(_uuid.toString());
+        }
+        Map<String, Object> _data = new HashMap<>(4);
+        _data.put("addresses", new ArrayList<>(this._addresses));
+        _data.put("serviceUuids", _serviceUuids);
+        return _data;
+    }
+
+    // 匹配广播中的服务UUID
+    private UUID _matchService(ScanRecord record) {
+        if (null == record || this._serviceUuids.isEmpty()) return null;
+        List<ParcelUuid> _uuids = record.getServiceUuids();
+        if (null == _uuids) return null;
+        for (ParcelUuid _uuid : _uuids) {
+            if (this._serviceUuids.contains(_uuid.getUuid())) return _uuid.getUuid();
+        }
+        return null;
+    }
+
+    /**
+     * 发现记录，时间为开机时长，单位：毫秒。
+     */
+    static final class Sighting {
+        final String address;
+        // 匹配的服务UUID，按地址关注时为null。
+        final UUID serviceUuid;
+        String name;
+        int rssi;
+        long lastSeen;
+        int count;
+
+        Sighting(String address, UUID serviceUuid) {
+            this.address = address;
+            this.serviceUuid = serviceUuid;
+        }
+
+        Sighting copy() {
+            Sighting _copy = new Sighting(this.address, this.serviceUuid);
+            _copy.name = this.name;
+            _copy.rssi = this.rssi;
+            _copy.lastSeen = this.lastSeen;
+            _copy.count = this.count;
+            return _copy;
+        }
+
+        // 转换为键值对，时间转换为时间戳。
+        Map<String, Object> toMap(long now, long wallNow) {
+            Map<String, Object> _data = new HashMap<>(8);
+            _data.put("deviceId", this.address);
+            _data.put("deviceName", this.name);
+            _data.put("rssi", this.rssi);
+            if (null != this.serviceUuid) _data.put("serviceUuid", this.serviceUuid.toString());
+            _data.put("lastSeen", wallNow - (now - this.lastSeen));
+            _data.put("count", this.count);
+            return _data;
+        }
+    }
+
+    /************************************************************
+     ************* 单例对象。
+     ************************************************************/
+    private MyWatchlist() {
+        if (null != MyWatchlistHolder._INSTANCE) {
+            // 防止使用反射API创建对象实例。
+            throw new IllegalStateException("that's not allowed!");
+        }
+    }
+
+    // 当前对象唯一实例持有者。
+    private static final class MyWatchlistHolder {
+        private static final MyWatchlist _INSTANCE = new MyWatchlist();
+    }
+
+    // 防止使用反序列化操作获取多个对象实例。
+    private Object readResolve() throws ObjectStreamException {
+        return MyWatchlistHolder._INSTANCE;
+    }
+
+    /**
+     * 获取当前对象唯一实例。
+     *
+     * @return 当前对象唯一实例
+     */
+    public static MyWatchlist me() {
+        return MyWatchlistHolder._INSTANCE;
+    }
+}
@@ -0,0 +1,185 @@
+package com.wee0.flutter.bluetooth_helper;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.SystemClock;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 连续写入操作，将大块数据按MTU分片，以无需响应的方式尽可能快地写入特征。
+ * <p>
+ * 协议栈同一时刻只接收一个未完成的写入请求，每次 onCharacteristicWrite 回调归还一个发送额度，
+ * 收到回调后立即发送下一个分片；writeCharacteristic 返回false时说明协议栈缓冲区已满，退避后重试。
+ */
+class MyWriteStream extends MyGattOperation {
+
+    // 首次退避时间，单位：毫秒。
+    static final long DEF_MIN_BACKOFF = 2L;
+    // 最大退避时间，单位：毫秒。
+    static final long DEF_MAX_BACKOFF = 64L;
+    // 连续重试次数上限，超过后认为写入失败。
+    static final int DEF_MAX_RETRIES = 50;
+    // 进度通知最小间隔，单位：毫秒。
+    static final long DEF_PROGRESS_INTERVAL = 200L;
+
+    final MyBluetoothDevice device;
+    final String characteristicId;
+    // 待写入数据，position为下一个分片的起始位置。
+    final ByteBuffer source;
+    // 数据总长度
+    final int total;
+
+    private BluetoothGattCharacteristic _characteristic;
+    // 执行时转换的特征标识，用于进度通知。
+    private String _characteristicId;
+    // 执行时的特征句柄，用于进度通知，没有时为-1。
+    private int _handle = -1;
+    // 当前分片数据，分片长度不变时复用。
+    private byte[] _chunk;
+    // 已确认写入的字节数
+    private int _sent = 0;
+    private long _startTime = 0;
+    private long _lastProgressTime = 0;
+    private long _backoff = DEF_MIN_BACKOFF;
+    private int _retries = 0;
+    private int _status = BluetoothGatt.GATT_SUCCESS;
+    private boolean _finished = false;
+
+    // 退避重试任务
+    private final Runnable _retryTask = new Runnable() {
+        @Override
+        public void run() {
+            if (_finished) return;
+            if (!_writeChunk()) {
+                device.operationQueue.fail(MyGattOperation.TYPE_WRITE_STREAM, "write stream stalled after " + _retries + " retries.");
+            }
+        }
+    };
+
+    MyWriteStream(MyBluetoothDevice device, String characteristicId, ByteBuffer source, IReply reply) {
+        super(MyGattOperation.TYPE_WRITE_STREAM, reply);
+        if (null == device) throw new IllegalArgumentException("device can not be null!");
+        if (null == source) throw new IllegalArgumentException("source can not be null!");
+        this.device = device;
+        this.characteristicId = characteristicId;
+        this.source = source;
+        this.total = source.remaining();
+    }
+
+    @Override
+    boolean execute() {
+        this._characteristic = this.device._getCharacteristic(this.characteristicId);
+        if (null == this._characteristic) {
+            fail("characteristic not found: " + this.characteristicId);
+            return false;
+        }
+        this._characteristicId = this.device.resolveCharacteristicId(this.characteristicId);
+        MyCharacteristicIndex.Entry _entry = this.device.characteristicIndex.get(this._characteristic);
+        this._handle = null == _entry ? -1 : _entry.handle;
+        this._characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+        this._startTime = SystemClock.elapsedRealtime();
+        if (!this.source.hasRemaining()) {
+            success(_result());
+            return false;
+        }
+        if (!_writeChunk()) {
+            fail("could not write characteristic: " + this.characteristicId);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    boolean accept(int callbackType) {
+        return MyGattOperation.TYPE_CHARACTERISTIC_WRITE == callbackType || super.accept(callbackType);
+    }
+
+    @Override
+    boolean proceed(Object data) {
+        this._status = (Integer) data;
+        if (BluetoothGatt.GATT_SUCCESS != this._status) return false;
+        // 上一个分片已被协议栈接收
+        this._sent += this._chunk.length;
+        this.source.position(this.source.position() + this._chunk.length);
+        _progress(false);
+        if (!this.source.hasRemaining()) return false;
+        return _writeChunk();
+    }
+
+    @Override
+    void done(Object data) {
+        this._finished = true;
+        _progress(true);
+        if (BluetoothGatt.GATT_SUCCESS != this._status) {
+            error(IReply.DEF_ERROR_CODE, "write stream failed, status: " + this._status);
+            return;
+        }
+        success(_result());
+    }
+
+    @Override
+    void fail(String message) {
+        this._finished = true;
+        MyHandler.me().remove(this._retryTask);
+        super.fail(message);
+    }
+
+    /**
+     * @return 单个分片的最大长度
+     */
+    int chunkSize() {
+        return this.device.mtu - BluetoothConstants.ATT_WRITE_HEADER_SIZE;
+    }
+
+    // 写入下一个分片，协议栈繁忙时安排退避重试，重试次数超过上限时返回false。
+    private boolean _writeChunk() {
+        int _size = Math.min(chunkSize(), this.source.remaining());
+        if (null == this._chunk || this._chunk.length != _size) this._chunk = new byte[_size];
+        // 仅读取数据，确认写入后才移动position。
+        int _position = this.source.position();
+        this.source.get(this._chunk);
+        this.source.position(_position);
+        this._characteristic.setValue(this._chunk);
+        if (null != this.device.gatt1 && this.device.gatt1.writeCharacteristic(this._characteristic)) {
+            this._retries = 0;
+            this._backoff = DEF_MIN_BACKOFF;
+            return true;
+        }
+        if (++this._retries > DEF_MAX_RETRIES) {
+            this._status = BluetoothGatt.GATT_FAILURE;
+            return false;
+        }
+        MyHandler.me().post(this._retryTask, this._backoff);
+        this._backoff = Math.min(this._backoff << 1, DEF_MAX_BACKOFF);
+        return true;
+    }
+
+    // 通知写入进度，非强制通知时按最小间隔限流。
+    private void _progress(boolean force) {
+        long _now = SystemClock.elapsedRealtime();
+        if (!force && _now - this._lastProgressTime < DEF_PROGRESS_INTERVAL) return;
+        this._lastProgressTime = _now;
+        MyMethodRouter.me().callOnCharacteristicWriteProgress(this.device.device.getAddress(), this._handle, this._characteristicId, this._sent, this.total, _bytesPerSecond(_now));
+    }
+
+    // 计算写入速率，单位：字节/秒。
+    private long _bytesPerSecond(long now) {
+        long _elapsed = now - this._startTime;
+        return _elapsed > 0 ? this._sent * 1000L / _elapsed : 0;
+    }
+
+    // 构建写入结果
+    private Map<String, Object> _result() {
+        long _now = SystemClock.elapsedRealtime();
+        Map<String, Object> _data = new HashMap<>(8);
+        _data.put("bytes", this._sent);
+        _data.put("total", this.total);
+        _data.put("elapsed", _now - this._startTime);
+        _data.put("bytesPerSecond", _bytesPerSecond(_now));
+        return _data;
+    }
+
+}
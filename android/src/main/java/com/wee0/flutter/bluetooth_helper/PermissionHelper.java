@@ -18,7 +18,7 @@ final class PermissionHelper {
 
     public static final String ACCESS_FINE_LOCATION = Manifest.permission.ACCESS_FINE_LOCATION;
 
-    private Map<Integer, ICallback> _requests = new HashMap<>(8, 1.0f);
+    private final Map<Integer, ICallback> _requests = new HashMap<>(8, 1.0f);
 
     /**
      * 请求用户授于指定的权限
@@ -27,13 +27,20 @@ final class PermissionHelper {
      * @param callback   用户授权结果回调，回调参数为boolean类型，true为获得用户授权，false为未获得用户授权。
      * @return 如果已经有权限返回false，没有权限则返回true，然后请求用户授权。
      */
-    public boolean requestPermission(String permission, ICallback callback) {
+    public boolean requestPermission(final String permission, ICallback callback) {
         if (PackageManager.PERMISSION_GRANTED == ContextCompat.checkSelfPermission(PlatformHelper.me().getActivity(), permission)) return false;
-        int _requestCode = buildRequestCode(permission);
-        if (!this._requests.containsKey(_requestCode)) {
+        final int _requestCode = buildRequestCode(permission);
+        synchronized (this._requests) {
+            if (this._requests.containsKey(_requestCode)) return true;
             this._requests.put(_requestCode, callback);
-            ActivityCompat.requestPermissions(PlatformHelper.me().getActivity(), new String[]{permission}, _requestCode);
         }
+        // 请求授权需要在平台线程中执行
+        MyHandler.me().runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                ActivityCompat.requestPermissions(PlatformHelper.me().getActivity(), new String[]{permission}, _requestCode);
+            }
+        });
         return true;
     }
 
@@ -70,8 +77,11 @@ final class PermissionHelper {
     public boolean onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         MyLog.debug("permissions: {}", Arrays.toString(permissions));
         MyLog.debug("grantResults: {}", Arrays.toString(grantResults));
-        if (!this._requests.containsKey(requestCode)) return false;
-        ICallback _callback = this._requests.remove(requestCode);
+        ICallback _callback;
+        synchronized (this._requests) {
+            if (!this._requests.containsKey(requestCode)) return false;
+            _callback = this._requests.remove(requestCode);
+        }
         if (null != _callback) _callback.execute(PackageManager.PERMISSION_GRANTED == grantResults[0]);
         return true;
     }
@@ -1,5 +1,6 @@
 import 'dart:async';
 import 'dart:convert';
+import 'dart:typed_data';
 import 'bluetooth_helper.dart';
 
 /// 当前蓝牙相关事件回调通知
@@ -141,8 +142,10 @@ class BluetoothDevice {
   }
 
   /// 发现所有服务特征码
-  Future<List> discoverCharacteristics([int timeout = 3]) async {
-    return BluetoothHelper.me.discoverCharacteristics(this._deviceId, timeout);
+  Future<List> discoverCharacteristics(
+      [int timeout = 3, String firmwareRevision, bool refresh = false]) async {
+    return BluetoothHelper.me.discoverCharacteristics(
+        this._deviceId, timeout, firmwareRevision, refresh);
   }
 
   /// 设置特征监听
@@ -181,6 +184,91 @@ class BluetoothDevice {
     return _writeResult.isOk;
   }
 
+  /// 特征连续写入，适用于固件、配置等大块数据。
+  Future<Map> characteristicWriteStream(
+      String characteristicId, List<int> data) async {
+    return BluetoothHelper.me
+        .characteristicWriteStream(this._deviceId, characteristicId, data);
+  }
+
+  /// 特征长读取，直接返回合并后的数据。
+  Future<Uint8List> characteristicReadLong(String characteristicId,
+      [int maxLength = 65536, bool paged = false]) async {
+    return BluetoothHelper.me.characteristicReadLong(
+        this._deviceId, characteristicId, maxLength, paged);
+  }
+
+  /// 特征可靠写入，设备回显的数据校验一致后才提交，数据长度不能超过MTU-5。
+  Future<Map> characteristicWriteReliable(
+      String characteristicId, List<int> data) async {
+    return BluetoothHelper.me
+        .characteristicWriteReliable(this._deviceId, characteristicId, data);
+  }
+
+  /// 传输文件，参考 [BluetoothHelper.characteristicWriteFile]。
+  Future<Map> characteristicWriteFile(String characteristicId, String path,
+      {int offset = 0,
+      int window = 16,
+      String ackCharacteristicId,
+      int timeout = 10000}) async {
+    return BluetoothHelper.me.characteristicWriteFile(
+        this._deviceId, characteristicId, path,
+        offset: offset,
+        window: window,
+        ackCharacteristicId: ackCharacteristicId,
+        timeout: timeout);
+  }
+
+  /// 协商MTU
+  Future<Map> requestMtu([int mtu = 517]) async {
+    return BluetoothHelper.me.requestMtu(this._deviceId, mtu);
+  }
+
+  /// 设置连接优先级，priority可选值：high、balanced、lowPower。
+  Future<bool> requestConnectionPriority(String priority) async {
+    return BluetoothHelper.me
+        .requestConnectionPriority(this._deviceId, priority);
+  }
+
+  /// 设置自动重连，参考 [BluetoothHelper.autoConnect]。
+  Future<bool> autoConnect(
+      {bool enable = true,
+      int initialDelay = 200,
+      int maxDelay = 10000,
+      int maxAttempts = 5,
+      int timeout = 5}) async {
+    return BluetoothHelper.me.autoConnect(this._deviceId,
+        enable: enable,
+        initialDelay: initialDelay,
+        maxDelay: maxDelay,
+        maxAttempts: maxAttempts,
+        timeout: timeout);
+  }
+
+  /// 设置通知合并发送，interval为0时关闭。
+  Future<bool> setNotificationBatch(int interval, [int maxFrames = 32]) async {
+    return BluetoothHelper.me
+        .setNotificationBatch(this._deviceId, interval, maxFrames);
+  }
+
+  /// 设置特征通知的分段重组，参考 [BluetoothHelper.setNotificationFraming]。
+  Future<bool> setNotificationFraming(String characteristicId, String mode,
+      {String crc = "none", int timeout = 1000, int maxLength = 65535}) async {
+    return BluetoothHelper.me.setNotificationFraming(
+        this._deviceId, characteristicId, mode,
+        crc: crc, timeout: timeout, maxLength: maxLength);
+  }
+
+  /// 获取通知分段重组的统计信息
+  Future<Map> getNotificationFraming() async {
+    return BluetoothHelper.me.getNotificationFraming(this._deviceId);
+  }
+
+  /// 读取信号强度
+  Future<int> readRssi() async {
+    return BluetoothHelper.me.readRssi(this._deviceId);
+  }
+
   /// 断开连接
   Future<bool> disconnect() async {
     if (BluetoothEventDeviceStateChange.STATE_DISCONNECTED == this._deviceState)
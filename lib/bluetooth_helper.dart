@@ -1,4 +1,5 @@
 import 'dart:async';
+import 'dart:convert';
 import 'dart:typed_data';
 
 import 'package:flutter/services.dart';
@@ -46,21 +47,93 @@ class BluetoothHelper {
           _streamController.sink.add(BluetoothEventDeviceStateChange(
               _data["deviceId"], _data["deviceState"]));
           break;
+        case "onDeviceReconnected":
+          Map _data = _msg[KEY_ARGS];
+          _streamController.sink.add(BluetoothEventDeviceReconnected(
+              _data["deviceId"],
+              _data["attempts"],
+              _data["background"],
+              _data["latency"],
+              _data["restoreTime"]));
+          break;
+        case "onServicesDiscovered":
+          Map _data = _msg[KEY_ARGS];
+          _setCharacteristicHandles(_data["deviceId"], _data["data"]);
+          _streamController.sink.add(BluetoothEventServicesDiscovered(
+              _data["deviceId"], _data["data"]));
+          break;
+        case "onScanResult":
+          Map _data = _msg[KEY_ARGS];
+          _streamController.sink.add(BluetoothEventScanResult(
+              _data["deviceId"],
+              _data["deviceName"],
+              _data["rssi"],
+              _data["isNew"],
+              _data["advertisement"]));
+          break;
+        case "onScanBatch":
+          Map _data = _msg[KEY_ARGS];
+          _streamController.sink
+              .add(BluetoothEventScanBatch(_data["results"].cast<Map>()));
+          break;
+        case "onWatchedDeviceSeen":
+          Map _data = _msg[KEY_ARGS];
+          _streamController.sink.add(BluetoothEventWatchedDeviceSeen(_data));
+          break;
         case "onCharacteristicNotifyData":
           Map _data = _msg[KEY_ARGS];
 //          print("characteristicNotifyData: $_data");
+          int _handle = _data["handle"] ?? -1;
           _streamController.sink.add(BluetoothEventNotifyData(
-              _data["deviceId"], _data["characteristicId"], _data["data"]));
+              _data["deviceId"],
+              _resolveCharacteristicId(
+                  _data["deviceId"], _handle, _data["characteristicId"]),
+              _data["data"],
+              BluetoothEventNotifyData.TYPE,
+              _handle));
+          break;
+        case "onCharacteristicNotifyBatch":
+          Map _data = _msg[KEY_ARGS];
+          int _handle = _data["handle"] ?? -1;
+          _streamController.sink.add(BluetoothEventNotifyBatch(
+              _data["deviceId"],
+              _resolveCharacteristicId(
+                  _data["deviceId"], _handle, _data["characteristicId"]),
+              _data["times"],
+              _data["data"].cast<List<int>>(),
+              _handle));
           break;
         case "onCharacteristicReadResult":
           Map _data = _msg[KEY_ARGS];
+          int _handle = _data["handle"] ?? -1;
           _streamController.sink.add(BluetoothEventReadResult(
-              _data["deviceId"], _data["characteristicId"], _data["data"]));
+              _data["deviceId"],
+              _resolveCharacteristicId(
+                  _data["deviceId"], _handle, _data["characteristicId"]),
+              _data["data"],
+              _handle));
           break;
         case "onCharacteristicWriteResult":
           Map _data = _msg[KEY_ARGS];
+          int _handle = _data["handle"] ?? -1;
           _streamController.sink.add(BluetoothEventWriteResult(
-              _data["deviceId"], _data["characteristicId"], _data["isOk"]));
+              _data["deviceId"],
+              _resolveCharacteristicId(
+                  _data["deviceId"], _handle, _data["characteristicId"]),
+              _data["isOk"],
+              _handle));
+          break;
+        case "onCharacteristicWriteProgress":
+          Map _data = _msg[KEY_ARGS];
+          int _handle = _data["handle"] ?? -1;
+          _streamController.sink.add(BluetoothEventWriteProgress(
+              _data["deviceId"],
+              _resolveCharacteristicId(
+                  _data["deviceId"], _handle, _data["characteristicId"]),
+              _data["bytes"],
+              _data["total"],
+              _data["bytesPerSecond"],
+              _handle));
           break;
         default:
           print("unKnow msg: $_msg");
@@ -68,6 +141,123 @@ class BluetoothHelper {
       }
       return null;
     });
+
+    _binaryMessageChannel.setMessageHandler((_msg) {
+      if (null != _msg) _handleBinaryMessage(_msg);
+      return null;
+    });
+  }
+
+  // 特征句柄表，设备标识 -> 按句柄排列的特征标识，来自发现服务的结果。
+  final Map<String, List> _characteristicHandles = {};
+  // 特征句柄反查表，设备标识 -> 特征标识 -> 句柄。
+  final Map<String, Map<String, int>> _characteristicHandleIndex = {};
+
+  // 更新设备的特征句柄表
+  void _setCharacteristicHandles(String deviceId, List ids) {
+    _characteristicHandles[deviceId] = ids;
+    Map<String, int> _index = {};
+    for (int _i = 0; _i < ids.length; _i++) {
+      _index[ids[_i]] = _i;
+    }
+    _characteristicHandleIndex[deviceId] = _index;
+  }
+
+  /// 获取特征句柄，未发现服务或特征不存在时返回-1。
+  int characteristicHandle(String deviceId, String characteristicId) {
+    Map<String, int> _index = _characteristicHandleIndex[deviceId];
+    if (null == _index) return -1;
+    return _index[characteristicId] ?? -1;
+  }
+
+  // 在调用参数中写入特征，已知句柄时只传递句柄，原生层不再解析特征标识。
+  Map _putCharacteristic(Map args, String deviceId, String characteristicId,
+      [String idKey = "characteristicId", String handleKey = "handle"]) {
+    int _handle = characteristicHandle(deviceId, characteristicId);
+    if (0 > _handle) {
+      args[idKey] = characteristicId;
+    } else {
+      args[handleKey] = _handle;
+    }
+    return args;
+  }
+
+  // 将事件中的特征句柄转换为特征标识，没有句柄时使用事件中的特征标识。
+  String _resolveCharacteristicId(
+      String deviceId, int handle, String characteristicId) {
+    if (0 > handle) return characteristicId;
+    List _ids = _characteristicHandles[deviceId];
+    if (null == _ids || handle >= _ids.length) {
+      print("unKnow characteristic handle: $handle");
+      return characteristicId;
+    }
+    return _ids[handle];
+  }
+
+  // 二进制通道句柄表，句柄 -> [deviceId, characteristicId]
+  final Map<int, List<String>> _binaryHandles = {};
+
+  // 处理二进制通道消息，帧格式(小端序)：[操作码 u8][句柄 u16][数据...]
+  void _handleBinaryMessage(ByteData msg) {
+    int _op = msg.getUint8(0);
+    if (BINARY_OP_RESET == _op) {
+      _binaryHandles.clear();
+      return;
+    }
+    int _handle = msg.getUint16(1, Endian.little);
+    if (BINARY_OP_REGISTER == _op) {
+      int _offset = 3;
+      int _deviceIdLength = msg.getUint8(_offset++);
+      String _deviceId = utf8.decode(
+          msg.buffer.asUint8List(msg.offsetInBytes + _offset, _deviceIdLength));
+      _offset += _deviceIdLength;
+      int _characteristicIdLength = msg.getUint8(_offset++);
+      String _characteristicId = utf8.decode(msg.buffer.asUint8List(
+          msg.offsetInBytes + _offset, _characteristicIdLength));
+      _binaryHandles[_handle] = [_deviceId, _characteristicId];
+      return;
+    }
+    List<String> _ids = _binaryHandles[_handle];
+    if (null == _ids) {
+      print("unKnow binary handle: $_handle");
+      return;
+    }
+    switch (_op) {
+      case BINARY_OP_NOTIFY:
+        _streamController.sink.add(BluetoothEventNotifyData(
+            _ids[0], _ids[1], _binaryPayload(msg, 3, msg.lengthInBytes - 3)));
+        break;
+      case BINARY_OP_READ_RESULT:
+        _streamController.sink.add(BluetoothEventReadResult(
+            _ids[0], _ids[1], _binaryPayload(msg, 3, msg.lengthInBytes - 3)));
+        break;
+      case BINARY_OP_WRITE_RESULT:
+        _streamController.sink.add(
+            BluetoothEventWriteResult(_ids[0], _ids[1], 1 == msg.getUint8(3)));
+        break;
+      case BINARY_OP_NOTIFY_BATCH:
+        int _count = msg.getUint16(3, Endian.little);
+        int _offset = 5;
+        List<int> _times = List<int>(_count);
+        List<List<int>> _frames = List<List<int>>(_count);
+        for (int _i = 0; _i < _count; _i++) {
+          _times[_i] = msg.getInt64(_offset, Endian.little);
+          int _length = msg.getUint16(_offset + 8, Endian.little);
+          _frames[_i] = _binaryPayload(msg, _offset + 10, _length);
+          _offset += 10 + _length;
+        }
+        _streamController.sink
+            .add(BluetoothEventNotifyBatch(_ids[0], _ids[1], _times, _frames));
+        break;
+      default:
+        print("unKnow binary op: $_op");
+        break;
+    }
+  }
+
+  // 从二进制消息中截取数据，不复制。
+  static Uint8List _binaryPayload(ByteData msg, int offset, int length) {
+    return msg.buffer.asUint8List(msg.offsetInBytes + offset, length);
   }
 
   factory BluetoothHelper() => _me;
@@ -79,6 +269,18 @@ class BluetoothHelper {
   static const BasicMessageChannel _basicMessageChannel =
       const BasicMessageChannel("bluetooth_helper", StandardMessageCodec());
 
+  /// 二进制通道操作码
+  static const int BINARY_OP_RESET = 0;
+  static const int BINARY_OP_REGISTER = 1;
+  static const int BINARY_OP_NOTIFY = 2;
+  static const int BINARY_OP_READ_RESULT = 3;
+  static const int BINARY_OP_WRITE_RESULT = 4;
+  static const int BINARY_OP_NOTIFY_BATCH = 5;
+
+  static const BasicMessageChannel<ByteData> _binaryMessageChannel =
+      const BasicMessageChannel<ByteData>(
+          "bluetooth_helper/binary", BinaryCodec());
+
 //  static Map<String, BluetoothDevice> _deviceMap = {};
 
   /// 释放资源
@@ -94,6 +296,11 @@ class BluetoothHelper {
   /// 事件流
   Stream<BluetoothEvent> get events => _streamController.stream;
 
+  /// 实时扫描结果
+  Stream<BluetoothEventScanResult> get scanResults => _streamController.stream
+      .where((_event) => _event is BluetoothEventScanResult)
+      .cast<BluetoothEventScanResult>();
+
   /// 是否处于等待扫描执行状态。
   bool get isWaitingScan => _isWaitingScan;
 
@@ -102,6 +309,182 @@ class BluetoothHelper {
     this._isWaitingScan = true;
   }
 
+  /// 开启二进制通道，通知数据、读写结果改为通过紧凑的二进制帧传输，事件流不变。
+  Future<bool> enableBinaryChannel([bool enable = true]) async {
+    Map _res = await callMethod("enableBinaryChannel", {"enable": enable});
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 查询扫描缓存，不启动新的扫描。按最后发现时间倒序返回设备信息：
+  /// deviceId、deviceName、rssi、txPower、advertisement(原始广播数据)、advertisementData(解析后的广播数据)、
+  /// firstSeen、lastSeen(时间戳，单位：毫秒)、count(发现次数)。
+  /// [maxAge] 最后发现时间距今的最大时长，单位：秒。
+  Future<List<Map>> queryScanCache(
+      {int maxAge, String namePrefix, int minRssi, int limit}) async {
+    Map _res = await callMethod("queryScanCache", {
+      "maxAge": maxAge,
+      "namePrefix": namePrefix,
+      "minRssi": minRssi,
+      "limit": limit
+    });
+    List _val = getResultData(_res);
+    return null == _val ? [] : _val.cast<Map>();
+  }
+
+  /// 设置扫描缓存的有效期(单位：秒)与最大设备数量
+  Future<bool> setScanCache({int ttl, int maxSize}) async {
+    Map _res =
+        await callMethod("setScanCache", {"ttl": ttl, "maxSize": maxSize});
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 清空扫描缓存
+  Future<bool> clearScanCache() async {
+    Map _res = await callMethod("clearScanCache");
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 设置连接池：[maxConnections] 最大连接数量，达到上限时建立新连接会先断开最久未使用的设备，0为不限制；
+  /// [idleTimeout] 空闲多久(单位：毫秒)后断开连接并释放设备，0为不限制，开启了自动重连的设备除外；
+  /// [maxDevices] 最多缓存的设备数量，超出时释放最久未使用的未连接设备。
+  Future<bool> setConnectionPool(
+      {int maxConnections = 0, int idleTimeout = 0, int maxDevices = 64}) async {
+    Map _res = await callMethod("setConnectionPool", {
+      "maxConnections": maxConnections,
+      "idleTimeout": idleTimeout,
+      "maxDevices": maxDevices
+    });
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 获取连接池状态：maxConnections、idleTimeout、maxDevices、connections(已连接或正在连接的设备数量)、
+  /// devices(缓存的设备数量)、evicted(已释放的设备数量)。
+  Future<Map> getConnectionPool() async {
+    Map _res = await callMethod("getConnectionPool");
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 设置后台扫描的关注列表，按设备地址与服务UUID关注一组设备，蓝牙打开时的后台扫描只查找关注的设备，
+  /// 每次扫描中首次发现关注的设备时发送 [BluetoothEventWatchedDeviceSeen] 事件。[scan] 为true时立即扫描一次。
+  Future<bool> setWatchlist(
+      {List<String> addresses,
+      List<String> serviceUuids,
+      bool scan = false}) async {
+    Map _res = await callMethod("setWatchlist",
+        {"addresses": addresses, "serviceUuids": serviceUuids, "scan": scan});
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 获取关注列表：addresses、serviceUuids，以及按信号强度倒序排列的devices：
+  /// deviceId、deviceName、rssi、serviceUuid(按服务UUID匹配时)、lastSeen(时间戳，单位：毫秒)、count(发现次数)。
+  /// [maxAge] 最后发现时间距今的最大时长，单位：秒。
+  Future<Map> getWatchlist({int maxAge}) async {
+    Map _res = await callMethod("getWatchlist", {"maxAge": maxAge});
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 立即执行一次后台扫描，查找关注列表中的设备。
+  Future<bool> scanWatchlist() async {
+    Map _res = await callMethod("scanWatchlist");
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 获取原生工作线程与平台线程的任务队列统计信息
+  Future<Map> getThreadStats() async {
+    Map _res = await callMethod("getThreadStats");
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 获取操作耗时统计：设备地址 -> 操作名称 -> 统计数据，扫描统计的设备地址为空字符串。
+  /// 统计数据包含count、success、failure、timeout、statuses(GATT状态码 -> 次数)，
+  /// 以及耗时(单位：微秒)：min、max、mean、p50、p90、p99，histogram为true时包含histogram(区间上限 -> 次数)。
+  /// reset为true时获取后清空统计数据。
+  Future<Map> getMetrics({bool histogram = false, bool reset = false}) async {
+    Map _res = await callMethod(
+        "getMetrics", {"histogram": histogram, "reset": reset});
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 导出原生GATT事件日志，since为上次导出返回的sequence时增量导出，clear为true时导出后清空。
+  /// 返回：sequence、capacity、lost(已被覆盖的事件数量)、bootTime(开机时刻，单位：毫秒)，
+  /// 以及按列排列的times(开机时长，单位：纳秒)、addresses、types、a、b、c，可以使用 [decodeEventJournal] 转换。
+  Future<Map> getEventJournal({int since = 0, bool clear = false}) async {
+    Map _res =
+        await callMethod("getEventJournal", {"since": since, "clear": clear});
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 设置原生GATT事件日志，capacity为环形缓冲区容量，容量变化时清空已记录的事件。
+  Future<bool> setEventJournal({bool enable = true, int capacity = 0}) async {
+    Map _res = await callMethod(
+        "setEventJournal", {"enable": enable, "capacity": capacity});
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 事件日志中的事件类型名称，下标为事件类型。
+  static const List<String> EVENT_JOURNAL_TYPES = [
+    "",
+    "connectionState",
+    "servicesDiscovered",
+    "read",
+    "write",
+    "notify",
+    "descriptorWrite",
+    "rssi",
+    "mtu",
+    "operation",
+    "operationTimeout",
+    "scanStart",
+    "scanStop",
+    "scanFailed",
+    "disconnect",
+    "serviceChanged",
+    "reconnect"
+  ];
+
+  /// 将 [getEventJournal] 的导出结果转换为事件列表，每个事件包含time(毫秒时间戳)、deviceId、type、a、b、c。
+  static List<Map> decodeEventJournal(Map journal) {
+    List _times = journal["times"];
+    List _addresses = journal["addresses"];
+    List _types = journal["types"];
+    int _bootTime = journal["bootTime"];
+    List<Map> _events = [];
+    for (int _i = 0; _i < _times.length; _i++) {
+      int _type = _types[_i];
+      int _address = _addresses[_i];
+      String _deviceId;
+      if (0 != _address) {
+        String _hex = _address.toRadixString(16).toUpperCase().padLeft(12, "0");
+        _deviceId = [0, 2, 4, 6, 8, 10]
+            .map((_j) => _hex.substring(_j, _j + 2))
+            .join(":");
+      }
+      _events.add({
+        "time": _bootTime + _times[_i] ~/ 1000000,
+        "deviceId": _deviceId,
+        "type": _type < EVENT_JOURNAL_TYPES.length
+            ? EVENT_JOURNAL_TYPES[_type]
+            : _type,
+        "a": journal["a"][_i],
+        "b": journal["b"][_i],
+        "c": journal["c"][_i]
+      });
+    }
+    return _events;
+  }
+
   /// 保活
   Future<bool> keepAlive() async {
     Map _res = await callMethod("keepAlive");
@@ -131,10 +514,39 @@ class BluetoothHelper {
 //  }
 
   /// 扫描设备，获取扫描结果。
+  /// [stream] 为true时扫描过程中通过 [scanResults] 实时通知新发现的设备与信号强度变化，
+  /// 同一设备的更新通知间隔不小于 [throttle] 毫秒。
+  /// [reportDelay] 大于0时由控制器缓存扫描结果，每隔 [reportDelay] 毫秒通过
+  /// [BluetoothEventScanBatch] 批量通知；此时 [timeout] 为0表示一直扫描到调用 [stopScan]。
+  /// [mode] 扫描模式：lowLatency、balanced、lowPower(默认)、opportunistic、adaptive。
+  /// adaptive 以低延迟模式开始，每 [adaptiveInterval] 毫秒内没有发现新设备时逐级降低到低功耗模式。
+  /// [matchMode]：aggressive、sticky；[numOfMatches]：one、few、max；
+  /// [callbackType]：allMatches、firstMatch、matchLost。为空时使用系统默认值。
   Future<List<BluetoothDevice>> scan(
-      {String deviceName, String deviceId, int timeout = 2}) async {
-    Map _res = await callMethod("startScan",
-        {"deviceName": deviceName, "deviceId": deviceId, "timeout": timeout});
+      {String deviceName,
+      String deviceId,
+      int timeout = 2,
+      bool stream = false,
+      int throttle = 500,
+      int reportDelay = 0,
+      String mode,
+      String matchMode,
+      String numOfMatches,
+      String callbackType,
+      int adaptiveInterval}) async {
+    Map _res = await callMethod("startScan", {
+      "deviceName": deviceName,
+      "deviceId": deviceId,
+      "timeout": timeout,
+      "stream": stream,
+      "throttle": throttle,
+      "reportDelay": reportDelay,
+      "mode": mode,
+      "matchMode": matchMode,
+      "numOfMatches": numOfMatches,
+      "callbackType": callbackType,
+      "adaptiveInterval": adaptiveInterval
+    });
     Map _deviceMap = getResultData(_res);
     if (null == _deviceMap || _deviceMap.isEmpty) return [];
     List<BluetoothDevice> _devices = _deviceMap.values
@@ -144,6 +556,29 @@ class BluetoothHelper {
     return _devices;
   }
 
+  /// 设置蓝牙开启时自动执行的后台扫描的扫描模式，参数含义与 [scan] 相同。
+  Future<bool> setBackgroundScanProfile(
+      {String mode,
+      String matchMode,
+      String numOfMatches,
+      String callbackType}) async {
+    Map _res = await callMethod("setBackgroundScanProfile", {
+      "mode": mode,
+      "matchMode": matchMode,
+      "numOfMatches": numOfMatches,
+      "callbackType": callbackType
+    });
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 结束扫描，正在等待的 [scan] 返回扫描结果。
+  Future<Map> stopScan() async {
+    Map _res = await callMethod("stopScan");
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
   /// 建立连接
   Future<bool> connect(String deviceId, [int timeout = 3]) async {
     Map _res =
@@ -152,6 +587,28 @@ class BluetoothHelper {
     return _val;
   }
 
+  /// 设置自动重连：连接意外断开后先快速直连重试，退避时间从initialDelay毫秒起按次数指数增长(带随机抖动)，
+  /// 不超过maxDelay毫秒，maxAttempts次后改用系统的后台自动连接等待设备出现，timeout为每次直连的超时时间(秒)。
+  /// 重新连接后自动恢复服务发现、MTU、已开启的通知与连接优先级，并发送 [BluetoothEventDeviceReconnected] 事件。
+  /// 开启时设备尚未连接则立即开始连接，主动断开连接后不再重连。
+  Future<bool> autoConnect(String deviceId,
+      {bool enable = true,
+      int initialDelay = 200,
+      int maxDelay = 10000,
+      int maxAttempts = 5,
+      int timeout = 5}) async {
+    Map _res = await callMethod("autoConnect", {
+      "deviceId": deviceId,
+      "enable": enable,
+      "initialDelay": initialDelay,
+      "maxDelay": maxDelay,
+      "maxAttempts": maxAttempts,
+      "timeout": timeout
+    });
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
   /// 获取连接状态
   Future<int> getDeviceState(String deviceId) async {
     Map _res = await callMethod("getDeviceState", {"deviceId": deviceId});
@@ -159,11 +616,28 @@ class BluetoothHelper {
     return _val;
   }
 
-  /// 发现所有服务特征码
+  /// 发现所有服务特征码。
+  /// 存在有效的结构缓存时立即返回缓存结果，真正的服务发现在原生队列中继续执行，
+  /// 结构变化时通过 [BluetoothEventServicesDiscovered] 通知。[firmwareRevision] 与缓存时的固件版本不一致时缓存无效，
+  /// [refresh] 为true时忽略缓存并刷新系统的设备缓存后重新发现。
   Future<List> discoverCharacteristics(String deviceId,
-      [int timeout = 3]) async {
-    Map _res = await callMethod(
-        "discoverServices", {"deviceId": deviceId, "timeout": timeout});
+      [int timeout = 3, String firmwareRevision, bool refresh = false]) async {
+    Map _res = await callMethod("discoverServices", {
+      "deviceId": deviceId,
+      "timeout": timeout,
+      "firmwareRevision": firmwareRevision,
+      "refresh": refresh
+    });
+    List _val = getResultData(_res);
+    if (null != _val) _setCharacteristicHandles(deviceId, _val);
+    return _val;
+  }
+
+  /// 获取已发现的特征列表，包含句柄handle、特征标识characteristicId、uuid、服务标识serviceId、实例标识instanceId与属性properties。
+  /// 特征UUID在设备中不唯一时，特征标识为"服务UUID/特征UUID/实例标识"。
+  Future<List> getCharacteristics(String deviceId) async {
+    Map _res =
+        await callMethod("getCharacteristics", {"deviceId": deviceId});
     List _val = getResultData(_res);
     return _val;
   }
@@ -171,11 +645,10 @@ class BluetoothHelper {
   /// 设置特征监听
   Future<bool> setCharacteristicNotification(
       String deviceId, String characteristicId, bool enable) async {
-    Map _res = await callMethod("setCharacteristicNotification", {
-      "deviceId": deviceId,
-      "characteristicId": characteristicId,
-      "enable": enable
-    });
+    Map _res = await callMethod(
+        "setCharacteristicNotification",
+        _putCharacteristic(
+            {"deviceId": deviceId, "enable": enable}, deviceId, characteristicId));
     bool _val = getResultData(_res);
     return _val;
   }
@@ -184,23 +657,171 @@ class BluetoothHelper {
   Future<bool> characteristicRead(
       String deviceId, String characteristicId) async {
     Map _res = await callMethod("characteristicRead",
-        {"deviceId": deviceId, "characteristicId": characteristicId});
+        _putCharacteristic({"deviceId": deviceId}, deviceId, characteristicId));
     bool _val = getResultData(_res);
     return _val;
   }
 
   /// 特征写入
   Future<bool> characteristicWrite(
+      String deviceId, String characteristicId, List<int> data,
+      [bool withoutResponse = false]) async {
+    Map _res = await callMethod(
+        "characteristicWrite",
+        _putCharacteristic({
+          "deviceId": deviceId,
+          "data": Uint8List.fromList(data),
+          "withoutResponse": withoutResponse
+        }, deviceId, characteristicId));
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 特征连续写入，按MTU分片以无需响应的方式写入大块数据，返回写入字节数、耗时与速率。
+  Future<Map> characteristicWriteStream(
       String deviceId, String characteristicId, List<int> data) async {
-    Map _res = await callMethod("characteristicWrite", {
+    Map _res = await callMethod(
+        "characteristicWriteStream",
+        _putCharacteristic({
+          "deviceId": deviceId,
+          "data": data is Uint8List ? data : Uint8List.fromList(data)
+        }, deviceId, characteristicId));
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 传输文件，文件在原生层映射到内存后按MTU分片以无需响应的方式写入，适用于固件升级等大块数据。
+  /// 指定 [ackCharacteristicId] (未开启通知时在传输前自动开启)时每发送 [window] 个分片等待一次确认，
+  /// 确认数据为4字节小端序的偏移量，表示设备已接收的字节数，小于已发送的位置时从该偏移量重新发送。
+  /// 进度通过 [BluetoothEventWriteProgress] 通知，其中的bytes为可继续传输的偏移量，中断后可通过 [offset] 继续传输。
+  /// [timeout] 为每一步(分片写入或等待确认)的超时时间(毫秒)。
+  /// 返回本次传输字节数bytes、偏移量offset、文件长度total、重传次数retransmits、耗时elapsed与速率bytesPerSecond。
+  Future<Map> characteristicWriteFile(
+      String deviceId, String characteristicId, String path,
+      {int offset = 0,
+      int window = 16,
+      String ackCharacteristicId,
+      int timeout = 10000}) async {
+    Map _args = _putCharacteristic({
       "deviceId": deviceId,
-      "characteristicId": characteristicId,
-      "data": Uint8List.fromList(data)
+      "path": path,
+      "offset": offset,
+      "window": window,
+      "timeout": timeout
+    }, deviceId, characteristicId);
+    if (null != ackCharacteristicId)
+      _putCharacteristic(_args, deviceId, ackCharacteristicId,
+          "ackCharacteristicId", "ackHandle");
+    Map _res = await callMethod("characteristicWriteFile", _args);
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 长读取，读取超过MTU的特征值，直接返回合并后的数据。
+  /// 协议栈自动分段读取不超过512字节的值；
+  /// [paged] 为true时读取到满512字节后继续读取下一页，直到不足512字节或达到 [maxLength]，仅用于每次读取返回下一页数据的设备。
+  Future<Uint8List> characteristicReadLong(
+      String deviceId, String characteristicId,
+      [int maxLength = 65536, bool paged = false]) async {
+    Map _res = await callMethod(
+        "characteristicReadLong",
+        _putCharacteristic(
+            {"deviceId": deviceId, "maxLength": maxLength, "paged": paged},
+            deviceId,
+            characteristicId));
+    Uint8List _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 可靠写入，设备回显的数据与写入的数据一致时才提交，数据长度不能超过MTU-5，
+  /// 更长的数据请先通过 [requestMtu] 协商更大的MTU。返回写入字节数bytes与耗时elapsed(毫秒)。
+  Future<Map> characteristicWriteReliable(
+      String deviceId, String characteristicId, List<int> data) async {
+    Map _res = await callMethod(
+        "characteristicWriteReliable",
+        _putCharacteristic({
+          "deviceId": deviceId,
+          "data": data is Uint8List ? data : Uint8List.fromList(data)
+        }, deviceId, characteristicId));
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 协商MTU，返回协商后的mtu与单次写入的有效载荷长度payloadSize。
+  Future<Map> requestMtu(String deviceId, [int mtu = 517]) async {
+    Map _res =
+        await callMethod("requestMtu", {"deviceId": deviceId, "mtu": mtu});
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 设置连接优先级，priority可选值：high、balanced、lowPower。
+  Future<bool> requestConnectionPriority(
+      String deviceId, String priority) async {
+    Map _res = await callMethod("requestConnectionPriority",
+        {"deviceId": deviceId, "priority": priority});
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 设置自动连接优先级策略，读写数据时提升为高优先级，空闲idleTimeout毫秒后恢复为idlePriority。
+  Future<bool> setConnectionPriorityPolicy(String deviceId, bool enable,
+      {int idleTimeout = 2000, String idlePriority = "balanced"}) async {
+    Map _res = await callMethod("setConnectionPriorityPolicy", {
+      "deviceId": deviceId,
+      "enable": enable,
+      "idleTimeout": idleTimeout,
+      "idlePriority": idlePriority
     });
     bool _val = getResultData(_res);
     return _val;
   }
 
+  /// 设置通知合并发送，同一特征的通知累积interval毫秒或maxFrames帧后一次发送，interval为0时关闭。
+  Future<bool> setNotificationBatch(String deviceId, int interval,
+      [int maxFrames = 32]) async {
+    Map _res = await callMethod("setNotificationBatch",
+        {"deviceId": deviceId, "interval": interval, "maxFrames": maxFrames});
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 设置特征通知的分段重组，同一特征的通知分段收齐为完整的帧后再发送，mode为none时关闭。
+  /// mode可选值：length(首个分段以2字节小端序的帧长度开头)、flags(每个分段以1字节标志开头，0x80开始，0x40结束)；
+  /// crc可选值：none、crc16(CRC-16/CCITT-FALSE)、crc32，校验值以小端序附加在帧末尾；
+  /// timeout为重组超时时间(毫秒)，超时未收齐的帧被丢弃。
+  /// maxLength为帧长度上限，不超过65535字节。
+  Future<bool> setNotificationFraming(
+      String deviceId, String characteristicId, String mode,
+      {String crc = "none", int timeout = 1000, int maxLength = 65535}) async {
+    Map _res = await callMethod(
+        "setNotificationFraming",
+        _putCharacteristic({
+          "deviceId": deviceId,
+          "mode": mode,
+          "crc": crc,
+          "timeout": timeout,
+          "maxLength": maxLength
+        }, deviceId, characteristicId));
+    bool _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 获取通知分段重组的统计信息：特征标识 -> {frames, timeouts, crcErrors, malformed, pending}。
+  Future<Map> getNotificationFraming(String deviceId) async {
+    Map _res =
+        await callMethod("getNotificationFraming", {"deviceId": deviceId});
+    Map _val = getResultData(_res);
+    return _val;
+  }
+
+  /// 读取信号强度
+  Future<int> readRssi(String deviceId) async {
+    Map _res = await callMethod("readRssi", {"deviceId": deviceId});
+    int _val = getResultData(_res);
+    return _val;
+  }
+
   /// 断开连接
   Future<bool> disconnect(String deviceId) async {
     Map _res = await callMethod("disconnect", {"deviceId": deviceId});
@@ -263,10 +884,11 @@ class BluetoothHelper {
 
   static bool _isDebug = false;
 
-  /// 开启调试模式，输出详细的日志信息
-  static void enableDebug() {
+  /// 开启调试模式，输出详细的日志信息。async为true时原生日志由独立线程异步输出，适合在高负载时保持开启。
+  static void enableDebug([bool async = false]) {
     _isDebug = true;
-    callMethod("debug").then((_res) => print("enableDebug result: $_res"));
+    callMethod("debug", {"async": async})
+        .then((_res) => print("enableDebug result: $_res"));
   }
 
   /// 打印调试信息
@@ -351,14 +973,18 @@ class BluetoothEventNotifyData extends BluetoothEvent {
 
   final String _characteristicId;
   final List<int> _data;
+  final int _handle;
 
   BluetoothEventNotifyData(String deviceId, this._characteristicId, this._data,
-      [int type = TYPE])
+      [int type = TYPE, this._handle = -1])
       : super(type, deviceId);
 
   /// 特征标识
   String get characteristicId => _characteristicId;
 
+  /// 特征句柄，未知时为-1。
+  int get handle => _handle;
+
   /// 数据
   List<int> get data => _data;
 
@@ -368,19 +994,56 @@ class BluetoothEventNotifyData extends BluetoothEvent {
   }
 }
 
+/// 接收到合并发送的监听数据事件
+class BluetoothEventNotifyBatch extends BluetoothEvent {
+  static const int TYPE = 6;
+
+  final String _characteristicId;
+  final List<int> _times;
+  final List<List<int>> _data;
+  final int _handle;
+
+  BluetoothEventNotifyBatch(
+      String deviceId, this._characteristicId, this._times, this._data,
+      [this._handle = -1])
+      : super(TYPE, deviceId);
+
+  /// 特征标识
+  String get characteristicId => _characteristicId;
+
+  /// 特征句柄，未知时为-1。
+  int get handle => _handle;
+
+  /// 各帧接收时间(开机时长，单位：毫秒)
+  List<int> get times => _times;
+
+  /// 各帧数据
+  List<List<int>> get data => _data;
+
+  @override
+  String toString() {
+    return "BluetoothEventNotifyBatch{deviceId:$_deviceId, characteristicId:$_characteristicId, frames:${_data.length}}";
+  }
+}
+
 /// 接收到特征数据读取返回值事件。
 class BluetoothEventReadResult extends BluetoothEvent {
   static const int TYPE = 3;
 
   final String _characteristicId;
   final List<int> _data;
+  final int _handle;
 
-  BluetoothEventReadResult(String deviceId, this._characteristicId, this._data)
+  BluetoothEventReadResult(String deviceId, this._characteristicId, this._data,
+      [this._handle = -1])
       : super(TYPE, deviceId);
 
   /// 特征标识
   String get characteristicId => _characteristicId;
 
+  /// 特征句柄，未知时为-1。
+  int get handle => _handle;
+
   /// 数据
   List<int> get data => _data;
 
@@ -396,10 +1059,18 @@ class BluetoothEventWriteResult extends BluetoothEvent {
 
   final String _characteristicId;
   final bool _isOK;
+  final int _handle;
 
-  BluetoothEventWriteResult(String deviceId, this._characteristicId, this._isOK)
+  BluetoothEventWriteResult(String deviceId, this._characteristicId, this._isOK,
+      [this._handle = -1])
       : super(TYPE, deviceId);
 
+  /// 特征标识
+  String get characteristicId => _characteristicId;
+
+  /// 特征句柄，未知时为-1。
+  int get handle => _handle;
+
   /// 是否写入成功
   bool get isOk => _isOK;
 
@@ -409,6 +1080,168 @@ class BluetoothEventWriteResult extends BluetoothEvent {
   }
 }
 
+/// 特征连续写入进度事件。
+class BluetoothEventWriteProgress extends BluetoothEvent {
+  static const int TYPE = 5;
+
+  final String _characteristicId;
+  final int _bytes;
+  final int _total;
+  final int _bytesPerSecond;
+  final int _handle;
+
+  BluetoothEventWriteProgress(String deviceId, this._characteristicId,
+      this._bytes, this._total, this._bytesPerSecond,
+      [this._handle = -1])
+      : super(TYPE, deviceId);
+
+  /// 特征标识
+  String get characteristicId => _characteristicId;
+
+  /// 特征句柄，未知时为-1。
+  int get handle => _handle;
+
+  /// 已写入字节数
+  int get bytes => _bytes;
+
+  /// 总字节数
+  int get total => _total;
+
+  /// 写入速率，单位：字节/秒。
+  int get bytesPerSecond => _bytesPerSecond;
+
+  @override
+  String toString() {
+    return "BluetoothEventWriteProgress{deviceId:$_deviceId, characteristicId:$_characteristicId, bytes:$_bytes, total:$_total, bytesPerSecond:$_bytesPerSecond}";
+  }
+}
+
+/// 自动重连成功事件，会话状态已恢复。
+class BluetoothEventDeviceReconnected extends BluetoothEvent {
+  static const int TYPE = 10;
+
+  final int _attempts;
+  final bool _background;
+  final int _latency;
+  final int _restoreTime;
+
+  BluetoothEventDeviceReconnected(String deviceId, this._attempts,
+      this._background, this._latency, this._restoreTime)
+      : super(TYPE, deviceId);
+
+  /// 快速直连的次数
+  int get attempts => _attempts;
+
+  /// 是否由后台自动连接建立
+  bool get background => _background;
+
+  /// 从连接断开到重新连接的耗时，单位：毫秒。
+  int get latency => _latency;
+
+  /// 恢复会话状态的耗时，单位：毫秒。
+  int get restoreTime => _restoreTime;
+
+  @override
+  String toString() {
+    return "BluetoothEventDeviceReconnected{deviceId:$_deviceId, attempts:$_attempts, background:$_background, latency:$_latency, restoreTime:$_restoreTime}";
+  }
+}
+
+/// 设备服务结构变化事件，如服务变化指示后重新发现的结果与缓存不一致。
+class BluetoothEventServicesDiscovered extends BluetoothEvent {
+  static const int TYPE = 9;
+
+  final List _characteristicIds;
+
+  BluetoothEventServicesDiscovered(String deviceId, this._characteristicIds)
+      : super(TYPE, deviceId);
+
+  /// 特征标识
+  List get characteristicIds => _characteristicIds;
+
+  @override
+  String toString() {
+    return "BluetoothEventServicesDiscovered{deviceId:$_deviceId, characteristicIds:$_characteristicIds}";
+  }
+}
+
+/// 扫描过程中发现新设备或设备信息更新事件。
+class BluetoothEventScanResult extends BluetoothEvent {
+  static const int TYPE = 7;
+
+  final String _deviceName;
+  final int _rssi;
+  final bool _isNew;
+  final Map _advertisement;
+
+  BluetoothEventScanResult(String deviceId, this._deviceName, this._rssi,
+      this._isNew, this._advertisement)
+      : super(TYPE, deviceId);
+
+  /// 设备名称
+  String get deviceName => _deviceName;
+
+  /// 信号强度
+  int get rssi => _rssi;
+
+  /// 是否本次扫描中第一次发现
+  bool get isNew => _isNew;
+
+  /// 解析后的广播数据：flags、txPower、name、serviceUuids、
+  /// serviceData(UUID -> 数据)、manufacturerData(厂商标识 -> 数据)，不存在的字段不返回。
+  Map get advertisement => _advertisement;
+
+  @override
+  String toString() {
+    return "BluetoothEventScanResult{deviceId:$_deviceId, deviceName:$_deviceName, rssi:$_rssi, isNew:$_isNew}";
+  }
+}
+
+/// 批量扫描结果事件。
+class BluetoothEventScanBatch extends BluetoothEvent {
+  static const int TYPE = 8;
+
+  final List<Map> _results;
+
+  BluetoothEventScanBatch(this._results) : super(TYPE, null);
+
+  /// 扫描结果：deviceId、deviceName、rssi、timestamp(时间戳，单位：毫秒)、
+  /// advertisement(解析后的广播数据，格式同 [BluetoothEventScanResult.advertisement])。
+  List<Map> get results => _results;
+
+  @override
+  String toString() {
+    return "BluetoothEventScanBatch{results:${_results.length}}";
+  }
+}
+
+/// 后台扫描中发现关注的设备事件，每次扫描中每个设备只通知一次。
+class BluetoothEventWatchedDeviceSeen extends BluetoothEvent {
+  static const int TYPE = 11;
+
+  final Map _data;
+
+  BluetoothEventWatchedDeviceSeen(this._data)
+      : super(TYPE, _data["deviceId"]);
+
+  /// 设备名称
+  String get deviceName => _data["deviceName"];
+
+  /// 信号强度
+  int get rssi => _data["rssi"];
+
+  /// 匹配的服务UUID，按地址关注时为null。
+  String get serviceUuid => _data["serviceUuid"];
+
+  /// 最后发现时间，时间戳，单位：毫秒。
+  int get lastSeen => _data["lastSeen"];
+
+  @override
+  String toString() {
+    return "BluetoothEventWatchedDeviceSeen{deviceId:$_deviceId, rssi:$rssi, serviceUuid:$serviceUuid}";
+  }
+}
+
 /// 蓝牙事件类型
 enum BluetoothEventType {
   /// 状态改变